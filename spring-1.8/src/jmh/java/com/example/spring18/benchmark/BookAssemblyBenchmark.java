@@ -0,0 +1,36 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.domain.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning rows into books, look at {@code gc.alloc.rate.norm} of the default {@code -prof gc}
+ * for the bytes allocated per listing. {@link HeapFootprint} shows what the listing keeps alive.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BookAssemblyBenchmark {
+
+    @Benchmark
+    public List<Book> getAll(CatalogState catalog) {
+        return catalog.bookDao.getAll();
+    }
+
+    @Benchmark
+    public void streamAll(CatalogState catalog, Blackhole blackhole) {
+        catalog.bookDao.streamAll(blackhole::consume);
+    }
+}
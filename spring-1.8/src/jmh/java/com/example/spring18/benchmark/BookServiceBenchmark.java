@@ -0,0 +1,75 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.GenreQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookServiceBenchmark {
+
+    private static final GenreQuery GENRE_QUERY = GenreQuery.parse("Genre1 AND Genre8 OR Genre14 NOT Genre2");
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Benchmark
+    public List<Book> getAllBooks(CatalogState catalog) {
+        return catalog.bookService.getAllBooks();
+    }
+
+    @Benchmark
+    public void streamAllBooks(CatalogState catalog, Blackhole blackhole) {
+        catalog.bookService.streamAllBooks(blackhole::consume);
+    }
+
+    @Benchmark
+    public Book getBookById(CatalogState catalog) {
+        return catalog.bookService.getBookById(catalog.randomBookId());
+    }
+
+    @Benchmark
+    public List<Book> getBooksByGenreQuery(CatalogState catalog) {
+        return catalog.bookService.getBooksByGenreQuery(GENRE_QUERY);
+    }
+
+    @Benchmark
+    public long countBooksByGenreQuery(CatalogState catalog) {
+        return catalog.bookService.countBooksByGenreQuery(GENRE_QUERY);
+    }
+
+    @Benchmark
+    public long saveBook(CatalogState catalog) {
+        return catalog.bookService.saveBook(Book.builder()
+                .name("Saved book " + sequence.incrementAndGet())
+                .author(catalog.randomAuthor())
+                .genres(CatalogState.randomGenres())
+                .build());
+    }
+
+    @Benchmark
+    public void updateBookById(CatalogState catalog) {
+        catalog.bookService.updateBookById(Book.builder()
+                .id(catalog.randomBookId())
+                .name("Updated book " + sequence.incrementAndGet())
+                .author(catalog.randomAuthor())
+                .genres(CatalogState.randomGenres())
+                .build());
+    }
+}
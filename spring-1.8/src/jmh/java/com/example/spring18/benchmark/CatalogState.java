@@ -0,0 +1,171 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.author.AuthorDaoJdbc;
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.book.BookSearchDaoJdbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.author.AuthorCache;
+import com.example.spring18.services.author.AuthorServiceImpl;
+import com.example.spring18.services.book.BookCache;
+import com.example.spring18.services.book.BookReadModel;
+import com.example.spring18.services.book.BookServiceImpl;
+import com.example.spring18.services.book.GenreBitmapIndex;
+import com.example.spring18.services.genre.GenreCache;
+import com.example.spring18.services.genre.GenreServiceImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    static final int GENRES = 20;
+
+    static final int BOOKS_PER_AUTHOR = 50;
+
+    @Param({"1000", "100000", "1000000"})
+    public int books;
+
+    /**
+     * Serves reads from {@link BookReadModel} instead of the database, run with {@code -p readModel=true}
+     * to compare both paths.
+     */
+    @Param({"false"})
+    public boolean readModel;
+
+    /**
+     * Answers genre queries from {@link GenreBitmapIndex}, run with {@code -p genreIndex=true}.
+     */
+    @Param({"false"})
+    public boolean genreIndex;
+
+    /**
+     * Reads the three queries of {@code getAllBooks} concurrently, run with {@code -p parallelFetch=false,true}.
+     */
+    @Param({"false"})
+    public boolean parallelFetch;
+
+    EmbeddedDatabase database;
+
+    HikariDataSource dataSource;
+
+    NamedParameterJdbcTemplate jdbc;
+
+    BookDaoJdbc bookDao;
+
+    AuthorDaoJdbc authorDao;
+
+    GenreDaoJdbc genreDao;
+
+    BookServiceImpl bookService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("bench_" + books)
+                .addScript("schema.sql")
+                .build();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bench_" + books);
+        dataSource.setUsername("sa");
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        seed();
+        var properties = new LibraryProperties();
+        properties.getReadModel().setEnabled(readModel);
+        properties.getGenreIndex().setEnabled(genreIndex);
+        properties.getBooks().setParallelFetch(parallelFetch);
+        bookDao = new BookDaoJdbc(jdbc, properties);
+        authorDao = new AuthorDaoJdbc(jdbc);
+        genreDao = new GenreDaoJdbc(jdbc);
+        bookService = bookService(jdbc, properties, TransactionOperations.withoutTransaction());
+    }
+
+    static BookServiceImpl bookService(NamedParameterJdbcTemplate jdbc, LibraryProperties properties,
+                                       TransactionOperations transactionOperations) {
+        return new BookServiceImpl(new BookDaoJdbc(jdbc, properties), new BookSearchDaoJdbc(jdbc),
+                new AuthorServiceImpl(new AuthorDaoJdbc(jdbc), new AuthorCache(properties), event -> {
+                }),
+                new GenreServiceImpl(new GenreDaoJdbc(jdbc), new GenreCache(properties), event -> {
+                }),
+                transactionOperations, properties, new BookCache(properties),
+                readModel(jdbc, properties), genreIndex(jdbc, properties));
+    }
+
+    private static BookReadModel readModel(NamedParameterJdbcTemplate jdbc, LibraryProperties properties) {
+        var readModel = new BookReadModel(new BookDaoJdbc(jdbc, properties), new AuthorDaoJdbc(jdbc),
+                new GenreDaoJdbc(jdbc), properties);
+        readModel.afterSingletonsInstantiated();
+        return readModel;
+    }
+
+    private static GenreBitmapIndex genreIndex(NamedParameterJdbcTemplate jdbc, LibraryProperties properties) {
+        var genreIndex = new GenreBitmapIndex(new BookDaoJdbc(jdbc, properties), new GenreDaoJdbc(jdbc), properties);
+        genreIndex.afterSingletonsInstantiated();
+        return genreIndex;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+        database.shutdown();
+    }
+
+    int authors() {
+        return Math.max(1, books / BOOKS_PER_AUTHOR);
+    }
+
+    long randomBookId() {
+        return ThreadLocalRandom.current().nextLong(1, books + 1);
+    }
+
+    Author randomAuthor() {
+        return Author.builder()
+                .initials("A.")
+                .lastName("Author" + ThreadLocalRandom.current().nextInt(1, authors() + 1))
+                .build();
+    }
+
+    static List<Genre> randomGenres() {
+        var random = ThreadLocalRandom.current();
+        return List.of(genre(random.nextInt(1, 11)), genre(random.nextInt(11, GENRES + 1)));
+    }
+
+    private static Genre genre(long id) {
+        return Genre.builder()
+                .id(id)
+                .name("Genre" + id)
+                .build();
+    }
+
+    private void seed() {
+        var params = Map.of("books", books, "authors", authors(), "genres", GENRES);
+        jdbc.update("insert into authors (initials, lastname) select 'A.', 'Author' || x " +
+                "from system_range(1, :authors)", params);
+        jdbc.update("insert into genres (name) select 'Genre' || x from system_range(1, :genres)", params);
+        jdbc.update("insert into books (name, author_id) select 'Book ' || x, mod(x, :authors) + 1 " +
+                "from system_range(1, :books)", params);
+        jdbc.update("insert into books_genres (book_id, genre_id) select x, mod(x, :genres) + 1 " +
+                "from system_range(1, :books)", params);
+        jdbc.update("insert into books_genres (book_id, genre_id) select x, mod(x + 7, :genres) + 1 " +
+                "from system_range(1, :books)", params);
+        jdbc.update("insert into books_genres (book_id, genre_id) select x, mod(x + 13, :genres) + 1 " +
+                "from system_range(1, :books)", params);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.spring18.benchmark;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts borrowed connections and commits. A statement executed in autocommit mode
+ * counts as its own commit, an explicit {@link Connection#commit()} counts once.
+ */
+class CountingDataSource extends DelegatingDataSource {
+
+    private final LongAdder connections = new LongAdder();
+
+    private final LongAdder commits = new LongAdder();
+
+    CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    long connections() {
+        return connections.sum();
+    }
+
+    long commits() {
+        return commits.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        connections.increment();
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("commit")) {
+                        commits.increment();
+                    }
+                    Object result = invoke(connection, method, args);
+                    return result instanceof Statement statement
+                            ? countingStatement(connection, statement, method.getReturnType()) : result;
+                });
+    }
+
+    private Object countingStatement(Connection connection, Statement statement, Class<?> statementType) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementType},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && connection.getAutoCommit()) {
+                        commits.increment();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
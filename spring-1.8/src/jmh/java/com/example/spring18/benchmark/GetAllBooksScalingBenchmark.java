@@ -0,0 +1,32 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.domain.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a whole catalog listing; with three genres per book the score should grow
+ * proportionally to the books parameter (1k, 100k, 1M books with 3k, 300k, 3M relations).
+ * With {@code -p parallelFetch=false,true} it compares the sum of the three queries with the
+ * longest of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GetAllBooksScalingBenchmark {
+
+    @Benchmark
+    public List<Book> getAllBooks(CatalogState catalog) {
+        return catalog.bookService.getAllBooks();
+    }
+}
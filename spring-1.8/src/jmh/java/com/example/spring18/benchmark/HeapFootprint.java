@@ -0,0 +1,56 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.domain.Book;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Heap retained by a full {@code getAll} listing and the number of distinct author and string
+ * instances in it. Not a JMH benchmark, run it directly (the argument is the number of books):
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.main=com.example.spring18.benchmark.HeapFootprint -Djmh.args="1000000"
+ * </pre>
+ */
+public class HeapFootprint {
+
+    public static void main(String[] args) throws Exception {
+        var catalog = new CatalogState();
+        catalog.books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        catalog.setUp();
+        try {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            long before = usedAfterGc(memory);
+            List<Book> books = catalog.bookDao.getAll();
+            long after = usedAfterGc(memory);
+
+            Set<Object> authors = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<Object> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Book book : books) {
+                authors.add(book.getAuthor());
+                strings.add(book.getName());
+                strings.add(book.getAuthor().getInitials());
+                strings.add(book.getAuthor().getLastName());
+            }
+            System.out.printf("books              : %d by %d authors%n", books.size(), catalog.authors());
+            System.out.printf("author instances   : %d%n", authors.size());
+            System.out.printf("string instances   : %d%n", strings.size());
+            System.out.printf("retained heap      : %.1f MB, %d bytes per book%n", (after - before) / 1e6,
+                    (after - before) / Math.max(1, books.size()));
+        } finally {
+            catalog.tearDown();
+        }
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
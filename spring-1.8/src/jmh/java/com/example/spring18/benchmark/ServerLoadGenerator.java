@@ -0,0 +1,170 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.server.LibraryServer;
+import com.example.spring18.server.SessionExecutors;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts {@link LibraryServer} over an in-memory catalog and drives it with thousands of concurrent
+ * clients, all holding their sessions open at the same time against the default pool of 10 JDBC
+ * connections. Not a JMH benchmark, run it directly (arguments are clients and requests per client):
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.main=com.example.spring18.benchmark.ServerLoadGenerator -Djmh.args="5000 20"
+ * </pre>
+ * On Java 21+ sessions run on virtual threads; the report then shows how many platform threads the
+ * JVM needed at peak and how many {@code jdk.VirtualThreadPinned} events were recorded (should be 0).
+ */
+public class ServerLoadGenerator {
+
+    private static final String[] COMMANDS = {"get", "by-author", "page", "search"};
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        var catalog = new CatalogState();
+        catalog.books = 100_000;
+        catalog.setUp();
+        // the catalog is seeded from schema.sql alone, the full-text index is built once it is filled
+        new ResourceDatabasePopulator(new ClassPathResource("schema-h2.sql")).execute(catalog.dataSource);
+        var properties = new LibraryProperties();
+        properties.getServer().setPort(0);
+        properties.getServer().setMaxSessions(clients);
+        var server = new LibraryServer(catalog.bookService, properties);
+        var pinned = new LongAdder();
+        var peakConnections = new AtomicInteger();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try (var events = new RecordingStream()) {
+            events.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            events.onEvent("jdk.VirtualThreadPinned", event -> pinned.increment());
+            events.startAsync();
+            server.start();
+            Thread sampler = sampleActiveConnections(catalog, peakConnections);
+            threads.resetPeakThreadCount();
+
+            long started = System.nanoTime();
+            long[] latencies = run(server.getLocalAddress(), catalog, clients, requests);
+            long elapsed = System.nanoTime() - started;
+
+            sampler.interrupt();
+            // the stream gets recorded events in about one second batches
+            Thread.sleep(1500);
+            Arrays.sort(latencies);
+            System.out.printf("virtual threads      : %s%n", SessionExecutors.virtualThreadsAvailable());
+            System.out.printf("clients x requests   : %d x %d%n", clients, requests);
+            System.out.printf("throughput           : %.0f requests/s%n",
+                    latencies.length * 1e9 / elapsed);
+            System.out.printf("latency p50/p99/max  : %.3f / %.3f / %.3f ms%n", millis(latencies, 0.5),
+                    millis(latencies, 0.99), millis(latencies, 1.0));
+            System.out.printf("jdbc pool            : %d max, %d peak active%n",
+                    catalog.dataSource.getMaximumPoolSize(), peakConnections.get());
+            System.out.printf("platform threads     : %d peak%n", threads.getPeakThreadCount());
+            System.out.printf("pinned events        : %d%n", pinned.sum());
+        } finally {
+            server.stop();
+            catalog.tearDown();
+        }
+    }
+
+    private static long[] run(SocketAddress address, CatalogState catalog, int clients, int requests)
+            throws Exception {
+        var connected = new CountDownLatch(clients);
+        ExecutorService executor = SessionExecutors.newSessionExecutor("load-client", clients);
+        try {
+            List<Future<long[]>> results = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(() -> client(address, catalog, requests, connected)));
+            }
+            long[] latencies = new long[clients * requests];
+            int next = 0;
+            for (Future<long[]> result : results) {
+                long[] clientLatencies = result.get();
+                System.arraycopy(clientLatencies, 0, latencies, next, clientLatencies.length);
+                next += clientLatencies.length;
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long[] client(SocketAddress address, CatalogState catalog, int requests,
+                                 CountDownLatch connected) throws IOException, InterruptedException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            var reader = new BufferedReader(new InputStreamReader(channel.socket().getInputStream(),
+                    StandardCharsets.UTF_8));
+            OutputStream writer = channel.socket().getOutputStream();
+            connected.countDown();
+            connected.await();
+            long[] latencies = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                long started = System.nanoTime();
+                writer.write((request(catalog) + "\n").getBytes(StandardCharsets.UTF_8));
+                String line;
+                do {
+                    line = reader.readLine();
+                    if (line == null || line.startsWith("ERROR")) {
+                        throw new IllegalStateException("Unexpected response : " + line);
+                    }
+                } while (!line.equals("OK"));
+                latencies[i] = System.nanoTime() - started;
+            }
+            writer.write("quit\n".getBytes(StandardCharsets.UTF_8));
+            return latencies;
+        }
+    }
+
+    private static String request(CatalogState catalog) {
+        var random = ThreadLocalRandom.current();
+        return switch (COMMANDS[random.nextInt(COMMANDS.length)]) {
+            case "get" -> "get " + catalog.randomBookId();
+            case "by-author" -> "by-author " + random.nextInt(1, catalog.authors() + 1);
+            case "page" -> "page " + catalog.randomBookId() + " 20";
+            default -> "search Author" + random.nextInt(1, catalog.authors() + 1);
+        };
+    }
+
+    private static Thread sampleActiveConnections(CatalogState catalog, AtomicInteger peak) {
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak.accumulateAndGet(catalog.dataSource.getHikariPoolMXBean().getActiveConnections(), Math::max);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        return sampler;
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
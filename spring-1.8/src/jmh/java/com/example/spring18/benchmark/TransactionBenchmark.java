@@ -0,0 +1,131 @@
+package com.example.spring18.benchmark;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.config.LibraryTransactionManager;
+import com.example.spring18.domain.Book;
+import com.example.spring18.services.book.BookService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Book writes in autocommit mode against the same writes behind the service's
+ * {@code @Transactional} boundaries. Commit and connection counters are totals per
+ * iteration; divide them by {@code operations} for per-call numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Services {
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        CountingDataSource dataSource;
+
+        BookService autocommit;
+
+        BookService transactional;
+
+        @Setup(Level.Trial)
+        public void setUp(CatalogState catalog) {
+            dataSource = new CountingDataSource(catalog.dataSource);
+            var jdbc = new NamedParameterJdbcTemplate(dataSource);
+            var properties = new LibraryProperties();
+            var transactionManager = new LibraryTransactionManager(dataSource, properties.getTransactions());
+            var bookService = CatalogState.bookService(jdbc, properties, new TransactionTemplate(transactionManager));
+            var proxyFactory = new ProxyFactory(bookService);
+            proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) transactionManager,
+                    new AnnotationTransactionAttributeSource()));
+            autocommit = bookService;
+            transactional = (BookService) proxyFactory.getProxy();
+        }
+
+        Book newBook(CatalogState catalog) {
+            return Book.builder()
+                    .name("Saved book " + sequence.incrementAndGet())
+                    .author(catalog.randomAuthor())
+                    .genres(CatalogState.randomGenres())
+                    .build();
+        }
+
+        Book updatedBook(CatalogState catalog) {
+            return Book.builder()
+                    .id(catalog.randomBookId())
+                    .name("Updated book " + sequence.incrementAndGet())
+                    .author(catalog.randomAuthor())
+                    .genres(CatalogState.randomGenres())
+                    .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long operations;
+
+        public long commits;
+
+        public long connections;
+
+        void record(CountingDataSource dataSource, Runnable operation) {
+            long commitsBefore = dataSource.commits();
+            long connectionsBefore = dataSource.connections();
+            operation.run();
+            operations++;
+            commits += dataSource.commits() - commitsBefore;
+            connections += dataSource.connections() - connectionsBefore;
+        }
+    }
+
+    @Benchmark
+    public void saveBookAutocommit(CatalogState catalog, Services services, Counters counters) {
+        run(services, counters, bookService -> bookService.saveBook(services.newBook(catalog)), services.autocommit);
+    }
+
+    @Benchmark
+    public void saveBookTransactional(CatalogState catalog, Services services, Counters counters) {
+        run(services, counters, bookService -> bookService.saveBook(services.newBook(catalog)), services.transactional);
+    }
+
+    @Benchmark
+    public void updateBookByIdAutocommit(CatalogState catalog, Services services, Counters counters) {
+        run(services, counters, bookService -> bookService.updateBookById(services.updatedBook(catalog)),
+                services.autocommit);
+    }
+
+    @Benchmark
+    public void updateBookByIdTransactional(CatalogState catalog, Services services, Counters counters) {
+        run(services, counters, bookService -> bookService.updateBookById(services.updatedBook(catalog)),
+                services.transactional);
+    }
+
+    private static void run(Services services, Counters counters, Consumer<BookService> operation,
+                            BookService bookService) {
+        counters.record(services.dataSource, () -> operation.accept(bookService));
+    }
+}
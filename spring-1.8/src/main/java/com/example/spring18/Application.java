@@ -1,11 +1,14 @@
 package com.example.spring18;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.config.YamlPropertySourceFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.PropertySource;
 
 @SpringBootApplication
+@EnableConfigurationProperties(LibraryProperties.class)
 @PropertySource(value = "/application.yml", factory = YamlPropertySourceFactory.class)
 public class Application {
 
@@ -0,0 +1,184 @@
+package com.example.spring18.config;
+
+import com.example.spring18.dao.routing.ReplicaBalancing;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "library")
+public class LibraryProperties {
+
+    private Books books = new Books();
+
+    private Transactions transactions = new Transactions();
+
+    private Metrics metrics = new Metrics();
+
+    private Profiling profiling = new Profiling();
+
+    private Caches caches = new Caches();
+
+    private Server server = new Server();
+
+    private Replicas replicas = new Replicas();
+
+    private ReadModel readModel = new ReadModel();
+
+    private GenreIndex genreIndex = new GenreIndex();
+
+    @Data
+    public static class Books {
+
+        private int fetchSize = 1000;
+
+        private int importChunkSize = 1000;
+
+        private int batchGroupSize = 500;
+
+        /**
+         * Threads writing export partitions at once. Each holds a pooled connection while it runs,
+         * so keep it below the maximum pool size.
+         */
+        private int exportThreads = 4;
+
+        /**
+         * Reads genres and book-genre links of {@code getAllBooks} on their own connections while
+         * the books are read.
+         */
+        private boolean parallelFetch = false;
+    }
+
+    @Data
+    public static class Transactions {
+
+        private Isolation isolation = Isolation.DEFAULT;
+
+        private boolean readOnlyHints = true;
+
+        private boolean enforceReadOnly = false;
+    }
+
+    @Data
+    public static class Metrics {
+
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Profiling {
+
+        private boolean enabled = false;
+
+        private int repeatedStatementThreshold = 3;
+    }
+
+    @Data
+    public static class Caches {
+
+        private Cache authors = new Cache();
+
+        private Cache genres = new Cache();
+
+        private AggregateCache books = new AggregateCache();
+    }
+
+    @Data
+    public static class Cache {
+
+        private int maximumSize = 10_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class AggregateCache {
+
+        private DataSize maximumMemory = DataSize.ofMegabytes(64);
+
+        private Duration ttl = Duration.ofMinutes(30);
+
+        private int concurrencyLevel = 16;
+    }
+
+    @Data
+    public static class Server {
+
+        private boolean enabled = false;
+
+        private String host = "127.0.0.1";
+
+        private int port = 7700;
+
+        private Path unixSocket;
+
+        private int maxSessions = 10_000;
+
+        private int platformThreads = 200;
+    }
+
+    @Data
+    public static class ReadModel {
+
+        private boolean enabled = false;
+
+        private Snapshot snapshot = new Snapshot();
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * Restored at startup when present; no snapshots are taken when not set.
+         */
+        private Path file;
+
+        /**
+         * Older snapshots are ignored and the catalog is loaded in full.
+         */
+        private Duration maxAge = Duration.ofHours(24);
+
+        /**
+         * Books changed this long before a snapshot was read are read again on restore. Change
+         * times are the start of the writing transaction, so this covers transactions that were
+         * still open while the snapshot was read.
+         */
+        private Duration overlap = Duration.ofMinutes(5);
+
+        private boolean writeOnShutdown = true;
+    }
+
+    @Data
+    public static class GenreIndex {
+
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Replicas {
+
+        private boolean enabled = false;
+
+        private ReplicaBalancing balancing = ReplicaBalancing.ROUND_ROBIN;
+
+        private List<Replica> datasources = new ArrayList<>();
+    }
+
+    @Data
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.spring18.config;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.DelegatingTransactionDefinition;
+
+import javax.sql.DataSource;
+
+public class LibraryTransactionManager extends DataSourceTransactionManager {
+
+    private final Isolation defaultIsolation;
+
+    private final boolean readOnlyHints;
+
+    public LibraryTransactionManager(DataSource dataSource, LibraryProperties.Transactions properties) {
+        super(dataSource);
+        this.defaultIsolation = properties.getIsolation();
+        this.readOnlyHints = properties.isReadOnlyHints();
+        setEnforceReadOnly(properties.isEnforceReadOnly());
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, new DelegatingTransactionDefinition(definition) {
+
+            @Override
+            public int getIsolationLevel() {
+                int isolationLevel = super.getIsolationLevel();
+                return isolationLevel == ISOLATION_DEFAULT ? defaultIsolation.value() : isolationLevel;
+            }
+
+            @Override
+            public boolean isReadOnly() {
+                return readOnlyHints && super.isReadOnly();
+            }
+        });
+    }
+}
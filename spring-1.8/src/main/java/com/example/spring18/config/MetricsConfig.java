@@ -0,0 +1,19 @@
+package com.example.spring18.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public PrometheusMeterRegistry meterRegistry(ObjectProvider<MeterBinder> meterBinders) {
+        var registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        meterBinders.orderedStream().forEach(binder -> binder.bindTo(registry));
+        return registry;
+    }
+}
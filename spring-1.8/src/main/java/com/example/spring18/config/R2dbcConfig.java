@@ -0,0 +1,66 @@
+package com.example.spring18.config;
+
+import com.example.spring18.dao.util.SqlDialect;
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Reactive data access next to the JDBC one. The connection factory is deliberately not a bean:
+ * Boot backs off from the DataSource as soon as a {@link ConnectionFactory} bean exists, and the
+ * shell and the rest of the services keep running on JDBC.
+ */
+@Configuration
+@Profile("r2dbc")
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class R2dbcConfig implements DisposableBean {
+
+    private final ConnectionFactory connectionFactory;
+
+    public R2dbcConfig(R2dbcProperties properties) {
+        ConnectionFactoryBuilder builder = ConnectionFactoryBuilder.withUrl(properties.getUrl());
+        if (nonNull(properties.getUsername())) {
+            builder.username(properties.getUsername());
+        }
+        if (nonNull(properties.getPassword())) {
+            builder.password(properties.getPassword());
+        }
+        this.connectionFactory = builder.build();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Taken from the driver metadata, which needs no connection.
+     */
+    @Bean
+    public SqlDialect reactiveSqlDialect() {
+        return "H2".equalsIgnoreCase(connectionFactory.getMetadata().getName()) ? SqlDialect.H2 : SqlDialect.POSTGRES;
+    }
+
+    @Bean
+    public R2dbcTransactionManager reactiveTransactionManager() {
+        return new R2dbcTransactionManager(connectionFactory);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionFactory instanceof Closeable closeable) {
+            Mono.from(closeable.close()).block();
+        }
+    }
+}
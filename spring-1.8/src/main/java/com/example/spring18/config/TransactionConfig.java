@@ -0,0 +1,17 @@
+package com.example.spring18.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class TransactionConfig {
+
+    @Bean
+    @Primary
+    public LibraryTransactionManager transactionManager(DataSource dataSource, LibraryProperties libraryProperties) {
+        return new LibraryTransactionManager(dataSource, libraryProperties.getTransactions());
+    }
+}
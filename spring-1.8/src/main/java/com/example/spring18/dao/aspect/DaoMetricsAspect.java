@@ -0,0 +1,130 @@
+package com.example.spring18.dao.aspect;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import static java.util.Objects.isNull;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "library.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DaoMetricsAspect {
+
+    public static final String CALLS = "library.dao.calls";
+
+    public static final String ROWS = "library.dao.rows";
+
+    public static final String ERRORS = "library.dao.errors";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("within(com.example.spring18.dao..*) && @within(org.springframework.stereotype.Repository)")
+    public Object recordDaoCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        String dao = AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        long[] streamedRows = new long[1];
+        Object[] args = countingConsumers(joinPoint.getArgs(), streamedRows);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Object result = joinPoint.proceed(args);
+            if (result instanceof Mono<?> mono) {
+                return recordMono(dao, method, mono);
+            }
+            if (result instanceof Flux<?> flux) {
+                return recordFlux(dao, method, flux);
+            }
+            sample.stop(timer(dao, method, "success"));
+            rows(dao, method).record(rowCount(result) + streamedRows[0]);
+            return result;
+        } catch (Throwable t) {
+            recordError(dao, method, sample, t);
+            throw t;
+        }
+    }
+
+    /**
+     * A reactive DAO call only assembles the query; it is timed from subscription to completion instead.
+     */
+    private Mono<?> recordMono(String dao, String method, Mono<?> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doOnSuccess(value -> {
+                        sample.stop(timer(dao, method, "success"));
+                        rows(dao, method).record(rowCount(value));
+                    })
+                    .doOnError(t -> recordError(dao, method, sample, t));
+        });
+    }
+
+    private Flux<?> recordFlux(String dao, String method, Flux<?> flux) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            long[] rows = new long[1];
+            return flux.doOnNext(value -> rows[0]++)
+                    .doOnComplete(() -> {
+                        sample.stop(timer(dao, method, "success"));
+                        rows(dao, method).record(rows[0]);
+                    })
+                    .doOnCancel(() -> {
+                        sample.stop(timer(dao, method, "cancelled"));
+                        rows(dao, method).record(rows[0]);
+                    })
+                    .doOnError(t -> recordError(dao, method, sample, t));
+        });
+    }
+
+    private void recordError(String dao, String method, Timer.Sample sample, Throwable t) {
+        sample.stop(timer(dao, method, "error"));
+        meterRegistry.counter(ERRORS, "dao", dao, "method", method, "exception", t.getClass().getSimpleName())
+                .increment();
+    }
+
+    private Timer timer(String dao, String method, String outcome) {
+        return Timer.builder(CALLS)
+                .tags("dao", dao, "method", method, "outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary rows(String dao, String method) {
+        return DistributionSummary.builder(ROWS)
+                .tags("dao", dao, "method", method)
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object[] countingConsumers(Object[] args, long[] counter) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer<?> consumer) {
+                Consumer<Object> delegate = (Consumer<Object>) consumer;
+                args[i] = (Consumer<Object>) value -> {
+                    counter[0]++;
+                    delegate.accept(value);
+                };
+            }
+        }
+        return args;
+    }
+
+    private static long rowCount(Object result) {
+        if (isNull(result)) {
+            return 0;
+        }
+        return result instanceof Collection<?> collection ? collection.size() : 1;
+    }
+}
@@ -8,6 +8,8 @@ public interface AuthorDao {
 
      long save(Author author);
 
+     long upsert(Author author);
+
      Author getById(long id);
 
      Author getByLastnameAndInitials(String lastname, String initials);
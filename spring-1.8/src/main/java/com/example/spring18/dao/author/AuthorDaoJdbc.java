@@ -1,7 +1,9 @@
 package com.example.spring18.dao.author;
 
+import com.example.spring18.dao.util.SqlDialect;
 import com.example.spring18.domain.Author;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
@@ -16,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 @Repository
@@ -26,6 +29,8 @@ public class AuthorDaoJdbc implements AuthorDao {
 
     private final AuthorMapper authorMapper = new AuthorMapper();
 
+    private volatile SqlDialect dialect;
+
     @Override
     public long save(Author author) {
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -37,6 +42,41 @@ public class AuthorDaoJdbc implements AuthorDao {
         return Objects.requireNonNull(kh.getKey()).longValue();
     }
 
+    /**
+     * One statement for authors with and without initials. UNIQUE(INITIALS, LASTNAME) lets authors
+     * without initials repeat, so those rely on the constraints of {@code schema-postgresql.sql} and
+     * {@code schema-h2.sql}. An H2 merge that loses the race for a new author fails on them and is
+     * run once more, then it finds the author.
+     */
+    @Override
+    public long upsert(Author author) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("initials", author.getInitials());
+        params.addValue("lastname", author.getLastName());
+        String sql = upsertSql(dialect(), author);
+        try {
+            return Objects.requireNonNull(namedParameterJdbcOperations.queryForObject(sql, params, Long.class));
+        } catch (DuplicateKeyException e) {
+            return Objects.requireNonNull(namedParameterJdbcOperations.queryForObject(sql, params, Long.class));
+        }
+    }
+
+    static String upsertSql(SqlDialect dialect, Author author) {
+        if (dialect == SqlDialect.H2) {
+            return "select id from final table (merge into authors using (values (cast(:initials as varchar(50)), " +
+                "cast(:lastname as varchar(255)))) source (initials, lastname) " +
+                "on authors.initials is not distinct from source.initials and authors.lastname = source.lastname " +
+                "when matched then update set lastname = source.lastname " +
+                "when not matched then insert (initials, lastname) values (source.initials, source.lastname))";
+        }
+        return isNull(author.getInitials())
+                ? "insert into authors (initials, lastname) values (:initials, :lastname) " +
+                        "on conflict (lastname) where initials is null " +
+                        "do update set lastname = excluded.lastname returning id"
+                : "insert into authors (initials, lastname) values (:initials, :lastname) " +
+                        "on conflict (initials, lastname) do update set lastname = excluded.lastname returning id";
+    }
+
     @Override
     public Author getById(long id) {
         Map<String, Object> params = Collections.singletonMap("id", id);
@@ -73,6 +113,13 @@ public class AuthorDaoJdbc implements AuthorDao {
         namedParameterJdbcOperations.update("delete from authors where id = :id", Map.of("id", id));
     }
 
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(namedParameterJdbcOperations);
+        }
+        return dialect;
+    }
+
     private static class AuthorMapper implements RowMapper<Author> {
         @Override
         public Author mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -0,0 +1,18 @@
+package com.example.spring18.dao.author;
+
+import com.example.spring18.domain.Author;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveAuthorDao {
+
+     Mono<Long> upsert(Author author);
+
+     Mono<Author> getById(long id);
+
+     Flux<Author> getAll();
+
+     Mono<Void> updateById(Author newAuthor);
+
+     Mono<Void> delete(long id);
+}
@@ -0,0 +1,83 @@
+package com.example.spring18.dao.author;
+
+import com.example.spring18.dao.util.SqlDialect;
+import com.example.spring18.domain.Author;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static java.util.Objects.nonNull;
+
+@Repository
+@Profile("r2dbc")
+@RequiredArgsConstructor
+public class ReactiveAuthorDaoR2dbc implements ReactiveAuthorDao {
+
+    private final DatabaseClient databaseClient;
+
+    private final SqlDialect dialect;
+
+    @Override
+    public Mono<Long> upsert(Author author) {
+        Mono<Long> upsert = bindNullable(databaseClient.sql(AuthorDaoJdbc.upsertSql(dialect, author)),
+                "initials", author.getInitials())
+                .bind("lastname", author.getLastName())
+                .map(row -> longValue(row, 0))
+                .one();
+        // see AuthorDaoJdbc#upsert
+        return upsert.onErrorResume(DataIntegrityViolationException.class, e -> upsert);
+    }
+
+    @Override
+    public Mono<Author> getById(long id) {
+        return databaseClient.sql("select id, initials, lastname from authors where id = :id")
+                .bind("id", id)
+                .map(ReactiveAuthorDaoR2dbc::mapAuthor)
+                .one();
+    }
+
+    @Override
+    public Flux<Author> getAll() {
+        return databaseClient.sql("select id, initials, lastname from authors")
+                .map(ReactiveAuthorDaoR2dbc::mapAuthor)
+                .all();
+    }
+
+    @Override
+    public Mono<Void> updateById(Author newAuthor) {
+        var spec = databaseClient.sql("update authors set initials = :initials, lastname = :lastname where id = :id")
+                .bind("id", newAuthor.getId());
+        spec = bindNullable(spec, "initials", newAuthor.getInitials());
+        return bindNullable(spec, "lastname", newAuthor.getLastName())
+                .then();
+    }
+
+    @Override
+    public Mono<Void> delete(long id) {
+        return databaseClient.sql("delete from authors where id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                  String name, String value) {
+        return nonNull(value) ? spec.bind(name, value) : spec.bindNull(name, String.class);
+    }
+
+    private static Author mapAuthor(Readable row) {
+        return Author.builder()
+                .id(longValue(row, 0))
+                .initials(row.get(1, String.class))
+                .lastName(row.get(2, String.class))
+                .build();
+    }
+
+    private static long longValue(Readable row, int index) {
+        return ((Number) row.get(index)).longValue();
+    }
+}
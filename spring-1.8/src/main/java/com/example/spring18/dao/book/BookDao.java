@@ -1,31 +1,101 @@
 package com.example.spring18.dao.book;
 
 import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.dao.util.IdRange;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.GenreQuery;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookDao {
 
      long save(Book book);
 
+     /**
+      * Inserts the books as one batch, failing on a book that already exists like {@link #save(Book)} does.
+      */
+     List<Long> saveAll(List<Book> books);
+
+     List<Long> saveAllIfAbsent(List<Book> books);
+
      void updateAuthorId(long bookId, Long authorId);
 
      void createBookGenreLink(long bookId, long genreId);
 
+     void createBookGenreLinks(long bookId, Collection<Long> genreIds);
+
+     void createBookGenreLinksIfAbsent(Collection<BookGenreRelation> relations);
+
      Book getById(long bookId);
 
+     Book getByIdWithGenres(long bookId);
+
+     List<Book> getByIdsWithGenres(Collection<Long> bookIds);
+
      List<BookGenreRelation> getBookGenreRelations(long bookId);
 
+     List<BookGenreRelation> getBookGenreRelations(Collection<Long> bookIds);
+
      List<Book> getAll();
 
+     List<Book> getByAuthorId(long authorId);
+
+     List<Book> getByAuthorLastname(String lastname);
+
+     List<Book> getByGenres(Collection<String> genreNames, boolean matchAll);
+
+     List<Book> getByGenreQuery(GenreQuery query);
+
+     long countByGenreQuery(GenreQuery query);
+
+     void streamAll(Consumer<Book> consumer);
+
+     void streamRange(long fromId, long toId, Consumer<Book> consumer);
+
+     /**
+      * Books whose row was written by a transaction started at {@code since} or later. Inserts and
+      * updates of a book mark it, writes of its genre links alone don't: callers that change links
+      * without writing the book itself mark it with {@link #markChanged}.
+      */
+     void streamChangedSince(Instant since, Consumer<Book> consumer);
+
+     void markChanged(Collection<Long> bookIds);
+
+     List<Long> getIds();
+
+     /**
+      * Clock of the database, the one {@link #streamChangedSince} compares with.
+      */
+     Instant currentTimestamp();
+
+     IdRange getIdRange();
+
+     long count();
+
+     long countBookGenreLinks();
+
+     List<Book> getPageAfter(long afterId, int limit);
+
+     List<Book> getPageBefore(long beforeId, int limit);
+
      List<BookGenreRelation> getBookGenreRelations();
 
      void updateById(Book newBook);
 
+     void updateAll(List<Book> books);
+
      void deleteBookGenreLinks(long bookId);
 
      void deleteBookGenreLink(long bookId, long genreId);
 
+     void deleteBookGenreLinks(long bookId, Collection<Long> genreIds);
+
+     void deleteBookGenreLinks(Collection<BookGenreRelation> relations);
+
      void delete(long id);
+
+     void deleteAll(Collection<Long> ids);
 }
@@ -1,22 +1,43 @@
 package com.example.spring18.dao.book;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.dao.util.IdRange;
+import com.example.spring18.dao.util.SqlDialect;
 import com.example.spring18.domain.Author;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
+import com.example.spring18.util.LongObjectMap;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.nonNull;
 
@@ -24,9 +45,20 @@ import static java.util.Objects.nonNull;
 @RequiredArgsConstructor
 public class BookDaoJdbc implements BookDao {
 
+    private static final String BOOK_WITH_GENRES_SELECT = "select books.id, books.name, authors.id, " +
+            "authors.initials, authors.lastname, genres.id, genres.name from books " +
+            "left join authors on authors.id = books.author_id " +
+            "left join books_genres on books_genres.book_id = books.id " +
+            "left join genres on genres.id = books_genres.genre_id ";
+
+    private static final String BOOK_IDS_BY_GENRE_NAMES = "select books_genres.book_id from books_genres " +
+            "join genres on genres.id = books_genres.genre_id where genres.name in (";
+
     private final NamedParameterJdbcOperations namedParameterJdbcOperations;
 
-    private final BookMapper bookMapper = new BookMapper();
+    private final LibraryProperties libraryProperties;
+
+    private volatile SqlDialect dialect;
 
     @Override
     public long save(Book book) {
@@ -39,9 +71,55 @@ public class BookDaoJdbc implements BookDao {
         return Objects.requireNonNull(kh.getKey()).longValue();
     }
 
+    @Override
+    public List<Long> saveAll(List<Book> books) {
+        if (books.isEmpty()) {
+            return List.of();
+        }
+        KeyHolder kh = new GeneratedKeyHolder();
+        namedParameterJdbcOperations.batchUpdate("insert into books (name, author_id) values (:name, :author_id)",
+                books.stream()
+                        .map(book -> new MapSqlParameterSource()
+                                .addValue("name", book.getName())
+                                .addValue("author_id", authorId(book)))
+                        .toArray(SqlParameterSource[]::new),
+                kh, new String[]{"id"});
+        return kh.getKeyList().stream()
+                .map(keys -> ((Number) keys.get("id")).longValue())
+                .toList();
+    }
+
+    @Override
+    public List<Long> saveAllIfAbsent(List<Book> books) {
+        if (books.isEmpty()) {
+            return List.of();
+        }
+        // no conflict target on postgres, so books without author hit their partial unique index too
+        String sql = dialect() == SqlDialect.H2
+                ? "insert into books (name, author_id) select :name, :author_id from dual where not exists " +
+                        "(select 1 from books where name = :name and author_id is not distinct from :author_id)"
+                : "insert into books (name, author_id) values (:name, :author_id) on conflict do nothing";
+        namedParameterJdbcOperations.batchUpdate(sql, books.stream()
+                .map(book -> new MapSqlParameterSource()
+                        .addValue("name", book.getName())
+                        .addValue("author_id", authorId(book)))
+                .toArray(SqlParameterSource[]::new));
+        Map<BookKey, Long> ids = new HashMap<>();
+        namedParameterJdbcOperations.query("select id, name, author_id from books where name in (:names) order by id",
+                Map.of("names", books.stream().map(Book::getName).collect(Collectors.toSet())),
+                rs -> {
+                    long authorId = rs.getLong(3);
+                    ids.putIfAbsent(new BookKey(rs.getString(2), rs.wasNull() ? null : authorId), rs.getLong(1));
+                });
+        return books.stream()
+                .map(book -> Objects.requireNonNull(ids.get(new BookKey(book.getName(), authorId(book)))))
+                .toList();
+    }
+
     @Override
     public void updateAuthorId(long bookId, Long authorId) {
-        namedParameterJdbcOperations.update("update books set author_id = :author_id where id = :id",
+        namedParameterJdbcOperations.update("update books set author_id = :author_id, " +
+                        "changed_at = current_timestamp where id = :id",
                 Map.of("id", bookId, "author_id", authorId));
     }
 
@@ -51,13 +129,104 @@ public class BookDaoJdbc implements BookDao {
                 Map.of("book_id", bookId, "genre_id", genreId));
     }
 
+    @Override
+    public void createBookGenreLinks(long bookId, Collection<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.batchUpdate("insert into books_genres (book_id, genre_id) values (:book_id, :genre_id)",
+                genreIds.stream()
+                        .map(genreId -> new MapSqlParameterSource()
+                                .addValue("book_id", bookId)
+                                .addValue("genre_id", genreId))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
+    @Override
+    public void createBookGenreLinksIfAbsent(Collection<BookGenreRelation> relations) {
+        if (relations.isEmpty()) {
+            return;
+        }
+        String sql = dialect() == SqlDialect.H2
+                ? "insert into books_genres (book_id, genre_id) select :book_id, :genre_id from dual where not exists " +
+                        "(select 1 from books_genres where book_id = :book_id and genre_id = :genre_id)"
+                : "insert into books_genres (book_id, genre_id) values (:book_id, :genre_id) on conflict do nothing";
+        namedParameterJdbcOperations.batchUpdate(sql, relations.stream()
+                .map(relation -> new MapSqlParameterSource()
+                        .addValue("book_id", relation.getBookId())
+                        .addValue("genre_id", relation.getGenreId()))
+                .toArray(SqlParameterSource[]::new));
+    }
+
     @Override
     public Book getById(long id) {
         Map<String, Object> params = Collections.singletonMap("id", id);
         return namedParameterJdbcOperations.queryForObject(
                 "select books.id, books.name, authors.id, authors.initials, authors.lastname from books join authors" +
                         " on authors.id = books.author_id where books.id = :id",
-                params, bookMapper);
+                params, new BookMapper());
+    }
+
+    @Override
+    public Book getByIdWithGenres(long id) {
+        return DataAccessUtils.requiredSingleResult(queryWithGenres("where books.id = :id", Map.of("id", id)));
+    }
+
+    @Override
+    public List<Book> getByIdsWithGenres(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return queryWithGenres("where books.id in (:ids)", Map.of("ids", ids));
+    }
+
+    @Override
+    public List<Book> getByAuthorId(long authorId) {
+        return queryWithGenres("where books.author_id = :author_id", Map.of("author_id", authorId));
+    }
+
+    @Override
+    public List<Book> getByAuthorLastname(String lastname) {
+        return queryWithGenres("where authors.lastname = :lastname", Map.of("lastname", lastname));
+    }
+
+    @Override
+    public List<Book> getByGenres(Collection<String> genreNames, boolean matchAll) {
+        if (genreNames.isEmpty()) {
+            return List.of();
+        }
+        Set<String> names = new HashSet<>(genreNames);
+        String condition = "where books.id in (" + BOOK_IDS_BY_GENRE_NAMES + ":names)" +
+                (matchAll ? " group by books_genres.book_id having count(distinct genres.id) = :count)" : ")");
+        return queryWithGenres(condition, Map.of("names", names, "count", names.size()));
+    }
+
+    @Override
+    public List<Book> getByGenreQuery(GenreQuery query) {
+        Map<String, Object> params = new HashMap<>();
+        return queryWithGenres(genreQueryCondition(query, params), params);
+    }
+
+    @Override
+    public long countByGenreQuery(GenreQuery query) {
+        Map<String, Object> params = new HashMap<>();
+        Long count = namedParameterJdbcOperations.queryForObject(
+                "select count(*) from books " + genreQueryCondition(query, params), params, Long.class);
+        return nonNull(count) ? count : 0;
+    }
+
+    private static String genreQueryCondition(GenreQuery query, Map<String, Object> params) {
+        List<String> conditions = new ArrayList<>();
+        for (Set<String> group : query.getRequired()) {
+            String name = "required" + params.size();
+            params.put(name, group);
+            conditions.add("books.id in (" + BOOK_IDS_BY_GENRE_NAMES + ":" + name + "))");
+        }
+        if (!query.getExcluded().isEmpty()) {
+            params.put("excluded", query.getExcluded());
+            conditions.add("books.id not in (" + BOOK_IDS_BY_GENRE_NAMES + ":excluded))");
+        }
+        return "where " + String.join(" and ", conditions);
     }
 
     public List<BookGenreRelation> getBookGenreRelations(long id) {
@@ -68,6 +237,18 @@ public class BookDaoJdbc implements BookDao {
                         .build());
     }
 
+    @Override
+    public List<BookGenreRelation> getBookGenreRelations(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcOperations.query("select book_id, genre_id from books_genres where book_id in (:ids)",
+                Map.of("ids", bookIds), (rs, i) -> BookGenreRelation.builder()
+                        .bookId(rs.getLong(1))
+                        .genreId(rs.getLong(2))
+                        .build());
+    }
+
     public List<BookGenreRelation> getBookGenreRelations() {
         return namedParameterJdbcOperations.query("select book_id, genre_id from books_genres",
                 (rs, i) -> BookGenreRelation.builder()
@@ -79,20 +260,156 @@ public class BookDaoJdbc implements BookDao {
     @Override
     public List<Book> getAll() {
         return namedParameterJdbcOperations.query("select books.id, books.name, authors.id, authors.initials, authors.lastname from books join authors " +
-                                        "on authors.id = books.author_id", bookMapper);
+                                        "on authors.id = books.author_id", new BookMapper());
+    }
+
+    @Override
+    public void streamAll(Consumer<Book> consumer) {
+        stream("", new Object[0], consumer);
+    }
+
+    @Override
+    public void streamRange(long fromId, long toId, Consumer<Book> consumer) {
+        stream("where books.id between ? and ? ", new Object[]{fromId, toId}, consumer);
+    }
+
+    @Override
+    public void streamChangedSince(Instant since, Consumer<Book> consumer) {
+        stream("where books.changed_at >= ? ", new Object[]{since.atOffset(ZoneOffset.UTC)}, consumer);
+    }
+
+    @Override
+    public void markChanged(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.update("update books set changed_at = current_timestamp where id in (:ids)",
+                Map.of("ids", bookIds));
+    }
+
+    @Override
+    public List<Long> getIds() {
+        return namedParameterJdbcOperations.queryForList("select id from books", Map.of(), Long.class);
+    }
+
+    @Override
+    public Instant currentTimestamp() {
+        return Objects.requireNonNull(namedParameterJdbcOperations.queryForObject("select current_timestamp",
+                Map.of(), OffsetDateTime.class)).toInstant();
+    }
+
+    @Override
+    public IdRange getIdRange() {
+        return namedParameterJdbcOperations.queryForObject("select min(id), max(id) from books", Map.of(),
+                (rs, i) -> IdRange.builder()
+                        .minId(rs.getLong(1))
+                        .maxId(rs.getLong(2))
+                        .build());
+    }
+
+    @Override
+    public long count() {
+        Long count = namedParameterJdbcOperations.queryForObject("select count(*) from books", Map.of(), Long.class);
+        return nonNull(count) ? count : 0;
+    }
+
+    @Override
+    public long countBookGenreLinks() {
+        Long count = namedParameterJdbcOperations.queryForObject("select count(*) from books_genres", Map.of(),
+                Long.class);
+        return nonNull(count) ? count : 0;
+    }
+
+    private void stream(String condition, Object[] args, Consumer<Book> consumer) {
+        int fetchSize = libraryProperties.getBooks().getFetchSize();
+        var handler = new BookStreamHandler(consumer, fetchSize);
+        namedParameterJdbcOperations.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(BOOK_WITH_GENRES_SELECT + condition + "order by books.id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, handler);
+        handler.flush();
+    }
+
+    private List<Book> queryWithGenres(String condition, Map<String, ?> params) {
+        List<Book> books = new ArrayList<>();
+        var handler = new BookStreamHandler(books::add, 0);
+        namedParameterJdbcOperations.query(BOOK_WITH_GENRES_SELECT + condition + " order by books.id", params, handler);
+        handler.flush();
+        return books;
+    }
+
+    @Override
+    public List<Book> getPageAfter(long afterId, int limit) {
+        return namedParameterJdbcOperations.query("select books.id, books.name, authors.id, authors.initials, " +
+                        "authors.lastname from books left join authors on authors.id = books.author_id " +
+                        "where books.id > :id order by books.id limit :limit",
+                Map.of("id", afterId, "limit", limit), new BookMapper());
+    }
+
+    @Override
+    public List<Book> getPageBefore(long beforeId, int limit) {
+        List<Book> books = namedParameterJdbcOperations.query("select books.id, books.name, authors.id, " +
+                        "authors.initials, authors.lastname from books left join authors on authors.id = books.author_id " +
+                        "where books.id < :id order by books.id desc limit :limit",
+                Map.of("id", beforeId, "limit", limit), new BookMapper());
+        Collections.reverse(books);
+        return books;
     }
 
     @Override
     public void updateById(Book newBook) {
-        namedParameterJdbcOperations.update("update books set name = :name where id = :id",
+        namedParameterJdbcOperations.update("update books set name = :name, changed_at = current_timestamp " +
+                        "where id = :id",
                 Map.of("id", newBook.getId(), "name", newBook.getName()));
     }
 
+    @Override
+    public void updateAll(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.batchUpdate("update books set name = :name, author_id = :author_id, " +
+                        "changed_at = current_timestamp where id = :id",
+                books.stream()
+                        .map(book -> new MapSqlParameterSource()
+                                .addValue("id", book.getId())
+                                .addValue("name", book.getName())
+                                .addValue("author_id", authorId(book)))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
     public void deleteBookGenreLink(long bookId, long genreId) {
         namedParameterJdbcOperations.update("delete from books_genres where book_id = :book_id and genre_id = :genre_id",
                 Map.of("book_id", bookId, "genre_id", genreId));
     }
 
+    @Override
+    public void deleteBookGenreLinks(long bookId, Collection<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.update("delete from books_genres where book_id = :book_id and genre_id in (:genre_ids)",
+                Map.of("book_id", bookId, "genre_ids", genreIds));
+    }
+
+    @Override
+    public void deleteBookGenreLinks(Collection<BookGenreRelation> relations) {
+        if (relations.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.batchUpdate("delete from books_genres where book_id = :book_id and genre_id = :genre_id",
+                relations.stream()
+                        .map(relation -> new MapSqlParameterSource()
+                                .addValue("book_id", relation.getBookId())
+                                .addValue("genre_id", relation.getGenreId()))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
     @Override
     public void delete(long id) {
         deleteBookGenreLinks(id);
@@ -100,23 +417,135 @@ public class BookDaoJdbc implements BookDao {
                 Map.of("book_id", id));
     }
 
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcOperations.update("delete from books_genres where book_id in (:book_ids)",
+                Map.of("book_ids", ids));
+        namedParameterJdbcOperations.update("delete from books where id in (:book_ids)",
+                Map.of("book_ids", ids));
+    }
+
     public void deleteBookGenreLinks(long bookId) {
         namedParameterJdbcOperations.update("delete from books_genres where book_id = :book_id",
                 Map.of("book_id", bookId));
     }
 
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(namedParameterJdbcOperations);
+        }
+        return dialect;
+    }
+
+    private static Long authorId(Book book) {
+        return nonNull(book.getAuthor()) && book.getAuthor().getId() != 0 ? book.getAuthor().getId() : null;
+    }
+
+    private record BookKey(String name, Long authorId) {
+    }
+
+    /**
+     * Maps the rows of one query. Authors are interned by id and their initials by value until
+     * {@link #clear()}, so a listing holds one {@link Author} per author rather than per row, and
+     * the author columns are only read the first time an author is seen.
+     */
     private static class BookMapper implements RowMapper<Book> {
+
+        private final LongObjectMap<Author> authors = new LongObjectMap<>(64);
+
+        private final Map<String, String> initials = new HashMap<>();
+
         @Override
         public Book mapRow(ResultSet rs, int rowNum) throws SQLException {
+            long authorId = rs.getLong(3);
+            boolean hasAuthor = !rs.wasNull();
             return Book.builder()
                     .id(rs.getLong(1))
                     .name(rs.getString(2))
-                    .author(Author.builder()
-                            .id(rs.getLong(3))
-                            .initials(rs.getString(4))
-                            .lastName(rs.getString(5))
-                            .build())
+                    .author(hasAuthor ? author(authorId, rs) : null)
                     .build();
         }
+
+        private Author author(long id, ResultSet rs) throws SQLException {
+            Author author = authors.get(id);
+            if (author == null) {
+                String authorInitials = rs.getString(4);
+                author = Author.builder()
+                        .id(id)
+                        .initials(authorInitials == null ? null
+                                : initials.computeIfAbsent(authorInitials, Function.identity()))
+                        .lastName(rs.getString(5))
+                        .build();
+                authors.put(id, author);
+            }
+            return author;
+        }
+
+        void clear() {
+            authors.clear();
+            initials.clear();
+        }
+    }
+
+    /**
+     * Groups the rows of each book. A streamed cursor may pass every author of the catalog, so
+     * with a positive {@code internWindow} the interned authors and genres are dropped after that
+     * many books; a list query keeps them for the whole result, which holds the books anyway.
+     */
+    private static class BookStreamHandler implements RowCallbackHandler {
+
+        private final Consumer<Book> consumer;
+
+        private final int internWindow;
+
+        private final BookMapper bookMapper = new BookMapper();
+
+        private final LongObjectMap<Genre> genres = new LongObjectMap<>(64);
+
+        private Book current;
+
+        private int booksInWindow;
+
+        BookStreamHandler(Consumer<Book> consumer, int internWindow) {
+            this.consumer = consumer;
+            this.internWindow = internWindow;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long bookId = rs.getLong(1);
+            if (current == null || current.getId() != bookId) {
+                flush();
+                current = bookMapper.mapRow(rs, 0);
+                current.setGenres(new ArrayList<>());
+            }
+            long genreId = rs.getLong(6);
+            if (!rs.wasNull()) {
+                Genre genre = genres.get(genreId);
+                if (genre == null) {
+                    genre = Genre.builder()
+                            .id(genreId)
+                            .name(rs.getString(7))
+                            .build();
+                    genres.put(genreId, genre);
+                }
+                current.getGenres().add(genre);
+            }
+        }
+
+        void flush() {
+            if (current != null) {
+                consumer.accept(current);
+                current = null;
+                if (internWindow > 0 && ++booksInWindow == internWindow) {
+                    bookMapper.clear();
+                    genres.clear();
+                    booksInWindow = 0;
+                }
+            }
+        }
     }
 }
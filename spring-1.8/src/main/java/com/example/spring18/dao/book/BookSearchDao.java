@@ -0,0 +1,8 @@
+package com.example.spring18.dao.book;
+
+import java.util.List;
+
+public interface BookSearchDao {
+
+     List<Long> search(String query, int limit);
+}
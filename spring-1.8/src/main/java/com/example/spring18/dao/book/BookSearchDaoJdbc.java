@@ -0,0 +1,93 @@
+package com.example.spring18.dao.book;
+
+import com.example.spring18.dao.util.SqlDialect;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queries the full-text indexes created by {@code schema-postgresql.sql} and {@code schema-h2.sql}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookSearchDaoJdbc implements BookSearchDao {
+
+    private static final int NAME_MATCH_SCORE = 2;
+
+    private static final int AUTHOR_MATCH_SCORE = 1;
+
+    private final NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    private volatile SqlDialect dialect;
+
+    @Override
+    public List<Long> search(String query, int limit) {
+        if (dialect() == SqlDialect.H2) {
+            return searchH2(query, limit);
+        }
+        return namedParameterJdbcOperations.queryForList("select books.id from books " +
+                        "left join authors on authors.id = books.author_id, plainto_tsquery('simple', :query) query " +
+                        "where books.search_vector @@ query or books.name % :query or authors.lastname % :query " +
+                        "order by ts_rank(books.search_vector, query) + similarity(books.name, :query) " +
+                        "+ coalesce(similarity(authors.lastname, :query), 0) desc, books.id limit :limit",
+                Map.of("query", query, "limit", limit), Long.class);
+    }
+
+    private List<Long> searchH2(String query, int limit) {
+        Map<Long, Integer> scores = new HashMap<>();
+        for (String term : terms(query)) {
+            List<Long> authorIds = new ArrayList<>();
+            namedParameterJdbcOperations.query("select \"TABLE\", KEYS from FT_SEARCH_DATA(:term, 0, 0)",
+                    Map.of("term", term), rs -> {
+                        long id = firstKey(rs.getArray(2));
+                        if ("BOOKS".equals(rs.getString(1))) {
+                            scores.merge(id, NAME_MATCH_SCORE, Integer::sum);
+                        } else {
+                            authorIds.add(id);
+                        }
+                    });
+            if (!authorIds.isEmpty()) {
+                namedParameterJdbcOperations.queryForList("select id from books where author_id in (:ids)",
+                                Map.of("ids", authorIds), Long.class)
+                        .forEach(id -> scores.merge(id, AUTHOR_MATCH_SCORE, Integer::sum));
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static Set<String> terms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : query.split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static long firstKey(Array keys) throws SQLException {
+        return Long.parseLong(String.valueOf(((Object[]) keys.getArray())[0]));
+    }
+
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(namedParameterJdbcOperations);
+        }
+        return dialect;
+    }
+}
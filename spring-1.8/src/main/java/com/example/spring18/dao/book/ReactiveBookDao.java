@@ -0,0 +1,30 @@
+package com.example.spring18.dao.book;
+
+import com.example.spring18.domain.Book;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReactiveBookDao {
+
+     Mono<Long> save(Book book);
+
+     Mono<Void> updateAuthorId(long bookId, Long authorId);
+
+     Mono<Void> createBookGenreLinks(long bookId, Collection<Long> genreIds);
+
+     Mono<Book> getByIdWithGenres(long bookId);
+
+     Flux<Book> getByAuthorId(long authorId);
+
+     Flux<Book> streamAll();
+
+     Flux<Book> streamRange(long fromId, long toId);
+
+     Mono<Void> updateById(Book newBook);
+
+     Mono<Void> deleteBookGenreLinks(long bookId);
+
+     Mono<Void> delete(long id);
+}
@@ -0,0 +1,175 @@
+package com.example.spring18.dao.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.util.R2dbcBatch;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.nonNull;
+
+@Repository
+@Profile("r2dbc")
+@RequiredArgsConstructor
+public class ReactiveBookDaoR2dbc implements ReactiveBookDao {
+
+    private static final String BOOK_WITH_GENRES_SELECT = "select books.id, books.name, authors.id, " +
+            "authors.initials, authors.lastname, genres.id, genres.name from books " +
+            "left join authors on authors.id = books.author_id " +
+            "left join books_genres on books_genres.book_id = books.id " +
+            "left join genres on genres.id = books_genres.genre_id ";
+
+    private final DatabaseClient databaseClient;
+
+    private final LibraryProperties libraryProperties;
+
+    @Override
+    public Mono<Long> save(Book book) {
+        var spec = databaseClient.sql("insert into books (name, author_id) values (:name, :author_id)")
+                .bind("name", book.getName());
+        return bindAuthorId(spec, authorId(book))
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> ((Number) row.get(0)).longValue())
+                .one();
+    }
+
+    @Override
+    public Mono<Void> updateAuthorId(long bookId, Long authorId) {
+        var spec = databaseClient.sql("update books set author_id = :author_id, changed_at = current_timestamp " +
+                        "where id = :id")
+                .bind("id", bookId);
+        return bindAuthorId(spec, authorId)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> createBookGenreLinks(long bookId, Collection<Long> genreIds) {
+        return R2dbcBatch.execute(databaseClient, "insert into books_genres (book_id, genre_id) values ($1, $2)",
+                        genreIds.stream()
+                                .map(genreId -> new Object[]{bookId, genreId})
+                                .toList())
+                .then();
+    }
+
+    @Override
+    public Mono<Book> getByIdWithGenres(long bookId) {
+        return queryWithGenres("where books.id = :id", Map.of("id", bookId)).singleOrEmpty();
+    }
+
+    @Override
+    public Flux<Book> getByAuthorId(long authorId) {
+        return queryWithGenres("where books.author_id = :author_id", Map.of("author_id", authorId));
+    }
+
+    @Override
+    public Flux<Book> streamAll() {
+        return queryWithGenres("", Map.of());
+    }
+
+    @Override
+    public Flux<Book> streamRange(long fromId, long toId) {
+        return queryWithGenres("where books.id between :from_id and :to_id", Map.of("from_id", fromId, "to_id", toId));
+    }
+
+    @Override
+    public Mono<Void> updateById(Book newBook) {
+        return databaseClient.sql("update books set name = :name, changed_at = current_timestamp where id = :id")
+                .bind("id", newBook.getId())
+                .bind("name", newBook.getName())
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteBookGenreLinks(long bookId) {
+        return databaseClient.sql("delete from books_genres where book_id = :book_id")
+                .bind("book_id", bookId)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> delete(long id) {
+        return deleteBookGenreLinks(id)
+                .then(databaseClient.sql("delete from books where id = :book_id")
+                        .bind("book_id", id)
+                        .then());
+    }
+
+    /**
+     * Rows of one book are adjacent because of the ordering, so a book is complete when the id changes.
+     * Only those rows are buffered; downstream demand is passed to the driver as fetched rows.
+     */
+    private Flux<Book> queryWithGenres(String condition, Map<String, Object> params) {
+        return Flux.defer(() -> {
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(BOOK_WITH_GENRES_SELECT + condition +
+                            " order by books.id")
+                    .filter(statement -> statement.fetchSize(libraryProperties.getBooks().getFetchSize()));
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                spec = spec.bind(param.getKey(), param.getValue());
+            }
+            Map<Long, Genre> genres = new HashMap<>();
+            return spec.map(BookRow::of)
+                    .all()
+                    .bufferUntilChanged(BookRow::bookId)
+                    .map(rows -> toBook(rows, genres));
+        });
+    }
+
+    private static Book toBook(List<BookRow> rows, Map<Long, Genre> genres) {
+        BookRow first = rows.get(0);
+        List<Genre> bookGenres = new ArrayList<>(rows.size());
+        for (BookRow row : rows) {
+            if (nonNull(row.genreId())) {
+                bookGenres.add(genres.computeIfAbsent(row.genreId(), id -> Genre.builder()
+                        .id(id)
+                        .name(row.genreName())
+                        .build()));
+            }
+        }
+        return Book.builder()
+                .id(first.bookId())
+                .name(first.name())
+                .author(nonNull(first.authorId()) ? Author.builder()
+                        .id(first.authorId())
+                        .initials(first.initials())
+                        .lastName(first.lastname())
+                        .build() : null)
+                .genres(bookGenres)
+                .build();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAuthorId(DatabaseClient.GenericExecuteSpec spec,
+                                                                  Long authorId) {
+        return nonNull(authorId) ? spec.bind("author_id", authorId) : spec.bindNull("author_id", Long.class);
+    }
+
+    private static Long authorId(Book book) {
+        return nonNull(book.getAuthor()) && book.getAuthor().getId() != 0 ? book.getAuthor().getId() : null;
+    }
+
+    private record BookRow(long bookId, String name, Long authorId, String initials, String lastname,
+                           Long genreId, String genreName) {
+
+        static BookRow of(Readable row) {
+            return new BookRow(((Number) row.get(0)).longValue(), row.get(1, String.class), nullableLong(row, 2),
+                    row.get(3, String.class), row.get(4, String.class), nullableLong(row, 5), row.get(6, String.class));
+        }
+
+        private static Long nullableLong(Readable row, int index) {
+            Number value = (Number) row.get(index);
+            return nonNull(value) ? value.longValue() : null;
+        }
+    }
+}
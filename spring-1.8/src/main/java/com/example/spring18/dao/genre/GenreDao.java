@@ -2,18 +2,25 @@ package com.example.spring18.dao.genre;
 
 import com.example.spring18.domain.Genre;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface GenreDao {
 
      long save(Genre genre);
 
+     void saveAllIfAbsent(Collection<String> names);
+
      Genre getById(long id);
 
      Genre getByName(String name);
 
+     List<Genre> getByNames(Collection<String> names);
+
      List<Genre> getGenresByBookId(long bookId);
 
+     List<Genre> getByIds(Collection<Long> ids);
+
      List<Genre> getAll();
 
      void updateById(Genre newGenre);
@@ -1,16 +1,19 @@
 package com.example.spring18.dao.genre;
 
+import com.example.spring18.dao.util.SqlDialect;
 import com.example.spring18.domain.Genre;
 import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +27,8 @@ public class GenreDaoJdbc implements GenreDao {
 
     private final GenreMapper genreMapper = new GenreMapper();
 
+    private volatile SqlDialect dialect;
+
     @Override
     public long save(Genre genre) {
         MapSqlParameterSource params = new MapSqlParameterSource();
@@ -33,6 +38,19 @@ public class GenreDaoJdbc implements GenreDao {
         return Objects.requireNonNull(kh.getKey()).longValue();
     }
 
+    @Override
+    public void saveAllIfAbsent(Collection<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        String sql = dialect() == SqlDialect.H2
+                ? "merge into genres (name) key (name) values (:name)"
+                : "insert into genres (name) values (:name) on conflict (name) do nothing";
+        namedParameterJdbcOperations.batchUpdate(sql, names.stream()
+                .map(name -> new MapSqlParameterSource("name", name))
+                .toArray(SqlParameterSource[]::new));
+    }
+
     @Override
     public Genre getById(long id) {
         Map<String, Object> params = Collections.singletonMap("id", id);
@@ -47,6 +65,15 @@ public class GenreDaoJdbc implements GenreDao {
                 "select * from genres where name = :name", params, genreMapper);
     }
 
+    @Override
+    public List<Genre> getByNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcOperations.query("select * from genres where name in (:names)",
+                Map.of("names", names), genreMapper);
+    }
+
     @Override
     public List<Genre> getGenresByBookId(long bookId) {
         Map<String, Object> params = Collections.singletonMap("book_id", bookId);
@@ -55,6 +82,15 @@ public class GenreDaoJdbc implements GenreDao {
                 params, new GenreMapper());
     }
 
+    @Override
+    public List<Genre> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcOperations.query("select * from genres where id in (:ids)", Map.of("ids", ids),
+                genreMapper);
+    }
+
     @Override
     public List<Genre> getAll() {
         return namedParameterJdbcOperations.query("select * from genres", genreMapper);
@@ -71,6 +107,13 @@ public class GenreDaoJdbc implements GenreDao {
         namedParameterJdbcOperations.update("delete from genres where id = :id", Map.of("id", id));
     }
 
+    private SqlDialect dialect() {
+        if (dialect == null) {
+            dialect = SqlDialect.of(namedParameterJdbcOperations);
+        }
+        return dialect;
+    }
+
     private static class GenreMapper implements RowMapper<Genre> {
 
         @Override
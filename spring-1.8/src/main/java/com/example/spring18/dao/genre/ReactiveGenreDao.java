@@ -0,0 +1,27 @@
+package com.example.spring18.dao.genre;
+
+import com.example.spring18.domain.Genre;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReactiveGenreDao {
+
+     /**
+      * @return number of genres actually inserted
+      */
+     Mono<Long> saveAllIfAbsent(Collection<String> names);
+
+     Mono<Genre> getById(long id);
+
+     Flux<Genre> getByNames(Collection<String> names);
+
+     Flux<Genre> getGenresByBookId(long bookId);
+
+     Flux<Genre> getAll();
+
+     Mono<Void> updateById(Genre newGenre);
+
+     Mono<Void> delete(long id);
+}
@@ -0,0 +1,91 @@
+package com.example.spring18.dao.genre;
+
+import com.example.spring18.dao.util.R2dbcBatch;
+import com.example.spring18.dao.util.SqlDialect;
+import com.example.spring18.domain.Genre;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Repository
+@Profile("r2dbc")
+@RequiredArgsConstructor
+public class ReactiveGenreDaoR2dbc implements ReactiveGenreDao {
+
+    private final DatabaseClient databaseClient;
+
+    private final SqlDialect dialect;
+
+    @Override
+    public Mono<Long> saveAllIfAbsent(Collection<String> names) {
+        String sql = dialect == SqlDialect.H2
+                ? "insert into genres (name) select $1 from dual where not exists (select 1 from genres where name = $1)"
+                : "insert into genres (name) values ($1) on conflict (name) do nothing";
+        return R2dbcBatch.execute(databaseClient, sql, names.stream()
+                .map(name -> new Object[]{name})
+                .toList());
+    }
+
+    @Override
+    public Mono<Genre> getById(long id) {
+        return databaseClient.sql("select id, name from genres where id = :id")
+                .bind("id", id)
+                .map(ReactiveGenreDaoR2dbc::mapGenre)
+                .one();
+    }
+
+    @Override
+    public Flux<Genre> getByNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql("select id, name from genres where name in (:names)")
+                .bind("names", names)
+                .map(ReactiveGenreDaoR2dbc::mapGenre)
+                .all();
+    }
+
+    @Override
+    public Flux<Genre> getGenresByBookId(long bookId) {
+        return databaseClient.sql("select id, name from genres " +
+                        "where id in (select genre_id from books_genres where book_id = :book_id)")
+                .bind("book_id", bookId)
+                .map(ReactiveGenreDaoR2dbc::mapGenre)
+                .all();
+    }
+
+    @Override
+    public Flux<Genre> getAll() {
+        return databaseClient.sql("select id, name from genres")
+                .map(ReactiveGenreDaoR2dbc::mapGenre)
+                .all();
+    }
+
+    @Override
+    public Mono<Void> updateById(Genre newGenre) {
+        return databaseClient.sql("update genres set name = :name where id = :id")
+                .bind("id", newGenre.getId())
+                .bind("name", newGenre.getName())
+                .then();
+    }
+
+    @Override
+    public Mono<Void> delete(long id) {
+        return databaseClient.sql("delete from genres where id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    private static Genre mapGenre(Readable row) {
+        return Genre.builder()
+                .id(((Number) row.get(0)).longValue())
+                .name(row.get(1, String.class))
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.spring18.dao.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static java.util.Objects.isNull;
+
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    public ProfilingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profilingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profilingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection profilingConnection(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return profilingStatement(statement, method.getReturnType(), sql);
+            }
+            return result;
+        });
+    }
+
+    private static Object profilingStatement(Statement statement, Class<?> statementType, String preparedSql) {
+        return proxy(statementType, (proxy, method, args) -> {
+            SqlProfile profile = SqlProfiler.current();
+            if (isNull(profile) || !method.getName().startsWith("execute")) {
+                Object result = invoke(statement, method, args);
+                return method.getName().equals("getResultSet") ? profilingResultSet(result) : result;
+            }
+            String sql = isNull(preparedSql) && args != null && args.length > 0 ? (String) args[0] : preparedSql;
+            long start = System.nanoTime();
+            Object result = invoke(statement, method, args);
+            profile.recordStatement(String.valueOf(sql), System.nanoTime() - start);
+            return profilingResultSet(result);
+        });
+    }
+
+    private static Object profilingResultSet(Object result) {
+        if (!(result instanceof ResultSet resultSet)) {
+            return result;
+        }
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            SqlProfile profile = SqlProfiler.current();
+            if (isNull(profile) || !method.getName().equals("next")) {
+                return invoke(resultSet, method, args);
+            }
+            long start = System.nanoTime();
+            Object hasNext = invoke(resultSet, method, args);
+            profile.recordFetch(System.nanoTime() - start);
+            if (Boolean.TRUE.equals(hasNext)) {
+                profile.recordRow();
+            }
+            return hasNext;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
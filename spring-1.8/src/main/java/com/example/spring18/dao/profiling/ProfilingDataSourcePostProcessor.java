@@ -0,0 +1,20 @@
+package com.example.spring18.dao.profiling;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+@ConditionalOnProperty(prefix = "library.profiling", name = "enabled", havingValue = "true")
+public class ProfilingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)) {
+            return new ProfilingDataSource(dataSource);
+        }
+        return bean;
+    }
+}
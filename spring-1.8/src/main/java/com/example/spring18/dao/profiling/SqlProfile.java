@@ -0,0 +1,62 @@
+package com.example.spring18.dao.profiling;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class SqlProfile {
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Integer> statementsByShape = new LinkedHashMap<>();
+
+    private int statements;
+
+    private long rows;
+
+    private long databaseNanos;
+
+    void recordStatement(String sql, long nanos) {
+        statements++;
+        databaseNanos += nanos;
+        statementsByShape.merge(shape(sql), 1, Integer::sum);
+    }
+
+    void recordRow() {
+        rows++;
+    }
+
+    void recordFetch(long nanos) {
+        databaseNanos += nanos;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getDatabaseNanos() {
+        return databaseNanos;
+    }
+
+    public Map<String, Integer> getStatementsByShape() {
+        return statementsByShape;
+    }
+
+    public Map<String, Integer> getRepeatedShapes(int threshold) {
+        return statementsByShape.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    static String shape(String sql) {
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ").toLowerCase();
+        return PLACEHOLDER_LIST.matcher(normalized).replaceAll("?");
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.spring18.dao.profiling;
+
+public final class SqlProfiler {
+
+    private static final ThreadLocal<SqlProfile> CURRENT = new ThreadLocal<>();
+
+    private SqlProfiler() {
+    }
+
+    public static SqlProfile profile(Runnable action) {
+        try (Scope scope = start()) {
+            action.run();
+            return scope.profile();
+        }
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get(), new SqlProfile());
+        CURRENT.set(scope.profile());
+        return scope;
+    }
+
+    static SqlProfile current() {
+        return CURRENT.get();
+    }
+
+    public record Scope(SqlProfile outer, SqlProfile profile) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+        }
+    }
+}
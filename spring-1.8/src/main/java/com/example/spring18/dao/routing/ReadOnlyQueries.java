@@ -0,0 +1,55 @@
+package com.example.spring18.dao.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the DAO read currently running on this thread, so that a connection taken outside
+ * a transaction can go to a replica.
+ */
+public final class ReadOnlyQueries {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private ReadOnlyQueries() {
+    }
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() && !PRIMARY_ONLY.get();
+    }
+
+    /**
+     * @return the previous mark, to be handed back to {@link #exit(boolean)}
+     */
+    public static boolean enter() {
+        boolean previous = READ_ONLY.get();
+        READ_ONLY.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void exit(boolean previous) {
+        if (previous) {
+            READ_ONLY.set(Boolean.TRUE);
+        } else {
+            READ_ONLY.remove();
+        }
+    }
+
+    /**
+     * Runs the reads against the primary even outside a transaction. Meant for results that
+     * outlive the call, like cache entries: read from a lagging replica right after a write,
+     * they would stay stale until they expire.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (!previous) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.spring18.dao.routing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Treats the getters, finders, streams, searches and counts of the JDBC DAOs as read-only queries.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "library.replicas", name = "enabled", havingValue = "true")
+public class ReadOnlyQueryAspect {
+
+    @Around("within(com.example.spring18.dao..*Jdbc) && @within(org.springframework.stereotype.Repository) " +
+            "&& (execution(* get*(..)) || execution(* stream*(..)) || execution(* search*(..)) " +
+            "|| execution(* count*(..)))")
+    public Object markReadOnly(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadOnlyQueries.enter();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadOnlyQueries.exit(previous);
+        }
+    }
+}
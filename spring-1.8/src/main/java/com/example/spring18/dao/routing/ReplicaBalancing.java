@@ -0,0 +1,8 @@
+package com.example.spring18.dao.routing;
+
+public enum ReplicaBalancing {
+
+    ROUND_ROBIN,
+
+    LEAST_OUTSTANDING
+}
@@ -0,0 +1,117 @@
+package com.example.spring18.dao.routing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sends read-only transactions and DAO reads outside a transaction to the replicas, everything
+ * else to the primary. A read-write transaction keeps its primary connection for the reads it
+ * makes too, so it always sees its own writes.
+ * <p>
+ * The decision needs the transaction to be already synchronized, which is not the case yet when
+ * the transaction manager opens its connection: wrap this data source into
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the connection is
+ * taken at the first statement.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final List<DataSource> replicas;
+
+    private final ReplicaBalancing balancing;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicIntegerArray outstanding;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaBalancing balancing) {
+        super(primary);
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+        this.outstanding = new AtomicIntegerArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return super.getConnection();
+        }
+        int replica = chooseReplica();
+        outstanding.incrementAndGet(replica);
+        try {
+            return releasingConnection(replicas.get(replica).getConnection(), replica);
+        } catch (SQLException | RuntimeException e) {
+            outstanding.decrementAndGet(replica);
+            throw e;
+        }
+    }
+
+    /**
+     * @return connections taken from the replica and not closed yet
+     */
+    public int getOutstanding(int replica) {
+        return outstanding.get(replica);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private boolean routeToReplica() {
+        if (replicas.isEmpty()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return ReadOnlyQueries.isReadOnly();
+    }
+
+    private int chooseReplica() {
+        if (balancing == ReplicaBalancing.ROUND_ROBIN) {
+            return Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        }
+        // starts the scan at a rotating offset, so that equally loaded replicas still take turns
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        int least = start;
+        for (int i = 1; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (outstanding.get(replica) < outstanding.get(least)) {
+                least = replica;
+            }
+        }
+        return least;
+    }
+
+    private Connection releasingConnection(Connection connection, int replica) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ReplicaRoutingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        outstanding.decrementAndGet(replica);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.spring18.dao.routing;
+
+import com.example.spring18.config.LibraryProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(prefix = "library.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingDataSourcePostProcessor implements BeanPostProcessor, DisposableBean {
+
+    private final ObjectProvider<LibraryProperties> libraryProperties;
+
+    private final List<ReplicaRoutingDataSource> routingDataSources = new ArrayList<>();
+
+    public ReplicaRoutingDataSourcePostProcessor(ObjectProvider<LibraryProperties> libraryProperties) {
+        this.libraryProperties = libraryProperties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof LazyConnectionDataSourceProxy)) {
+            LibraryProperties.Replicas properties = libraryProperties.getObject().getReplicas();
+            List<DataSource> replicas = new ArrayList<>();
+            for (LibraryProperties.Replica replica : properties.getDatasources()) {
+                replicas.add(replicaDataSource(replica, replicas.size()));
+            }
+            var routingDataSource = new ReplicaRoutingDataSource(dataSource, replicas, properties.getBalancing());
+            routingDataSources.add(routingDataSource);
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+        return bean;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (ReplicaRoutingDataSource routingDataSource : routingDataSources) {
+            routingDataSource.close();
+        }
+    }
+
+    private static DataSource replicaDataSource(LibraryProperties.Replica replica, int index) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl())
+                .username(replica.getUsername())
+                .password(replica.getPassword())
+                .build();
+        dataSource.setPoolName("replica-" + index);
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.spring18.dao.util;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class IdRange {
+
+    private long minId;
+
+    private long maxId;
+}
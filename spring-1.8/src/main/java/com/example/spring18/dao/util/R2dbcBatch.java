@@ -0,0 +1,41 @@
+package com.example.spring18.dao.util;
+
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Runs one statement with many parameter rows as a driver batch; {@link DatabaseClient} has no
+ * batch API for bound parameters. Parameters are positional ({@code $1, $2, ...}), which both the
+ * Postgres and the H2 drivers accept.
+ */
+public final class R2dbcBatch {
+
+    private R2dbcBatch() {
+    }
+
+    public static Mono<Long> execute(DatabaseClient databaseClient, String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int row = 0; row < rows.size(); row++) {
+                        if (row > 0) {
+                            statement.add();
+                        }
+                        Object[] values = rows.get(row);
+                        for (int i = 0; i < values.length; i++) {
+                            statement.bind(i, values[i]);
+                        }
+                    }
+                    return Flux.from(statement.execute())
+                            .concatMap(Result::getRowsUpdated);
+                })
+                .reduce(0L, Long::sum);
+    }
+}
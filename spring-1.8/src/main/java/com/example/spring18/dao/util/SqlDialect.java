@@ -0,0 +1,19 @@
+package com.example.spring18.dao.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import java.util.Objects;
+
+public enum SqlDialect {
+
+    POSTGRES,
+
+    H2;
+
+    public static SqlDialect of(NamedParameterJdbcOperations namedParameterJdbcOperations) {
+        String productName = namedParameterJdbcOperations.getJdbcOperations()
+                .execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        return "H2".equalsIgnoreCase(Objects.requireNonNull(productName)) ? H2 : POSTGRES;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.spring18.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BookChange {
+
+    private Type type;
+
+    /**
+     * Position of the change in its source, used to report failures.
+     */
+    private long line;
+
+    private Book book;
+
+    public enum Type {
+
+        ADD,
+
+        UPDATE,
+
+        DELETE
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.spring18.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BookPage {
+
+    private List<Book> books;
+
+    private Long previousCursor;
+
+    private Long nextCursor;
+}
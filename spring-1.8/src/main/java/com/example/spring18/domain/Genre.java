@@ -27,6 +27,6 @@ public class Genre {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return Objects.hashCode(name);
     }
 }
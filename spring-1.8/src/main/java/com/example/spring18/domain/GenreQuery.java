@@ -0,0 +1,65 @@
+package com.example.spring18.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Books having at least one genre of every {@code required} group and none of the {@code excluded}
+ * genres, e.g. {@code Adventure AND Romance OR Drama NOT Horror}.
+ */
+@Data
+@Builder
+public class GenreQuery {
+
+    private List<Set<String>> required;
+
+    @Builder.Default
+    private Set<String> excluded = Set.of();
+
+    /**
+     * Parses {@code AND}, {@code OR} and {@code NOT} separated genre names, {@code OR} binding tighter
+     * than {@code AND}. Words between operators make one genre name.
+     */
+    public static GenreQuery parse(String query) {
+        List<Set<String>> required = new ArrayList<>();
+        Set<String> excluded = new LinkedHashSet<>();
+        Set<String> group = new LinkedHashSet<>();
+        boolean excluding = false;
+        StringBuilder name = new StringBuilder();
+        for (String word : (query.trim() + " AND").split("\\s+")) {
+            String operator = word.toUpperCase();
+            if (!operator.equals("AND") && !operator.equals("OR") && !operator.equals("NOT")) {
+                name.append(name.isEmpty() ? "" : " ").append(word);
+                continue;
+            }
+            if (name.isEmpty()) {
+                if (operator.equals("NOT") && group.isEmpty() && !excluding) {
+                    excluding = true;
+                    continue;
+                }
+                throw new IllegalArgumentException("Missing genre before " + word + " in : " + query);
+            }
+            (excluding ? excluded : group).add(name.toString());
+            name.setLength(0);
+            if (!operator.equals("OR")) {
+                if (!excluding) {
+                    required.add(group);
+                }
+                group = new LinkedHashSet<>();
+                excluding = operator.equals("NOT");
+            }
+        }
+        if (required.isEmpty()) {
+            throw new IllegalArgumentException("Genre query needs at least one genre to include : " + query);
+        }
+        return GenreQuery.builder()
+                .required(required)
+                .excluded(excluded)
+                .build();
+    }
+}
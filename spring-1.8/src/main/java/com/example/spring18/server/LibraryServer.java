@@ -0,0 +1,169 @@
+package com.example.spring18.server;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.services.book.BookService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Serves many concurrent sessions from one JVM over TCP or a Unix-domain socket. Each session
+ * is a task on {@link SessionExecutors}, so on Java 21+ it runs on its own virtual thread and
+ * blocks on the socket and on the JDBC pool without holding a carrier thread. Without virtual
+ * threads there are only {@code platform-threads} to run sessions on, so sessions over that are
+ * rejected instead of waiting in the pool queue for a thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "library.server", name = "enabled", havingValue = "true")
+public class LibraryServer implements SmartLifecycle {
+
+    private final SessionCommands commands;
+
+    private final LibraryProperties.Server properties;
+
+    private final Semaphore sessions;
+
+    private final Set<SocketChannel> openChannels = ConcurrentHashMap.newKeySet();
+
+    private volatile ServerSocketChannel serverChannel;
+
+    private volatile ExecutorService executor;
+
+    public LibraryServer(BookService bookService, LibraryProperties properties) {
+        this.commands = new SessionCommands(bookService);
+        this.properties = properties.getServer();
+        this.sessions = new Semaphore(sessionLimit(this.properties));
+    }
+
+    private static int sessionLimit(LibraryProperties.Server properties) {
+        if (SessionExecutors.virtualThreadsAvailable()) {
+            return properties.getMaxSessions();
+        }
+        return Math.min(properties.getMaxSessions(), properties.getPlatformThreads());
+    }
+
+    @Override
+    public void start() {
+        try {
+            serverChannel = open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        executor = SessionExecutors.newSessionExecutor("library-session", properties.getPlatformThreads());
+        Thread acceptor = new Thread(this::acceptSessions, "library-server-acceptor");
+        acceptor.start();
+        log.info("Library server is listening on {} with {} threads, up to {} sessions", getLocalAddress(),
+                SessionExecutors.virtualThreadsAvailable() ? "virtual" : "platform", sessions.availablePermits());
+    }
+
+    @Override
+    public void stop() {
+        try {
+            serverChannel.close();
+            for (SocketChannel channel : openChannels) {
+                channel.close();
+            }
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+            if (nonNull(properties.getUnixSocket())) {
+                Files.deleteIfExists(properties.getUnixSocket());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return nonNull(serverChannel) && serverChannel.isOpen();
+    }
+
+    public SocketAddress getLocalAddress() {
+        try {
+            return serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ServerSocketChannel open() throws IOException {
+        if (nonNull(properties.getUnixSocket())) {
+            Files.deleteIfExists(properties.getUnixSocket());
+            return ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                    .bind(UnixDomainSocketAddress.of(properties.getUnixSocket()));
+        }
+        return ServerSocketChannel.open()
+                .bind(new InetSocketAddress(properties.getHost(), properties.getPort()), properties.getMaxSessions());
+    }
+
+    private void acceptSessions() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (!sessions.tryAcquire()) {
+                    reject(channel);
+                    continue;
+                }
+                openChannels.add(channel);
+                executor.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Can't accept session : {}", e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (var session = new SessionChannel(channel)) {
+            boolean open = true;
+            String line;
+            while (open && nonNull(line = session.readLine())) {
+                open = commands.execute(line, response -> writeLine(session, response));
+                session.flush();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // the client went away, nothing to answer to
+        } finally {
+            openChannels.remove(channel);
+            sessions.release();
+        }
+    }
+
+    private static void reject(SocketChannel channel) throws IOException {
+        try (var session = new SessionChannel(channel)) {
+            session.writeLine(SessionCommands.ERROR + " Too many sessions");
+            session.flush();
+        }
+    }
+
+    private static void writeLine(SessionChannel session, String line) {
+        try {
+            session.writeLine(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.spring18.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Line-oriented reads and writes straight on the socket channel. {@code Channels.newReader/newWriter}
+ * hold the channel's blocking lock monitor while blocked in I/O, which would pin a virtual thread to
+ * its carrier for the whole time the client is idle.
+ */
+class SessionChannel implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    private static final CharBuffer LINE_SEPARATOR = CharBuffer.wrap("\n");
+
+    private final ByteChannel channel;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+    private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    SessionChannel(ByteChannel channel) {
+        this.channel = channel;
+    }
+
+    String readLine() throws IOException {
+        line.reset();
+        while (true) {
+            while (input.hasRemaining()) {
+                byte next = input.get();
+                if (next == '\n') {
+                    return decodeLine();
+                }
+                if (line.size() == MAX_LINE_LENGTH) {
+                    throw new IOException("Request line is longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                line.write(next);
+            }
+            input.clear();
+            int read = channel.read(input);
+            input.flip();
+            if (read < 0) {
+                return line.size() > 0 ? decodeLine() : null;
+            }
+        }
+    }
+
+    void writeLine(String text) throws IOException {
+        encode(CharBuffer.wrap(text));
+        encode(LINE_SEPARATOR.duplicate());
+    }
+
+    void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String decodeLine() {
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, output, true);
+        while (result.isOverflow()) {
+            flush();
+            result = encoder.encode(chars, output, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.spring18.server;
+
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookPage;
+import com.example.spring18.domain.GenreQuery;
+import com.example.spring18.services.book.BookService;
+import lombok.RequiredArgsConstructor;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Read-only subset of the shell commands for server sessions. Every request is one line;
+ * the response is zero or more book lines (or one count line) followed by {@code OK} or
+ * {@code ERROR <message>}.
+ */
+@RequiredArgsConstructor
+public class SessionCommands {
+
+    public static final String OK = "OK";
+
+    public static final String ERROR = "ERROR";
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final BookService bookService;
+
+    /**
+     * @return {@code false} when the client asked to end the session
+     */
+    public boolean execute(String line, Consumer<String> out) {
+        String[] args = line.trim().split("\\s+");
+        try {
+            switch (args[0]) {
+                case "", "ping" -> {
+                }
+                case "quit" -> {
+                    out.accept(OK);
+                    return false;
+                }
+                case "g", "get" -> {
+                    Book book = bookService.getBookById(longArg(args, 1));
+                    if (nonNull(book)) {
+                        out.accept(book.toString());
+                    }
+                }
+                case "ba", "by-author" -> write(bookService.getBooksByAuthorId(longArg(args, 1)), out);
+                case "bl", "by-lastname" -> write(bookService.getBooksByAuthorLastname(arg(args, 1)), out);
+                case "bg", "by-genre" -> getBooksByGenres(args, out);
+                case "gq", "genre-query" -> getBooksByGenreQuery(args, out);
+                case "s", "search" -> write(bookService.search(String.join(" ", tail(args, 1)), DEFAULT_LIMIT), out);
+                case "p", "page" -> {
+                    BookPage page = bookService.getBooksPageAfter(args.length > 1 ? longArg(args, 1) : 0,
+                            args.length > 2 ? (int) longArg(args, 2) : DEFAULT_LIMIT);
+                    write(page.getBooks(), out);
+                }
+                default -> throw new IllegalArgumentException("Unknown command : " + args[0]);
+            }
+            out.accept(OK);
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            out.accept(ERROR + " " + message(e));
+        }
+        return true;
+    }
+
+    private void getBooksByGenres(String[] args, Consumer<String> out) {
+        boolean all = args.length > 1 && args[1].equals("--all");
+        List<String> genreNames = tail(args, all ? 2 : 1);
+        if (genreNames.isEmpty()) {
+            throw new IllegalArgumentException("Specify at least one genre");
+        }
+        write(bookService.getBooksByGenres(genreNames, all), out);
+    }
+
+    private void getBooksByGenreQuery(String[] args, Consumer<String> out) {
+        boolean count = args.length > 1 && args[1].equals("--count");
+        GenreQuery query = GenreQuery.parse(String.join(" ", tail(args, count ? 2 : 1)));
+        if (count) {
+            out.accept(String.valueOf(bookService.countBooksByGenreQuery(query)));
+        } else {
+            write(bookService.getBooksByGenreQuery(query), out);
+        }
+    }
+
+    private static void write(List<Book> books, Consumer<String> out) {
+        books.forEach(book -> out.accept(book.toString()));
+    }
+
+    private static String arg(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing argument for " + args[0]);
+        }
+        return args[index];
+    }
+
+    private static long longArg(String[] args, int index) {
+        return Long.parseLong(arg(args, index));
+    }
+
+    private static List<String> tail(String[] args, int from) {
+        return Arrays.asList(args).subList(Math.min(from, args.length), args.length);
+    }
+
+    private static String message(RuntimeException e) {
+        String message = nonNull(e.getMessage()) ? e.getMessage() : e.getClass().getSimpleName();
+        return message.replace('\n', ' ').replace('\r', ' ');
+    }
+}
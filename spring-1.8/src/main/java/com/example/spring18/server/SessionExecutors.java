@@ -0,0 +1,55 @@
+package com.example.spring18.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for one-task-per-session work. On Java 21+ every task gets its own virtual thread;
+ * on older runtimes tasks share a fixed pool of platform threads. The virtual thread API is
+ * looked up reflectively so the module still builds on the Java 17 toolchain.
+ */
+public final class SessionExecutors {
+
+    private static final MethodHandle VIRTUAL_THREAD_PER_TASK = virtualThreadPerTask();
+
+    private SessionExecutors() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREAD_PER_TASK != null;
+    }
+
+    public static ExecutorService newSessionExecutor(String name, int platformThreads) {
+        if (virtualThreadsAvailable()) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_PER_TASK.invoke();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Can't create virtual thread executor", e);
+            }
+        }
+        return Executors.newFixedThreadPool(platformThreads, namedDaemonThreads(name));
+    }
+
+    private static ThreadFactory namedDaemonThreads(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static MethodHandle virtualThreadPerTask() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.spring18.services.author;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.domain.Author;
+import com.example.spring18.util.AfterCommit;
+import com.example.spring18.util.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+@Component
+public class AuthorCache implements MeterBinder {
+
+    private final BoundedCache<AuthorKey, Author> byKey;
+
+    private final BoundedCache<Long, Author> byId;
+
+    public AuthorCache(LibraryProperties properties) {
+        var cache = properties.getCaches().getAuthors();
+        this.byKey = new BoundedCache<>("authors.by-key", cache.getMaximumSize(), cache.getTtl());
+        this.byId = new BoundedCache<>("authors.by-id", cache.getMaximumSize(), cache.getTtl());
+    }
+
+    public Author getByKey(String initials, String lastName) {
+        return byKey.get(new AuthorKey(initials, lastName));
+    }
+
+    /**
+     * An author read inside a transaction may not be committed yet, so it is cached after the commit.
+     */
+    public Author getById(long id, Function<Long, Author> loader) {
+        if (!AfterCommit.isDeferred()) {
+            return byId.get(id, loader);
+        }
+        Author author = byId.get(id);
+        if (isNull(author)) {
+            author = loader.apply(id);
+            if (nonNull(author)) {
+                put(author);
+            }
+        }
+        return author;
+    }
+
+    public void put(Author author) {
+        AfterCommit.run(() -> {
+            byKey.put(key(author), author);
+            byId.put(author.getId(), author);
+        });
+    }
+
+    public void invalidate(Author author) {
+        evict(author);
+        AfterCommit.run(() -> evict(author));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        byKey.bindTo(registry);
+        byId.bindTo(registry);
+    }
+
+    private void evict(Author author) {
+        if (nonNull(author.getLastName())) {
+            byKey.invalidate(key(author));
+        }
+        byId.invalidate(author.getId());
+    }
+
+    private static AuthorKey key(Author author) {
+        return new AuthorKey(author.getInitials(), author.getLastName());
+    }
+
+    record AuthorKey(String initials, String lastName) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.spring18.services.author;
+
+public record AuthorChangedEvent(long authorId) {
+}
@@ -11,4 +11,8 @@ public interface AuthorService {
     Author getAuthorById(long id);
 
     List<Author> getAllAuthors();
+
+    void updateAuthor(Author author);
+
+    void deleteAuthorById(long id);
 }
@@ -1,36 +1,67 @@
 package com.example.spring18.services.author;
 
 import com.example.spring18.dao.author.AuthorDao;
+import com.example.spring18.dao.routing.ReadOnlyQueries;
 import com.example.spring18.domain.Author;
 import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+import static java.util.Objects.nonNull;
+
 @Service
 @RequiredArgsConstructor
 public class AuthorServiceImpl implements AuthorService{
 
     private final AuthorDao authorDao;
 
+    private final AuthorCache authorCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     public long getExistingAuthorIdOrSave(Author author) {
-        try {
-            Author authorFromDb = authorDao.getByLastnameAndInitials(author.getLastName(), author.getInitials());
-            return authorFromDb.getId();
-        } catch (DataAccessException dae) {
-            return authorDao.save(author);
+        Author cachedAuthor = authorCache.getByKey(author.getInitials(), author.getLastName());
+        if (nonNull(cachedAuthor)) {
+            return cachedAuthor.getId();
         }
+        long id = authorDao.upsert(author);
+        authorCache.put(Author.builder()
+                .id(id)
+                .initials(author.getInitials())
+                .lastName(author.getLastName())
+                .build());
+        return id;
     }
 
     @Override
     public Author getAuthorById(long id) {
-        return authorDao.getById(id);
+        return authorCache.getById(id, authorId -> ReadOnlyQueries.onPrimary(() -> authorDao.getById(authorId)));
     }
 
     @Override
     public List<Author> getAllAuthors() {
         return authorDao.getAll();
     }
+
+    @Override
+    @Transactional
+    public void updateAuthor(Author author) {
+        Author oldAuthor = authorDao.getById(author.getId());
+        authorDao.updateById(author);
+        authorCache.invalidate(oldAuthor);
+        eventPublisher.publishEvent(new AuthorChangedEvent(author.getId()));
+    }
+
+    @Override
+    @Transactional
+    public void deleteAuthorById(long id) {
+        Author oldAuthor = authorDao.getById(id);
+        authorDao.delete(id);
+        authorCache.invalidate(oldAuthor);
+        eventPublisher.publishEvent(new AuthorChangedEvent(id));
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.author.AuthorChangedEvent;
+import com.example.spring18.services.genre.GenreChangedEvent;
+import com.example.spring18.util.AfterCommit;
+import com.example.spring18.util.StripedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.util.Objects.nonNull;
+
+@Component
+public class BookCache implements MeterBinder {
+
+    private static final int OBJECT_BYTES = 48;
+
+    private final StripedCache<Long, Book> books;
+
+    public BookCache(LibraryProperties properties) {
+        var cache = properties.getCaches().getBooks();
+        this.books = new StripedCache<>("books.by-id", cache.getConcurrencyLevel(),
+                cache.getMaximumMemory().toBytes(), BookCache::estimateBytes, cache.getTtl());
+    }
+
+    public Book get(long id, Function<Long, Book> loader) {
+        return books.get(id, loader);
+    }
+
+    public void invalidate(long id) {
+        books.invalidate(id);
+        AfterCommit.run(() -> books.invalidate(id));
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        invalidateIf(book -> nonNull(book.getAuthor()) && book.getAuthor().getId() == event.authorId());
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        invalidateIf(book -> nonNull(book.getGenres()) && book.getGenres().stream()
+                .anyMatch(genre -> genre.getId() == event.genreId()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        books.bindTo(registry);
+    }
+
+    private void invalidateIf(Predicate<Book> predicate) {
+        books.invalidateIf(predicate);
+        AfterCommit.run(() -> books.invalidateIf(predicate));
+    }
+
+    static int estimateBytes(Book book) {
+        int bytes = OBJECT_BYTES + length(book.getName());
+        Author author = book.getAuthor();
+        if (nonNull(author)) {
+            bytes += OBJECT_BYTES + length(author.getInitials()) + length(author.getLastName());
+        }
+        if (nonNull(book.getGenres())) {
+            for (Genre genre : book.getGenres()) {
+                bytes += OBJECT_BYTES + length(genre.getName());
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return nonNull(value) ? OBJECT_BYTES + value.length() : 0;
+    }
+}
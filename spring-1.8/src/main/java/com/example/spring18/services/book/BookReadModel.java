@@ -0,0 +1,560 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.author.AuthorDao;
+import com.example.spring18.dao.book.BookDao;
+import com.example.spring18.dao.genre.GenreDao;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.author.AuthorChangedEvent;
+import com.example.spring18.services.genre.GenreChangedEvent;
+import com.example.spring18.util.AfterCommit;
+import com.example.spring18.util.LongMultimap;
+import com.example.spring18.util.LongObjectMap;
+import com.example.spring18.util.LongPostings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * In-process copy of the catalog for the read side, enabled by {@code library.read-model.enabled}.
+ * Books are kept normalized, keyed by id with the ids of their author and genres, next to postings
+ * lists of book ids per author and per genre. Writes of this process reach it right after their
+ * commit; writes made by other processes are not seen until a restart.
+ * <p>
+ * With {@code library.read-model.snapshot.file} set, the books are saved to a {@link CatalogSnapshot}
+ * on shutdown and restored from it on the next start, reading only the books changed since.
+ */
+@Slf4j
+@Component
+public class BookReadModel implements SmartInitializingSingleton, DisposableBean, MeterBinder {
+
+    private static final long NO_AUTHOR = 0;
+
+    private final BookDao bookDao;
+
+    private final AuthorDao authorDao;
+
+    private final GenreDao genreDao;
+
+    private final boolean enabled;
+
+    private final LibraryProperties.Snapshot snapshotProperties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongObjectMap<BookEntry> books = new LongObjectMap<>(1024);
+
+    private final LongObjectMap<Author> authors = new LongObjectMap<>(256);
+
+    private final LongObjectMap<Genre> genres = new LongObjectMap<>(64);
+
+    private final Map<String, Genre> genresByName = new HashMap<>();
+
+    private final Map<String, LongPostings> authorIdsByLastname = new HashMap<>();
+
+    private final LongObjectMap<LongPostings> bookIdsByAuthor = new LongObjectMap<>(256);
+
+    private final LongObjectMap<LongPostings> bookIdsByGenre = new LongObjectMap<>(64);
+
+    /**
+     * Database time the books were last read in full, guarded by {@link #lock}.
+     */
+    private Instant syncedAt;
+
+    private volatile boolean loaded;
+
+    public BookReadModel(BookDao bookDao, AuthorDao authorDao, GenreDao genreDao, LibraryProperties properties) {
+        this.bookDao = bookDao;
+        this.authorDao = authorDao;
+        this.genreDao = genreDao;
+        this.enabled = properties.getReadModel().isEnabled();
+        this.snapshotProperties = properties.getReadModel().getSnapshot();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled && !restoreSnapshot()) {
+            load();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (loaded && snapshotProperties.isWriteOnShutdown() && nonNull(snapshotProperties.getFile())) {
+            writeSnapshot();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void load() {
+        Instant startedAt = bookDao.currentTimestamp();
+        List<Author> loadedAuthors = authorDao.getAll();
+        List<Genre> loadedGenres = genreDao.getAll();
+        List<Book> loadedBooks = new ArrayList<>();
+        bookDao.streamAll(loadedBooks::add);
+        write(() -> {
+            clear();
+            loadedAuthors.forEach(this::putAuthor);
+            loadedGenres.forEach(this::putGenre);
+            loadedBooks.forEach(this::putBook);
+            syncedAt = startedAt;
+            loaded = true;
+        });
+    }
+
+    /**
+     * @return the written file
+     */
+    public Path writeSnapshot() throws IOException {
+        Path file = snapshotProperties.getFile();
+        if (isNull(file)) {
+            throw new IllegalStateException("library.read-model.snapshot.file is not set");
+        }
+        if (!loaded) {
+            throw new IllegalStateException("Read model is not loaded");
+        }
+        snapshot().write(file);
+        return file;
+    }
+
+    /**
+     * Loads the model from the snapshot file and reads the books changed since it was taken again.
+     * Deleted books leave no change behind, so when the database holds fewer books than the model
+     * the ids of all books are read to drop the missing ones. The snapshot is not used when it is
+     * missing, broken or older than {@code max-age}.
+     *
+     * @return {@code false} when the snapshot was not used and the model is left as it was
+     */
+    public boolean restoreSnapshot() {
+        Path file = snapshotProperties.getFile();
+        if (isNull(file) || !Files.exists(file)) {
+            return false;
+        }
+        try {
+            return restore(CatalogSnapshot.read(file));
+        } catch (IOException e) {
+            log.warn("Can't restore read model snapshot : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean restore(CatalogSnapshot snapshot) {
+        if (snapshot.getCreatedAt().plus(snapshotProperties.getMaxAge()).isBefore(Instant.now())) {
+            log.info("Read model snapshot is older than {}, loading the catalog", snapshotProperties.getMaxAge());
+            return false;
+        }
+        Instant startedAt = bookDao.currentTimestamp();
+        List<Author> loadedAuthors = authorDao.getAll();
+        List<Genre> loadedGenres = genreDao.getAll();
+        List<Book> changedBooks = new ArrayList<>();
+        bookDao.streamChangedSince(snapshot.getSyncedAt().minus(snapshotProperties.getOverlap()), changedBooks::add);
+        long[] snapshotBookIds = snapshot.getBookIds();
+        long addedBooks = changedBooks.stream()
+                .filter(book -> Arrays.binarySearch(snapshotBookIds, book.getId()) < 0)
+                .count();
+        Set<Long> existingIds = bookDao.count() < snapshotBookIds.length + addedBooks
+                ? new HashSet<>(bookDao.getIds())
+                : null;
+        var genreIdsByBook = new LongMultimap(snapshotBookIds.length, snapshot.getLinkBookIds().length);
+        for (int i = 0; i < snapshot.getLinkBookIds().length; i++) {
+            genreIdsByBook.put(snapshot.getLinkBookIds()[i], snapshot.getLinkGenreIds()[i]);
+        }
+        write(() -> {
+            clear();
+            loadedAuthors.forEach(this::putAuthor);
+            loadedGenres.forEach(this::putGenre);
+            for (int i = 0; i < snapshotBookIds.length; i++) {
+                long bookId = snapshotBookIds[i];
+                if (nonNull(existingIds) && !existingIds.contains(bookId)) {
+                    continue;
+                }
+                List<Long> genreIds = new ArrayList<>();
+                genreIdsByBook.forEach(bookId, genreIds::add);
+                putEntry(new BookEntry(bookId, snapshot.getBookNames()[i], snapshot.getBookAuthorIds()[i],
+                        genreIds.stream().mapToLong(Long::longValue).toArray()));
+            }
+            changedBooks.forEach(this::putBook);
+            syncedAt = startedAt;
+            loaded = true;
+        });
+        log.info("Read model restored from snapshot, {} books changed since it was taken", changedBooks.size());
+        return true;
+    }
+
+    private CatalogSnapshot snapshot() {
+        return read(() -> {
+            List<BookEntry> entries = new ArrayList<>(books.size());
+            books.forEachValue(entries::add);
+            entries.sort((first, second) -> Long.compare(first.id(), second.id()));
+            int links = entries.stream()
+                    .mapToInt(entry -> entry.genreIds().length)
+                    .sum();
+            long[] bookIds = new long[entries.size()];
+            long[] authorIds = new long[entries.size()];
+            String[] names = new String[entries.size()];
+            long[] linkBookIds = new long[links];
+            long[] linkGenreIds = new long[links];
+            int link = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                BookEntry entry = entries.get(i);
+                bookIds[i] = entry.id();
+                authorIds[i] = entry.authorId();
+                names[i] = entry.name();
+                for (long genreId : entry.genreIds()) {
+                    linkBookIds[link] = entry.id();
+                    linkGenreIds[link++] = genreId;
+                }
+            }
+            return CatalogSnapshot.builder()
+                    .createdAt(Instant.now())
+                    .syncedAt(syncedAt)
+                    .bookIds(bookIds)
+                    .bookAuthorIds(authorIds)
+                    .bookNames(names)
+                    .linkBookIds(linkBookIds)
+                    .linkGenreIds(linkGenreIds)
+                    .build();
+        });
+    }
+
+    public Book getBookById(long id) {
+        return read(() -> {
+            BookEntry entry = books.get(id);
+            if (isNull(entry)) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            return toBook(entry);
+        });
+    }
+
+    /**
+     * Like {@link BookDao#getAll()}, books without an author are left out.
+     */
+    public List<Book> getAllBooks() {
+        return read(() -> {
+            List<BookEntry> entries = new ArrayList<>(books.size());
+            books.forEachValue(entry -> {
+                if (entry.authorId() != NO_AUTHOR) {
+                    entries.add(entry);
+                }
+            });
+            entries.sort((first, second) -> Long.compare(first.id(), second.id()));
+            List<Book> result = new ArrayList<>(entries.size());
+            entries.forEach(entry -> result.add(toBook(entry)));
+            return result;
+        });
+    }
+
+    public List<Book> getBooksByAuthorId(long authorId) {
+        return read(() -> {
+            LongPostings bookIds = bookIdsByAuthor.get(authorId);
+            return isNull(bookIds) ? List.of() : toBooks(LongPostings.union(bookIds));
+        });
+    }
+
+    public List<Book> getBooksByAuthorLastname(String lastname) {
+        return read(() -> {
+            LongPostings authorIds = authorIdsByLastname.get(lastname);
+            if (isNull(authorIds)) {
+                return List.of();
+            }
+            List<LongPostings> lists = new ArrayList<>();
+            authorIds.forEach(authorId -> lists.add(bookIdsByAuthor.get(authorId)));
+            lists.removeIf(Objects::isNull);
+            return toBooks(LongPostings.union(lists.toArray(LongPostings[]::new)));
+        });
+    }
+
+    public List<Book> getBooksByGenres(Collection<String> genreNames, boolean matchAll) {
+        return read(() -> {
+            List<LongPostings> lists = new ArrayList<>();
+            for (String name : new HashSet<>(genreNames)) {
+                Genre genre = genresByName.get(name);
+                LongPostings bookIds = isNull(genre) ? null : bookIdsByGenre.get(genre.getId());
+                if (nonNull(bookIds)) {
+                    lists.add(bookIds);
+                } else if (matchAll) {
+                    return List.of();
+                }
+            }
+            if (lists.isEmpty()) {
+                return List.of();
+            }
+            LongPostings[] postings = lists.toArray(LongPostings[]::new);
+            return toBooks(matchAll ? LongPostings.intersect(postings) : LongPostings.union(postings));
+        });
+    }
+
+    /**
+     * Books in the order of {@code bookIds}, ids missing from the model are skipped.
+     */
+    public List<Book> getBooksByIds(long[] bookIds) {
+        return read(() -> toBooks(bookIds));
+    }
+
+    /**
+     * Reads the books inside the current transaction, so it sees its writes, and puts them into
+     * the model once the transaction commits. Ids that are not found any more are removed.
+     */
+    public void refreshAfterCommit(Collection<Long> bookIds) {
+        if (!loaded || bookIds.isEmpty()) {
+            return;
+        }
+        List<Book> changedBooks = bookDao.getByIdsWithGenres(bookIds);
+        AfterCommit.run(() -> write(() -> {
+            Set<Long> missingIds = new HashSet<>(bookIds);
+            for (Book book : changedBooks) {
+                missingIds.remove(book.getId());
+                if (nonNull(book.getAuthor())) {
+                    putAuthor(book.getAuthor());
+                }
+                book.getGenres().forEach(this::putGenre);
+                putBook(book);
+            }
+            missingIds.forEach(this::removeBook);
+        }));
+    }
+
+    public void removeAfterCommit(Collection<Long> bookIds) {
+        if (!loaded || bookIds.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> write(() -> bookIds.forEach(this::removeBook)));
+    }
+
+    @EventListener
+    public void onAuthorChanged(AuthorChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        Author author = findOrNull(() -> authorDao.getById(event.authorId()));
+        AfterCommit.run(() -> write(() -> {
+            removeAuthor(event.authorId());
+            if (nonNull(author)) {
+                putAuthor(author);
+            }
+        }));
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        Genre genre = findOrNull(() -> genreDao.getById(event.genreId()));
+        AfterCommit.run(() -> write(() -> {
+            removeGenre(event.genreId());
+            if (nonNull(genre)) {
+                putGenre(genre);
+            }
+        }));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "books", model -> model.books.size());
+        gauge(registry, "authors", model -> model.authors.size());
+        gauge(registry, "genres", model -> model.genres.size());
+    }
+
+    private void gauge(MeterRegistry registry, String entity, ToIntFunction<BookReadModel> size) {
+        Gauge.builder("library.read-model.size", this, model -> size.applyAsInt(model))
+                .tag("entity", entity)
+                .register(registry);
+    }
+
+    private List<Book> toBooks(long[] bookIds) {
+        List<Book> result = new ArrayList<>(bookIds.length);
+        for (long bookId : bookIds) {
+            BookEntry entry = books.get(bookId);
+            if (nonNull(entry)) {
+                result.add(toBook(entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Authors and genres are shared between the returned books, the same way the cursor handler
+     * of {@link BookDao#streamAll} shares genres.
+     */
+    private Book toBook(BookEntry entry) {
+        List<Genre> bookGenres = new ArrayList<>(entry.genreIds().length);
+        for (long genreId : entry.genreIds()) {
+            Genre genre = genres.get(genreId);
+            if (nonNull(genre)) {
+                bookGenres.add(genre);
+            }
+        }
+        return Book.builder()
+                .id(entry.id())
+                .name(entry.name())
+                .author(entry.authorId() == NO_AUTHOR ? null : authors.get(entry.authorId()))
+                .genres(bookGenres)
+                .build();
+    }
+
+    private void clear() {
+        books.clear();
+        authors.clear();
+        genres.clear();
+        genresByName.clear();
+        authorIdsByLastname.clear();
+        bookIdsByAuthor.clear();
+        bookIdsByGenre.clear();
+    }
+
+    private void putBook(Book book) {
+        long authorId = nonNull(book.getAuthor()) ? book.getAuthor().getId() : NO_AUTHOR;
+        long[] genreIds = isNull(book.getGenres()) ? new long[0] : book.getGenres().stream()
+                .mapToLong(Genre::getId)
+                .toArray();
+        putEntry(new BookEntry(book.getId(), book.getName(), authorId, genreIds));
+    }
+
+    private void putEntry(BookEntry entry) {
+        removeBook(entry.id());
+        long[] genreIds = Arrays.stream(entry.genreIds())
+                .sorted()
+                .distinct()
+                .toArray();
+        books.put(entry.id(), new BookEntry(entry.id(), entry.name(), entry.authorId(), genreIds));
+        if (entry.authorId() != NO_AUTHOR) {
+            postings(bookIdsByAuthor, entry.authorId()).add(entry.id());
+        }
+        for (long genreId : genreIds) {
+            postings(bookIdsByGenre, genreId).add(entry.id());
+        }
+    }
+
+    private void removeBook(long bookId) {
+        BookEntry entry = books.remove(bookId);
+        if (isNull(entry)) {
+            return;
+        }
+        if (entry.authorId() != NO_AUTHOR) {
+            removePosting(bookIdsByAuthor, entry.authorId(), bookId);
+        }
+        for (long genreId : entry.genreIds()) {
+            removePosting(bookIdsByGenre, genreId, bookId);
+        }
+    }
+
+    private void putAuthor(Author author) {
+        removeAuthor(author.getId());
+        Author copy = Author.builder()
+                .id(author.getId())
+                .initials(author.getInitials())
+                .lastName(author.getLastName())
+                .build();
+        authors.put(copy.getId(), copy);
+        authorIdsByLastname.computeIfAbsent(copy.getLastName(), lastname -> new LongPostings()).add(copy.getId());
+    }
+
+    private void removeAuthor(long authorId) {
+        Author author = authors.remove(authorId);
+        if (nonNull(author)) {
+            LongPostings authorIds = authorIdsByLastname.get(author.getLastName());
+            if (nonNull(authorIds) && authorIds.remove(authorId) && authorIds.isEmpty()) {
+                authorIdsByLastname.remove(author.getLastName());
+            }
+        }
+    }
+
+    private void putGenre(Genre genre) {
+        removeGenre(genre.getId());
+        Genre copy = Genre.builder()
+                .id(genre.getId())
+                .name(genre.getName())
+                .build();
+        genres.put(copy.getId(), copy);
+        genresByName.put(copy.getName(), copy);
+    }
+
+    private void removeGenre(long genreId) {
+        Genre genre = genres.remove(genreId);
+        if (nonNull(genre)) {
+            genresByName.remove(genre.getName(), genre);
+        }
+    }
+
+    private static LongPostings postings(LongObjectMap<LongPostings> index, long key) {
+        LongPostings postings = index.get(key);
+        if (isNull(postings)) {
+            postings = new LongPostings();
+            index.put(key, postings);
+        }
+        return postings;
+    }
+
+    private static void removePosting(LongObjectMap<LongPostings> index, long key, long bookId) {
+        LongPostings postings = index.get(key);
+        if (nonNull(postings) && postings.remove(bookId) && postings.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static <T> T findOrNull(Supplier<T> finder) {
+        try {
+            return finder.get();
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private <T> T read(Supplier<T> query) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return query.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable update) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            update.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private record BookEntry(long id, String name, long authorId, long[] genreIds) {
+    }
+}
@@ -1,8 +1,17 @@
 package com.example.spring18.services.book;
 
+import com.example.spring18.dao.util.IdRange;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.domain.BookPage;
+import com.example.spring18.domain.GenreQuery;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 public interface BookService {
     long saveBook(Book book);
@@ -11,7 +20,41 @@ public interface BookService {
 
     List<Book> getAllBooks();
 
+    List<Book> getBooksByAuthorId(long authorId);
+
+    List<Book> getBooksByAuthorLastname(String lastname);
+
+    List<Book> getBooksByGenres(Collection<String> genreNames, boolean matchAll);
+
+    List<Book> getBooksByGenreQuery(GenreQuery query);
+
+    long countBooksByGenreQuery(GenreQuery query);
+
+    List<Book> search(String query, int limit);
+
+    void streamAllBooks(Consumer<Book> consumer);
+
+    void streamBooksInRange(long fromId, long toId, Consumer<Book> consumer);
+
+    IdRange getBookIdRange();
+
+    BookPage getBooksPageAfter(long afterId, int size);
+
+    BookPage getBooksPageBefore(long beforeId, int size);
+
     void updateBookById(Book book);
 
     void deleteBookById(long id);
+
+    long importBooks(Stream<Book> books);
+
+    long importBooks(Stream<Book> books, LongConsumer chunkCommitted);
+
+    /**
+     * Applies the changes in transactions of {@code groupSize}. A group that fails is retried one
+     * change per transaction, so that only the failing changes are skipped and handed to {@code failed}.
+     *
+     * @return number of applied changes
+     */
+    long applyChanges(Stream<BookChange> changes, int groupSize, BiConsumer<BookChange, RuntimeException> failed);
 }
@@ -1,81 +1,331 @@
 package com.example.spring18.services.book;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.book.BookDao;
+import com.example.spring18.dao.book.BookSearchDao;
+import com.example.spring18.dao.routing.ReadOnlyQueries;
 import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.dao.util.IdRange;
 import com.example.spring18.domain.Author;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.domain.BookPage;
 import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
 import com.example.spring18.services.author.AuthorService;
 import com.example.spring18.services.genre.GenreService;
+import com.example.spring18.util.LongMultimap;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Objects.nonNull;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 @Service
 @RequiredArgsConstructor
-public class BookServiceImpl implements BookService {
+public class BookServiceImpl implements BookService, DisposableBean {
+
+    /**
+     * Listings fetched in parallel at the same time. Each takes two connections on top of the one
+     * its caller may hold, more listings fall back to sequential fetching instead of waiting for
+     * connections held by callers that wait themselves.
+     */
+    private static final int PARALLEL_FETCHES = 2;
 
     private final BookDao bookDao;
 
+    private final BookSearchDao bookSearchDao;
+
     private final AuthorService authorService;
 
     private final GenreService genreService;
 
+    private final TransactionOperations transactionOperations;
+
+    private final LibraryProperties libraryProperties;
+
+    private final BookCache bookCache;
+
+    private final BookReadModel bookReadModel;
+
+    private final GenreBitmapIndex genreBitmapIndex;
+
+    private final Semaphore parallelFetches = new Semaphore(PARALLEL_FETCHES);
+
+    private final ExecutorService fetchExecutor = Executors.newFixedThreadPool(PARALLEL_FETCHES * 2,
+            fetchThreads());
+
     @Override
+    public void destroy() {
+        fetchExecutor.shutdownNow();
+    }
+
+    @Override
+    @Transactional
     public long saveBook(Book book) {
         var authorId = authorService.getExistingAuthorIdOrSave(book.getAuthor());
         book.setAuthor(Author.builder().id(authorId).build());
         var id = bookDao.save(book);
         saveGenres(id, book.getGenres());
+        refreshAfterCommit(List.of(id));
         return id;
     }
 
     private void saveGenres(long bookId, List<Genre> genres) {
         if (!isEmpty(genres)) {
-            genres.forEach(genre -> saveGenre(genre, bookId));
+            bookDao.createBookGenreLinks(bookId, genreService.getExistingGenreIdsOrSave(genres));
         }
     }
 
-    private void saveGenre(Genre genre, long bookId) {
-        long genreId = genreService.getExistingGenreIdOrSave(genre);
-        bookDao.createBookGenreLink(bookId, genreId);
-    }
-
     @Override
     public Book getBookById(long bookId) {
-        var book =  bookDao.getById(bookId);
-        enrichBook(book, bookDao.getBookGenreRelations(bookId), genreService.getAllGenres());
-        return book;
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getBookById(bookId);
+        }
+        return bookCache.get(bookId, id -> ReadOnlyQueries.onPrimary(() -> bookDao.getByIdWithGenres(id)));
     }
 
-    private void enrichBook(Book book, List<BookGenreRelation> bookGenreRelations, List<Genre> genres) {
+    private void enrichBooks(List<Book> books, List<BookGenreRelation> bookGenreRelations, List<Genre> genres) {
         Map<Long, Genre> genreMap = genres.stream().collect(Collectors.toMap(Genre::getId, Function.identity()));
-        List<Genre> bookGenres = new ArrayList<>();
-        bookGenreRelations.stream()
-                .filter(relation -> relation.getBookId() == book.getId())
-                .forEach(relation -> bookGenres.add(genreMap.get(relation.getGenreId())));
-        book.setGenres(bookGenres);
+        var genreIdsByBookId = new LongMultimap(books.size(), bookGenreRelations.size());
+        bookGenreRelations.forEach(relation -> genreIdsByBookId.put(relation.getBookId(), relation.getGenreId()));
+        books.forEach(book -> {
+            List<Genre> bookGenres = new ArrayList<>();
+            genreIdsByBookId.forEach(book.getId(), genreId -> {
+                // a link to a genre created after the genres were read, possible when fetched in parallel
+                Genre genre = genreMap.get(genreId);
+                if (nonNull(genre)) {
+                    bookGenres.add(genre);
+                }
+            });
+            book.setGenres(bookGenres);
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Book> getAllBooks() {
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getAllBooks();
+        }
+        if (libraryProperties.getBooks().isParallelFetch() && parallelFetches.tryAcquire()) {
+            try {
+                return getAllBooksInParallel();
+            } finally {
+                parallelFetches.release();
+            }
+        }
         var books = bookDao.getAll();
         var genres = genreService.getAllGenres();
         var bookGenreRelations = bookDao.getBookGenreRelations();
-        books.forEach(book -> enrichBook(book, bookGenreRelations, genres));
+        enrichBooks(books, bookGenreRelations, genres);
+        return books;
+    }
+
+    /**
+     * Genres and links are read on the fetch executor, outside of the caller's transaction, while
+     * the books are read on the calling thread.
+     */
+    private List<Book> getAllBooksInParallel() {
+        CompletableFuture<List<Genre>> genres = CompletableFuture.supplyAsync(genreService::getAllGenres,
+                fetchExecutor);
+        CompletableFuture<List<BookGenreRelation>> bookGenreRelations =
+                CompletableFuture.supplyAsync(bookDao::getBookGenreRelations, fetchExecutor);
+        var books = bookDao.getAll();
+        enrichBooks(books, join(bookGenreRelations), join(genres));
+        return books;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ThreadFactory fetchThreads() {
+        var threadFactory = new CustomizableThreadFactory("library-fetch-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    @Override
+    public List<Book> getBooksByAuthorId(long authorId) {
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getBooksByAuthorId(authorId);
+        }
+        return bookDao.getByAuthorId(authorId);
+    }
+
+    @Override
+    public List<Book> getBooksByAuthorLastname(String lastname) {
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getBooksByAuthorLastname(lastname);
+        }
+        return bookDao.getByAuthorLastname(lastname);
+    }
+
+    @Override
+    public List<Book> getBooksByGenres(Collection<String> genreNames, boolean matchAll) {
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getBooksByGenres(genreNames, matchAll);
+        }
+        return bookDao.getByGenres(genreNames, matchAll);
+    }
+
+    @Override
+    public List<Book> getBooksByGenreQuery(GenreQuery query) {
+        if (!genreBitmapIndex.isLoaded()) {
+            return bookDao.getByGenreQuery(query);
+        }
+        long[] bookIds = genreBitmapIndex.getBookIds(query);
+        if (bookReadModel.isLoaded()) {
+            return bookReadModel.getBooksByIds(bookIds);
+        }
+        return getBooksByIdsInChunks(bookIds);
+    }
+
+    /**
+     * The index may match any number of books, they are read {@code fetch-size} ids per query to
+     * stay under the bind parameter limit of the driver.
+     */
+    private List<Book> getBooksByIdsInChunks(long[] bookIds) {
+        int chunkSize = libraryProperties.getBooks().getFetchSize();
+        List<Book> books = new ArrayList<>(bookIds.length);
+        for (int from = 0; from < bookIds.length; from += chunkSize) {
+            int to = Math.min(from + chunkSize, bookIds.length);
+            books.addAll(bookDao.getByIdsWithGenres(Arrays.stream(bookIds, from, to).boxed().toList()));
+        }
         return books;
     }
 
     @Override
+    public long countBooksByGenreQuery(GenreQuery query) {
+        if (genreBitmapIndex.isLoaded()) {
+            return genreBitmapIndex.count(query);
+        }
+        return bookDao.countByGenreQuery(query);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        if (query.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        var rankedIds = bookSearchDao.search(query, limit);
+        Map<Long, Book> booksById = bookDao.getByIdsWithGenres(rankedIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return rankedIds.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllBooks(Consumer<Book> consumer) {
+        bookDao.streamAll(consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamBooksInRange(long fromId, long toId, Consumer<Book> consumer) {
+        bookDao.streamRange(fromId, toId, consumer);
+    }
+
+    @Override
+    public IdRange getBookIdRange() {
+        return bookDao.getIdRange();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksPageAfter(long afterId, int size) {
+        requirePositivePageSize(size);
+        var books = bookDao.getPageAfter(afterId, size + 1);
+        boolean hasNext = books.size() > size;
+        if (hasNext) {
+            books = books.subList(0, size);
+        }
+        enrichPage(books);
+        return BookPage.builder()
+                .books(books)
+                .previousCursor(afterId > 0 && !books.isEmpty() ? books.get(0).getId() : null)
+                .nextCursor(hasNext ? books.get(books.size() - 1).getId() : null)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookPage getBooksPageBefore(long beforeId, int size) {
+        requirePositivePageSize(size);
+        var books = bookDao.getPageBefore(beforeId, size + 1);
+        boolean hasPrevious = books.size() > size;
+        if (hasPrevious) {
+            books = books.subList(1, books.size());
+        }
+        enrichPage(books);
+        return BookPage.builder()
+                .books(books)
+                .previousCursor(hasPrevious ? books.get(0).getId() : null)
+                .nextCursor(!books.isEmpty() ? books.get(books.size() - 1).getId() : null)
+                .build();
+    }
+
+    private static void requirePositivePageSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive but was " + size);
+        }
+    }
+
+    private void enrichPage(List<Book> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        var bookGenreRelations = bookDao.getBookGenreRelations(books.stream().map(Book::getId).toList());
+        var genres = genreService.getGenresByIds(bookGenreRelations.stream()
+                .map(BookGenreRelation::getGenreId)
+                .collect(Collectors.toSet()));
+        enrichBooks(books, bookGenreRelations, genres);
+    }
+
+    @Override
+    @Transactional
     public void updateBookById(Book newBook) {
+        bookCache.invalidate(newBook.getId());
         bookDao.updateById(newBook);
         Long authorId = null;
         if (nonNull(newBook.getAuthor()) && nonNull(newBook.getAuthor().getLastName())) {
@@ -83,24 +333,296 @@ public class BookServiceImpl implements BookService {
         }
         bookDao.updateAuthorId(newBook.getId(), authorId);
         updateGenres(newBook.getId(), newBook.getGenres());
+        refreshAfterCommit(List.of(newBook.getId()));
     }
 
     private void updateGenres(long bookId, List<Genre> genres) {
-        List<Genre> oldGenres = genreService.getGenresByBookId(bookId);
         if (isEmpty(genres)) {
             bookDao.deleteBookGenreLinks(bookId);
         } else {
-            genres.stream()
+            List<Genre> oldGenres = genreService.getGenresByBookId(bookId);
+            List<Genre> addedGenres = genres.stream()
                     .filter(genre -> !oldGenres.contains(genre))
-                    .forEach(genre -> bookDao.createBookGenreLink(bookId, genre.getId()));
-            oldGenres.stream()
+                    .toList();
+            if (!addedGenres.isEmpty()) {
+                bookDao.createBookGenreLinks(bookId, genreService.getExistingGenreIdsOrSave(addedGenres));
+            }
+            bookDao.deleteBookGenreLinks(bookId, oldGenres.stream()
                     .filter(genre -> !genres.contains(genre))
-                    .forEach(genre -> bookDao.deleteBookGenreLink(bookId, genre.getId()));
+                    .map(Genre::getId)
+                    .toList());
         }
     }
 
     @Override
+    @Transactional
     public void deleteBookById(long id) {
+        bookCache.invalidate(id);
         bookDao.delete(id);
+        removeAfterCommit(List.of(id));
+    }
+
+    @Override
+    public long importBooks(Stream<Book> books) {
+        return importBooks(books, imported -> {
+        });
+    }
+
+    @Override
+    public long importBooks(Stream<Book> books, LongConsumer chunkCommitted) {
+        var dictionary = loadDictionary();
+        int chunkSize = libraryProperties.getBooks().getImportChunkSize();
+        List<Book> chunk = new ArrayList<>(chunkSize);
+        long imported = 0;
+        Iterator<Book> iterator = books.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                transactionOperations.executeWithoutResult(status -> importChunk(chunk, dictionary));
+                dictionary.commit();
+                imported += chunk.size();
+                chunkCommitted.accept(imported);
+                chunk.clear();
+            }
+        }
+        return imported;
+    }
+
+    @Override
+    public long applyChanges(Stream<BookChange> changes, int groupSize,
+                             BiConsumer<BookChange, RuntimeException> failed) {
+        var dictionary = loadDictionary();
+        List<BookChange> group = new ArrayList<>(groupSize);
+        long applied = 0;
+        Iterator<BookChange> iterator = changes.iterator();
+        while (iterator.hasNext()) {
+            group.add(iterator.next());
+            if (group.size() == groupSize || !iterator.hasNext()) {
+                try {
+                    transactionOperations.executeWithoutResult(status -> applyGroup(group, dictionary));
+                    dictionary.commit();
+                    applied += group.size();
+                } catch (RuntimeException e) {
+                    dictionary.rollback();
+                    applied += applyOneByOne(group, dictionary, failed);
+                }
+                group.clear();
+            }
+        }
+        return applied;
+    }
+
+    private long applyOneByOne(List<BookChange> group, ImportDictionary dictionary,
+                               BiConsumer<BookChange, RuntimeException> failed) {
+        long applied = 0;
+        for (BookChange change : group) {
+            try {
+                transactionOperations.executeWithoutResult(status -> applyGroup(List.of(change), dictionary));
+                dictionary.commit();
+                applied++;
+            } catch (RuntimeException e) {
+                dictionary.rollback();
+                failed.accept(change, e);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Runs of consecutive changes of the same type share their statements and go to the database
+     * as one JDBC batch. A repeated update of a book starts a new run, its genre links depend on the
+     * previous one.
+     */
+    private void applyGroup(List<BookChange> group, ImportDictionary dictionary) {
+        List<BookChange> run = new ArrayList<>();
+        Set<Long> updatedIds = new HashSet<>();
+        for (BookChange change : group) {
+            boolean sameType = !run.isEmpty() && run.get(0).getType() == change.getType();
+            if (!sameType || change.getType() == BookChange.Type.UPDATE
+                    && updatedIds.contains(change.getBook().getId())) {
+                applyRun(run, dictionary);
+                run.clear();
+                updatedIds.clear();
+            }
+            run.add(change);
+            if (change.getType() == BookChange.Type.UPDATE) {
+                updatedIds.add(change.getBook().getId());
+            }
+        }
+        applyRun(run, dictionary);
+    }
+
+    private void applyRun(List<BookChange> run, ImportDictionary dictionary) {
+        if (run.isEmpty()) {
+            return;
+        }
+        // resolving authors rewrites the books, the changes stay intact for a retry
+        List<Book> books = run.stream()
+                .map(change -> Book.builder()
+                        .id(change.getBook().getId())
+                        .name(change.getBook().getName())
+                        .author(change.getBook().getAuthor())
+                        .genres(change.getBook().getGenres())
+                        .build())
+                .toList();
+        switch (run.get(0).getType()) {
+            case ADD -> addChunk(books, dictionary);
+            case UPDATE -> updateChunk(books, dictionary);
+            case DELETE -> {
+                List<Long> ids = books.stream()
+                        .map(Book::getId)
+                        .toList();
+                ids.forEach(bookCache::invalidate);
+                bookDao.deleteAll(ids);
+                removeAfterCommit(ids);
+            }
+        }
+    }
+
+    private void importChunk(List<Book> books, ImportDictionary dictionary) {
+        resolveAuthorsAndGenres(books, dictionary);
+        var bookIds = bookDao.saveAllIfAbsent(books);
+        bookIds.forEach(bookCache::invalidate);
+        bookDao.createBookGenreLinksIfAbsent(genreRelations(books, bookIds, dictionary));
+        // books that were already there may have got new genres without their row being written
+        bookDao.markChanged(bookIds);
+        refreshAfterCommit(bookIds);
+    }
+
+    /**
+     * Unlike an import, a batched add fails on a book that already exists, as a single add does.
+     */
+    private void addChunk(List<Book> books, ImportDictionary dictionary) {
+        resolveAuthorsAndGenres(books, dictionary);
+        var bookIds = bookDao.saveAll(books);
+        bookDao.createBookGenreLinksIfAbsent(genreRelations(books, bookIds, dictionary));
+        refreshAfterCommit(bookIds);
+    }
+
+    private void updateChunk(List<Book> books, ImportDictionary dictionary) {
+        var bookIds = books.stream()
+                .map(Book::getId)
+                .toList();
+        bookIds.forEach(bookCache::invalidate);
+        resolveAuthorsAndGenres(books, dictionary);
+        bookDao.updateAll(books);
+        Set<BookGenreRelation> oldRelations = new HashSet<>(bookDao.getBookGenreRelations(bookIds));
+        Set<BookGenreRelation> newRelations = new HashSet<>(genreRelations(books, bookIds, dictionary));
+        bookDao.deleteBookGenreLinks(oldRelations.stream()
+                .filter(relation -> !newRelations.contains(relation))
+                .toList());
+        bookDao.createBookGenreLinksIfAbsent(newRelations.stream()
+                .filter(relation -> !oldRelations.contains(relation))
+                .toList());
+        refreshAfterCommit(bookIds);
+    }
+
+    /**
+     * Brings the in-memory read side up to date with the books changed by the current transaction.
+     */
+    private void refreshAfterCommit(Collection<Long> bookIds) {
+        bookReadModel.refreshAfterCommit(bookIds);
+        genreBitmapIndex.refreshAfterCommit(bookIds);
+    }
+
+    private void removeAfterCommit(Collection<Long> bookIds) {
+        bookReadModel.removeAfterCommit(bookIds);
+        genreBitmapIndex.removeAfterCommit(bookIds);
+    }
+
+    private void resolveAuthorsAndGenres(List<Book> books, ImportDictionary dictionary) {
+        Map<String, Genre> missingGenres = new LinkedHashMap<>();
+        for (Book book : books) {
+            Author author = book.getAuthor();
+            if (nonNull(author) && nonNull(author.getLastName())) {
+                long authorId = dictionary.authorId(new AuthorKey(author.getInitials(), author.getLastName()),
+                        () -> authorService.getExistingAuthorIdOrSave(author));
+                book.setAuthor(Author.builder().id(authorId).build());
+            } else {
+                book.setAuthor(null);
+            }
+            if (!isEmpty(book.getGenres())) {
+                book.getGenres().stream()
+                        .filter(genre -> !dictionary.genreIds.containsKey(genre.getName()))
+                        .forEach(genre -> missingGenres.putIfAbsent(genre.getName(), genre));
+            }
+        }
+        if (!missingGenres.isEmpty()) {
+            genreService.getExistingGenresOrSave(missingGenres.values())
+                    .forEach(genre -> dictionary.putGenreId(genre.getName(), genre.getId()));
+        }
+    }
+
+    private static List<BookGenreRelation> genreRelations(List<Book> books, List<Long> bookIds,
+                                                          ImportDictionary dictionary) {
+        List<BookGenreRelation> relations = new ArrayList<>();
+        for (int i = 0; i < books.size(); i++) {
+            long bookId = bookIds.get(i);
+            List<Genre> genres = books.get(i).getGenres();
+            if (!isEmpty(genres)) {
+                genres.forEach(genre -> relations.add(BookGenreRelation.builder()
+                        .bookId(bookId)
+                        .genreId(dictionary.genreIds.get(genre.getName()))
+                        .build()));
+            }
+        }
+        return relations;
+    }
+
+    private ImportDictionary loadDictionary() {
+        return new ImportDictionary(authorService.getAllAuthors(), genreService.getAllGenres());
+    }
+
+    private record AuthorKey(String initials, String lastName) {
+    }
+
+    /**
+     * Ids of authors and genres by their natural keys. Ids resolved inside a transaction are
+     * journaled until {@link #commit()}, so a rolled back transaction only drops its own entries
+     * instead of the whole dictionary being loaded again.
+     */
+    private static class ImportDictionary {
+
+        private final Map<AuthorKey, Long> authorIds = new HashMap<>();
+
+        private final Map<String, Long> genreIds = new HashMap<>();
+
+        private final List<AuthorKey> uncommittedAuthors = new ArrayList<>();
+
+        private final List<String> uncommittedGenres = new ArrayList<>();
+
+        ImportDictionary(List<Author> authors, List<Genre> genres) {
+            authors.forEach(author -> authorIds.put(new AuthorKey(author.getInitials(), author.getLastName()),
+                    author.getId()));
+            genres.forEach(genre -> genreIds.put(genre.getName(), genre.getId()));
+        }
+
+        long authorId(AuthorKey key, Supplier<Long> resolver) {
+            Long id = authorIds.get(key);
+            if (id == null) {
+                id = resolver.get();
+                authorIds.put(key, id);
+                uncommittedAuthors.add(key);
+            }
+            return id;
+        }
+
+        void putGenreId(String name, long id) {
+            if (genreIds.put(name, id) == null) {
+                uncommittedGenres.add(name);
+            }
+        }
+
+        void commit() {
+            uncommittedAuthors.clear();
+            uncommittedGenres.clear();
+        }
+
+        void rollback() {
+            uncommittedAuthors.forEach(authorIds::remove);
+            uncommittedGenres.forEach(genreIds::remove);
+            uncommittedAuthors.clear();
+            uncommittedGenres.clear();
+        }
     }
 }
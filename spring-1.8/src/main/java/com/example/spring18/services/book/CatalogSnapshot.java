@@ -0,0 +1,192 @@
+package com.example.spring18.services.book;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Columnar binary image of the books and their genre links: every attribute is stored as one contiguous
+ * column, ids as {@code long}s and strings as a column of UTF-8 lengths followed by their bytes. Files
+ * are written and read through {@link FileChannel#map}. The header holds a CRC32C of the rest of the file and
+ * the database time the books were read at, so books changed after it can be loaded on their own. Authors
+ * and genres are left out, they are small enough to be read from the database every time.
+ */
+@Getter
+@Builder
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x4C494253;
+
+    private static final int VERSION = 3;
+
+    private static final int HEADER_BYTES = 40;
+
+    private static final int NULL_LENGTH = -1;
+
+    private final Instant createdAt;
+
+    /**
+     * Database time the books were read at.
+     */
+    private final Instant syncedAt;
+
+    private final long[] bookIds;
+
+    /**
+     * {@code 0} for books without an author.
+     */
+    private final long[] bookAuthorIds;
+
+    private final String[] bookNames;
+
+    private final long[] linkBookIds;
+
+    private final long[] linkGenreIds;
+
+    /**
+     * Writes to a temporary file next to {@code file} and moves it in place, so a crash never
+     * leaves a half written snapshot behind.
+     */
+    public void write(Path file) throws IOException {
+        byte[][] bookNamesBytes = encode(bookNames);
+        long size = HEADER_BYTES
+                + longsBytes(bookIds) + longsBytes(bookAuthorIds) + stringsBytes(bookNamesBytes)
+                + longsBytes(linkBookIds) + longsBytes(linkGenreIds);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putLong(createdAt.toEpochMilli())
+                    .putLong(syncedAt.toEpochMilli())
+                    .putInt(bookIds.length)
+                    .putInt(linkBookIds.length)
+                    .putLong(0);
+            putLongs(buffer, bookIds);
+            putLongs(buffer, bookAuthorIds);
+            putStrings(buffer, bookNamesBytes);
+            putLongs(buffer, linkBookIds);
+            putLongs(buffer, linkGenreIds);
+            buffer.putLong(HEADER_BYTES - Long.BYTES, checksum(buffer));
+            buffer.force();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @throws IOException when the file can't be read, is not a snapshot of this version or its
+     *                     checksum does not match
+     */
+    public static CatalogSnapshot read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Snapshot is truncated : " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a catalog snapshot of version " + VERSION + " : " + file);
+            }
+            if (buffer.getLong(HEADER_BYTES - Long.BYTES) != checksum(buffer)) {
+                throw new IOException("Snapshot checksum mismatch : " + file);
+            }
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+            Instant syncedAt = Instant.ofEpochMilli(buffer.getLong());
+            int books = buffer.getInt();
+            int links = buffer.getInt();
+            buffer.position(HEADER_BYTES);
+            return CatalogSnapshot.builder()
+                    .createdAt(createdAt)
+                    .syncedAt(syncedAt)
+                    .bookIds(getLongs(buffer, books))
+                    .bookAuthorIds(getLongs(buffer, books))
+                    .bookNames(getStrings(buffer, books))
+                    .linkBookIds(getLongs(buffer, links))
+                    .linkGenreIds(getLongs(buffer, links))
+                    .build();
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and friends on a file whose counts don't match its columns
+            throw new IOException("Snapshot is corrupted : " + file, e);
+        }
+    }
+
+    /**
+     * Covers the header up to the checksum slot too, a torn sync time or row count is as bad as a torn column.
+     */
+    private static long checksum(ByteBuffer buffer) {
+        var crc = new CRC32C();
+        crc.update(buffer.slice(0, HEADER_BYTES - Long.BYTES));
+        crc.update(buffer.slice(HEADER_BYTES, buffer.limit() - HEADER_BYTES));
+        return crc.getValue();
+    }
+
+    private static long longsBytes(long[] values) {
+        return (long) values.length * Long.BYTES;
+    }
+
+    private static long stringsBytes(byte[][] values) {
+        long bytes = (long) values.length * Integer.BYTES;
+        for (byte[] value : values) {
+            bytes += isNull(value) ? 0 : value.length;
+        }
+        return bytes;
+    }
+
+    private static byte[][] encode(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = isNull(values[i]) ? null : values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static void putLongs(ByteBuffer buffer, long[] values) {
+        buffer.asLongBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+
+    private static void putStrings(ByteBuffer buffer, byte[][] values) {
+        for (byte[] value : values) {
+            buffer.putInt(isNull(value) ? NULL_LENGTH : value.length);
+        }
+        for (byte[] value : values) {
+            if (!isNull(value)) {
+                buffer.put(value);
+            }
+        }
+    }
+
+    private static String[] getStrings(ByteBuffer buffer, int count) {
+        int[] lengths = new int[count];
+        buffer.asIntBuffer().get(lengths);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] != NULL_LENGTH) {
+                values[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), lengths[i])).toString();
+                buffer.position(buffer.position() + lengths[i]);
+            }
+        }
+        return values;
+    }
+}
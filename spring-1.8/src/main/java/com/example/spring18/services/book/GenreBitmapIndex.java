@@ -0,0 +1,216 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.book.BookDao;
+import com.example.spring18.dao.genre.GenreDao;
+import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
+import com.example.spring18.services.genre.GenreChangedEvent;
+import com.example.spring18.util.AfterCommit;
+import com.example.spring18.util.IdBitmap;
+import com.example.spring18.util.LongObjectMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * One {@link IdBitmap} of book ids per genre, enabled by {@code library.genre-index.enabled}. Answers
+ * {@link GenreQuery} with bitmap operations and counts its matches without touching the database.
+ * Kept in sync the same way as {@link BookReadModel}: links of the changed books are reread inside
+ * the writing transaction and applied after its commit.
+ */
+@Component
+public class GenreBitmapIndex implements SmartInitializingSingleton, MeterBinder {
+
+    private final BookDao bookDao;
+
+    private final GenreDao genreDao;
+
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongObjectMap<IdBitmap> bookIdsByGenre = new LongObjectMap<>(64);
+
+    private final Map<String, Long> genreIdsByName = new HashMap<>();
+
+    private volatile boolean loaded;
+
+    public GenreBitmapIndex(BookDao bookDao, GenreDao genreDao, LibraryProperties properties) {
+        this.bookDao = bookDao;
+        this.genreDao = genreDao;
+        this.enabled = properties.getGenreIndex().isEnabled();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            load();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void load() {
+        List<Genre> genres = genreDao.getAll();
+        List<BookGenreRelation> relations = bookDao.getBookGenreRelations();
+        write(() -> {
+            bookIdsByGenre.clear();
+            genreIdsByName.clear();
+            genres.forEach(genre -> genreIdsByName.put(genre.getName(), genre.getId()));
+            relations.forEach(this::link);
+            loaded = true;
+        });
+    }
+
+    /**
+     * @return ids of the matching books in ascending order
+     */
+    public long[] getBookIds(GenreQuery query) {
+        return read(() -> match(query)).toArray();
+    }
+
+    public long count(GenreQuery query) {
+        return read(() -> match(query)).cardinality();
+    }
+
+    /**
+     * Reads the genre links of the books inside the current transaction and replaces their old
+     * links in the index once it commits.
+     */
+    public void refreshAfterCommit(Collection<Long> bookIds) {
+        if (!loaded || bookIds.isEmpty()) {
+            return;
+        }
+        List<BookGenreRelation> relations = bookDao.getBookGenreRelations(bookIds);
+        AfterCommit.run(() -> write(() -> {
+            unlinkAll(bookIds);
+            relations.forEach(this::link);
+        }));
+    }
+
+    public void removeAfterCommit(Collection<Long> bookIds) {
+        if (!loaded || bookIds.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> write(() -> unlinkAll(bookIds)));
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        Genre genre;
+        try {
+            genre = genreDao.getById(event.genreId());
+        } catch (EmptyResultDataAccessException e) {
+            genre = null;
+        }
+        Genre changed = genre;
+        AfterCommit.run(() -> write(() -> {
+            genreIdsByName.values().remove(event.genreId());
+            if (nonNull(changed)) {
+                genreIdsByName.put(changed.getName(), changed.getId());
+            } else {
+                bookIdsByGenre.remove(event.genreId());
+            }
+        }));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("library.genre-index.size", this, index -> index.read(index::sizeInBytes))
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private IdBitmap match(GenreQuery query) {
+        IdBitmap result = null;
+        for (Set<String> group : query.getRequired()) {
+            IdBitmap groupIds = union(group);
+            result = isNull(result) ? groupIds : result.and(groupIds);
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        if (isNull(result)) {
+            return new IdBitmap();
+        }
+        return query.getExcluded().isEmpty() ? result : result.andNot(union(query.getExcluded()));
+    }
+
+    private IdBitmap union(Collection<String> genreNames) {
+        IdBitmap result = new IdBitmap();
+        for (String name : genreNames) {
+            Long genreId = genreIdsByName.get(name);
+            IdBitmap bookIds = isNull(genreId) ? null : bookIdsByGenre.get(genreId);
+            if (nonNull(bookIds)) {
+                result = result.or(bookIds);
+            }
+        }
+        return result;
+    }
+
+    private void link(BookGenreRelation relation) {
+        IdBitmap bookIds = bookIdsByGenre.get(relation.getGenreId());
+        if (isNull(bookIds)) {
+            bookIds = new IdBitmap();
+            bookIdsByGenre.put(relation.getGenreId(), bookIds);
+        }
+        bookIds.add(relation.getBookId());
+    }
+
+    /**
+     * Genres are few, so dropping a book from every bitmap is cheaper than tracking its old links.
+     */
+    private void unlinkAll(Collection<Long> bookIds) {
+        bookIdsByGenre.forEachValue(bitmap -> bookIds.forEach(bitmap::remove));
+    }
+
+    private long sizeInBytes() {
+        long[] bytes = {0};
+        bookIdsByGenre.forEachValue(bitmap -> bytes[0] += bitmap.sizeInBytes());
+        return bytes[0];
+    }
+
+    private <T> T read(Supplier<T> query) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return query.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable update) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            update.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
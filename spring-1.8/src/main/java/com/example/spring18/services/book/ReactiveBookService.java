@@ -0,0 +1,25 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.domain.Book;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveBookService {
+
+    Mono<Long> saveBook(Book book);
+
+    Mono<Book> getBookById(long id);
+
+    Flux<Book> getBooksByAuthorId(long authorId);
+
+    /**
+     * Streams the catalog in id order; rows are fetched from the database as downstream requests them.
+     */
+    Flux<Book> streamAllBooks();
+
+    Flux<Book> streamBooksInRange(long fromId, long toId);
+
+    Mono<Void> updateBookById(Book book);
+
+    Mono<Void> deleteBookById(long id);
+}
@@ -0,0 +1,182 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.dao.author.ReactiveAuthorDao;
+import com.example.spring18.dao.book.ReactiveBookDao;
+import com.example.spring18.dao.genre.ReactiveGenreDao;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.genre.GenreCache;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+/**
+ * Reactive counterpart of {@link BookServiceImpl}. Writes go straight to the database, and the
+ * book and genre caches shared with the JDBC services are invalidated once a write commits. The
+ * read model and the genre index are refreshed then too; they read the changed books through JDBC,
+ * so that happens on {@link Schedulers#boundedElastic()} rather than on a connection thread.
+ */
+@Service
+@Profile("r2dbc")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private final ReactiveBookDao bookDao;
+
+    private final ReactiveAuthorDao authorDao;
+
+    private final ReactiveGenreDao genreDao;
+
+    private final BookCache bookCache;
+
+    private final GenreCache genreCache;
+
+    private final BookReadModel bookReadModel;
+
+    private final GenreBitmapIndex genreBitmapIndex;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final TransactionalOperator readOnlyTransactionalOperator;
+
+    public ReactiveBookServiceImpl(ReactiveBookDao bookDao, ReactiveAuthorDao authorDao, ReactiveGenreDao genreDao,
+                                   BookCache bookCache, GenreCache genreCache, BookReadModel bookReadModel,
+                                   GenreBitmapIndex genreBitmapIndex,
+                                   ReactiveTransactionManager reactiveTransactionManager) {
+        this.bookDao = bookDao;
+        this.authorDao = authorDao;
+        this.genreDao = genreDao;
+        this.bookCache = bookCache;
+        this.genreCache = genreCache;
+        this.bookReadModel = bookReadModel;
+        this.genreBitmapIndex = genreBitmapIndex;
+        this.transactionalOperator = TransactionalOperator.create(reactiveTransactionManager);
+        var readOnly = new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRED);
+        readOnly.setReadOnly(true);
+        this.readOnlyTransactionalOperator = TransactionalOperator.create(reactiveTransactionManager, readOnly);
+    }
+
+    @Override
+    public Mono<Long> saveBook(Book book) {
+        return authorDao.upsert(book.getAuthor())
+                .flatMap(authorId -> bookDao.save(Book.builder()
+                        .name(book.getName())
+                        .author(Author.builder().id(authorId).build())
+                        .build()))
+                .flatMap(id -> saveGenres(id, book.getGenres()).map(genresCreated -> new SavedBook(id, genresCreated)))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(saved -> invalidateGenres(saved.genresCreated()))
+                .flatMap(saved -> refreshAfterCommit(saved.id()).thenReturn(saved.id()));
+    }
+
+    @Override
+    public Mono<Book> getBookById(long id) {
+        return bookDao.getByIdWithGenres(id);
+    }
+
+    @Override
+    public Flux<Book> getBooksByAuthorId(long authorId) {
+        return bookDao.getByAuthorId(authorId);
+    }
+
+    @Override
+    public Flux<Book> streamAllBooks() {
+        return bookDao.streamAll().as(readOnlyTransactionalOperator::transactional);
+    }
+
+    @Override
+    public Flux<Book> streamBooksInRange(long fromId, long toId) {
+        return bookDao.streamRange(fromId, toId).as(readOnlyTransactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> updateBookById(Book newBook) {
+        long id = newBook.getId();
+        Mono<Optional<Long>> authorId = nonNull(newBook.getAuthor()) && nonNull(newBook.getAuthor().getLastName())
+                ? authorDao.upsert(newBook.getAuthor()).map(Optional::of)
+                : Mono.just(Optional.empty());
+        return bookDao.updateById(newBook)
+                .then(authorId)
+                .flatMap(author -> bookDao.updateAuthorId(id, author.orElse(null)))
+                .then(bookDao.deleteBookGenreLinks(id))
+                .then(saveGenres(id, newBook.getGenres()))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(genresCreated -> {
+                    bookCache.invalidate(id);
+                    invalidateGenres(genresCreated);
+                })
+                .then(refreshAfterCommit(id));
+    }
+
+    @Override
+    public Mono<Void> deleteBookById(long id) {
+        return bookDao.delete(id)
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(ignored -> bookCache.invalidate(id))
+                .then(removeAfterCommit(id));
+    }
+
+    /**
+     * @return whether genres missing from the dictionary were created
+     */
+    private Mono<Boolean> saveGenres(long bookId, List<Genre> genres) {
+        if (isEmpty(genres)) {
+            return Mono.just(false);
+        }
+        Set<String> names = genres.stream()
+                .map(Genre::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return genreDao.saveAllIfAbsent(names)
+                .flatMap(created -> genreDao.getByNames(names)
+                        .map(Genre::getId)
+                        .collectList()
+                        .flatMap(genreIds -> bookDao.createBookGenreLinks(bookId, genreIds))
+                        .thenReturn(created > 0));
+    }
+
+    /**
+     * Must be subscribed after the transaction has completed: outside of a JDBC transaction the
+     * read model and the index apply the change right away.
+     */
+    private Mono<Void> refreshAfterCommit(long bookId) {
+        return Mono.<Void>fromRunnable(() -> {
+                    List<Long> bookIds = List.of(bookId);
+                    bookReadModel.refreshAfterCommit(bookIds);
+                    genreBitmapIndex.refreshAfterCommit(bookIds);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> removeAfterCommit(long bookId) {
+        return Mono.<Void>fromRunnable(() -> {
+                    List<Long> bookIds = List.of(bookId);
+                    bookReadModel.removeAfterCommit(bookIds);
+                    genreBitmapIndex.removeAfterCommit(bookIds);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void invalidateGenres(Boolean genresCreated) {
+        if (Boolean.TRUE.equals(genresCreated)) {
+            genreCache.invalidateAll();
+        }
+    }
+
+    private record SavedBook(long id, boolean genresCreated) {
+    }
+}
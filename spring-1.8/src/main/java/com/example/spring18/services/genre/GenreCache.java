@@ -0,0 +1,96 @@
+package com.example.spring18.services.genre;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.util.AfterCommit;
+import com.example.spring18.util.BoundedCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+
+@Component
+public class GenreCache implements MeterBinder {
+
+    private static final String ALL = "all";
+
+    private final BoundedCache<String, Genre> byName;
+
+    private final BoundedCache<Long, Genre> byId;
+
+    private final BoundedCache<String, List<Genre>> all;
+
+    public GenreCache(LibraryProperties properties) {
+        var cache = properties.getCaches().getGenres();
+        this.byName = new BoundedCache<>("genres.by-name", cache.getMaximumSize(), cache.getTtl());
+        this.byId = new BoundedCache<>("genres.by-id", cache.getMaximumSize(), cache.getTtl());
+        this.all = new BoundedCache<>("genres.all", 1, cache.getTtl());
+    }
+
+    public Genre getByName(String name) {
+        return byName.get(name);
+    }
+
+    public Genre getById(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Genres read inside a transaction may not be committed yet, so they are cached after the commit.
+     */
+    public List<Genre> getAll(Supplier<List<Genre>> loader) {
+        if (!AfterCommit.isDeferred()) {
+            return all.get(ALL, key -> {
+                List<Genre> genres = List.copyOf(loader.get());
+                genres.forEach(this::putNow);
+                return genres;
+            });
+        }
+        List<Genre> genres = all.get(ALL);
+        if (isNull(genres)) {
+            List<Genre> loaded = List.copyOf(loader.get());
+            AfterCommit.run(() -> {
+                all.put(ALL, loaded);
+                loaded.forEach(this::putNow);
+            });
+            genres = loaded;
+        }
+        return genres;
+    }
+
+    public void put(Genre genre) {
+        AfterCommit.run(() -> putNow(genre));
+    }
+
+    public void invalidateAll() {
+        all.invalidateAll();
+        AfterCommit.run(all::invalidateAll);
+    }
+
+    public void invalidate(Genre genre) {
+        evict(genre);
+        AfterCommit.run(() -> evict(genre));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        byName.bindTo(registry);
+        byId.bindTo(registry);
+        all.bindTo(registry);
+    }
+
+    private void putNow(Genre genre) {
+        byName.put(genre.getName(), genre);
+        byId.put(genre.getId(), genre);
+    }
+
+    private void evict(Genre genre) {
+        byName.invalidate(genre.getName());
+        byId.invalidate(genre.getId());
+        all.invalidateAll();
+    }
+}
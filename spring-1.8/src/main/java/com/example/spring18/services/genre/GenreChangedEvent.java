@@ -0,0 +1,4 @@
+package com.example.spring18.services.genre;
+
+public record GenreChangedEvent(long genreId) {
+}
@@ -2,13 +2,24 @@ package com.example.spring18.services.genre;
 
 import com.example.spring18.domain.Genre;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface GenreService {
 
     long getExistingGenreIdOrSave(Genre genre);
 
+    List<Long> getExistingGenreIdsOrSave(Collection<Genre> genres);
+
+    List<Genre> getExistingGenresOrSave(Collection<Genre> genres);
+
     List<Genre> getAllGenres();
 
     List<Genre> getGenresByBookId(long bookId);
+
+    List<Genre> getGenresByIds(Collection<Long> ids);
+
+    void updateGenre(Genre genre);
+
+    void deleteGenreById(long id);
 }
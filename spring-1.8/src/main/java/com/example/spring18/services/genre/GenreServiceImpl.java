@@ -1,12 +1,22 @@
 package com.example.spring18.services.genre;
 
 import com.example.spring18.dao.genre.GenreDao;
+import com.example.spring18.dao.routing.ReadOnlyQueries;
 import com.example.spring18.domain.Genre;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.nonNull;
 
 @Service
 @RequiredArgsConstructor
@@ -14,22 +24,107 @@ public class GenreServiceImpl implements GenreService{
 
     private final GenreDao genreDao;
 
+    private final GenreCache genreCache;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     public long getExistingGenreIdOrSave(Genre genre) {
+        Genre cachedGenre = genreCache.getByName(genre.getName());
+        if (nonNull(cachedGenre)) {
+            return cachedGenre.getId();
+        }
+        long id;
         try {
-            return genreDao.getByName(genre.getName()).getId();
+            id = ReadOnlyQueries.onPrimary(() -> genreDao.getByName(genre.getName())).getId();
         } catch (DataAccessException dae) {
-            return genreDao.save(genre);
+            id = genreDao.save(genre);
+            genreCache.invalidateAll();
+        }
+        genreCache.put(Genre.builder()
+                .id(id)
+                .name(genre.getName())
+                .build());
+        return id;
+    }
+
+    @Override
+    public List<Long> getExistingGenreIdsOrSave(Collection<Genre> genres) {
+        return getExistingGenresOrSave(genres).stream()
+                .map(Genre::getId)
+                .toList();
+    }
+
+    @Override
+    public List<Genre> getExistingGenresOrSave(Collection<Genre> genres) {
+        Set<String> names = genres.stream()
+                .map(Genre::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        List<Genre> foundGenres = new ArrayList<>(names.size());
+        names.removeIf(name -> {
+            Genre cachedGenre = genreCache.getByName(name);
+            return nonNull(cachedGenre) && foundGenres.add(cachedGenre);
+        });
+        if (names.isEmpty()) {
+            return foundGenres;
+        }
+        List<Genre> loadedGenres = new ArrayList<>(ReadOnlyQueries.onPrimary(() -> genreDao.getByNames(names)));
+        if (loadedGenres.size() < names.size()) {
+            loadedGenres.forEach(genre -> names.remove(genre.getName()));
+            genreDao.saveAllIfAbsent(names);
+            genreCache.invalidateAll();
+            loadedGenres.addAll(ReadOnlyQueries.onPrimary(() -> genreDao.getByNames(names)));
         }
+        loadedGenres.forEach(genreCache::put);
+        foundGenres.addAll(loadedGenres);
+        return foundGenres;
     }
 
     @Override
     public List<Genre> getAllGenres() {
-        return genreDao.getAll();
+        return genreCache.getAll(() -> ReadOnlyQueries.onPrimary(genreDao::getAll));
     }
 
     @Override
     public List<Genre> getGenresByBookId(long bookId) {
         return genreDao.getGenresByBookId(bookId);
     }
+
+    @Override
+    public List<Genre> getGenresByIds(Collection<Long> ids) {
+        List<Genre> genres = new ArrayList<>(ids.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : ids) {
+            Genre cachedGenre = genreCache.getById(id);
+            if (nonNull(cachedGenre)) {
+                genres.add(cachedGenre);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            List<Genre> loadedGenres = ReadOnlyQueries.onPrimary(() -> genreDao.getByIds(missingIds));
+            loadedGenres.forEach(genreCache::put);
+            genres.addAll(loadedGenres);
+        }
+        return genres;
+    }
+
+    @Override
+    @Transactional
+    public void updateGenre(Genre genre) {
+        Genre oldGenre = genreDao.getById(genre.getId());
+        genreDao.updateById(genre);
+        genreCache.invalidate(oldGenre);
+        eventPublisher.publishEvent(new GenreChangedEvent(genre.getId()));
+    }
+
+    @Override
+    @Transactional
+    public void deleteGenreById(long id) {
+        Genre oldGenre = genreDao.getById(id);
+        genreDao.delete(id);
+        genreCache.invalidate(oldGenre);
+        eventPublisher.publishEvent(new GenreChangedEvent(id));
+    }
 }
@@ -0,0 +1,190 @@
+package com.example.spring18.shell;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.util.IdRange;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.services.book.BookService;
+import com.example.spring18.shell.aspect.CatchAndWrite;
+import com.example.spring18.shell.aspect.ProfileSql;
+import com.example.spring18.shell.format.BookCommandLine;
+import com.example.spring18.shell.format.BookFileWriter;
+import com.example.spring18.shell.format.BookFormat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.nonNull;
+
+@RequiredArgsConstructor
+@ShellComponent
+public class BookFileCommands {
+
+    private static final String STDIN = "-";
+
+    private final BookService bookService;
+
+    private final LibraryProperties libraryProperties;
+
+    @ShellMethod(value = "Import books from csv or ndjson file", key = {"i", "import"})
+    @CatchAndWrite
+    @ProfileSql
+    public void importBooks(@ShellOption String file,
+                            @ShellOption(defaultValue = "__NULL__") String format) throws IOException {
+        BookFormat bookFormat = format(file, format);
+        Path checkpoint = Path.of(file + ".checkpoint");
+        long committed = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+        if (committed > 0) {
+            System.out.println(MessageFormat.format("Resuming import after {0} books", committed));
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+            long imported = bookService.importBooks(bookFormat.records(reader)
+                            .skip(nonNull(bookFormat.header()) ? 1 : 0)
+                            .filter(record -> !record.isBlank())
+                            .skip(committed)
+                            .map(bookFormat::read),
+                    count -> writeCheckpoint(checkpoint, committed + count));
+            Files.deleteIfExists(checkpoint);
+            System.out.println(MessageFormat.format("Imported books : {0}", committed + imported));
+        }
+    }
+
+    @ShellMethod(value = "Export books to csv or ndjson file", key = {"e", "export"})
+    @CatchAndWrite
+    @ProfileSql
+    public void exportBooks(@ShellOption String file,
+                            @ShellOption(defaultValue = "__NULL__") String format,
+                            @ShellOption(defaultValue = "1") int partitions) throws Exception {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partitions must be positive");
+        }
+        BookFormat bookFormat = format(file, format);
+        if (partitions == 1) {
+            try (var writer = new BookFileWriter(Path.of(file), bookFormat)) {
+                bookService.streamAllBooks(writer);
+                System.out.println(MessageFormat.format("Exported books : {0}", writer.getWritten()));
+            }
+            return;
+        }
+        IdRange range = bookService.getBookIdRange();
+        long step = (range.getMaxId() - range.getMinId()) / partitions + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(partitions, libraryProperties.getBooks().getExportThreads()));
+        try {
+            List<Future<Long>> exports = new ArrayList<>(partitions);
+            for (int partition = 0; partition < partitions; partition++) {
+                long fromId = range.getMinId() + partition * step;
+                Path partitionFile = partitionFile(file, partition);
+                exports.add(executor.submit(() -> {
+                    try (var writer = new BookFileWriter(partitionFile, bookFormat)) {
+                        bookService.streamBooksInRange(fromId, fromId + step - 1, writer);
+                        return writer.getWritten();
+                    }
+                }));
+            }
+            long exported = 0;
+            for (Future<Long> export : exports) {
+                exported += export.get();
+            }
+            System.out.println(MessageFormat.format("Exported books : {0} to {1} files", exported, partitions));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @ShellMethod(value = "Run add, update and delete commands from file or stdin in grouped transactions",
+            key = {"b", "batch"})
+    @CatchAndWrite
+    @ProfileSql
+    public void runBatch(@ShellOption(defaultValue = STDIN) String file,
+                         @ShellOption(defaultValue = "__NULL__") Integer groupSize) throws IOException {
+        int size = nonNull(groupSize) ? groupSize : libraryProperties.getBooks().getBatchGroupSize();
+        if (size <= 0) {
+            throw new IllegalArgumentException("Group size must be positive");
+        }
+        if (file.equals(STDIN)) {
+            // stdin stays open for the interactive shell
+            runBatch(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), size);
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(file))) {
+                runBatch(reader, size);
+            }
+        }
+    }
+
+    private void runBatch(BufferedReader reader, int groupSize) {
+        Map<Long, String> failures = new TreeMap<>();
+        long[] lines = new long[1];
+        long[] commands = new long[1];
+        long started = System.nanoTime();
+        long applied = bookService.applyChanges(reader.lines()
+                        .map(line -> {
+                            long lineNumber = ++lines[0];
+                            if (line.isBlank() || line.stripLeading().startsWith("#")) {
+                                return null;
+                            }
+                            commands[0]++;
+                            try {
+                                return BookCommandLine.parse(lineNumber, line);
+                            } catch (IllegalArgumentException e) {
+                                failures.put(lineNumber, e.getMessage());
+                                return null;
+                            }
+                        })
+                        .filter(Objects::nonNull),
+                groupSize,
+                (change, e) -> failures.put(change.getLine(), failureMessage(change, e)));
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.println(MessageFormat.format("Batch commands : {0}, applied : {1}, failed : {2}",
+                commands[0], applied, failures.size()));
+        System.out.println(String.format(Locale.ROOT, "Elapsed : %.3f s, throughput : %.0f commands/s",
+                seconds, seconds > 0 ? commands[0] / seconds : 0));
+        failures.forEach((line, message) -> System.out.println(MessageFormat.format("Line {0} failed : {1}",
+                Long.toString(line), message)));
+    }
+
+    private static String failureMessage(BookChange change, RuntimeException e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        return change.getType().name().toLowerCase(Locale.ROOT) + " : "
+                + Objects.requireNonNullElse(cause.getMessage(), cause.getClass().getSimpleName()).replace('\n', ' ');
+    }
+
+    private static Path partitionFile(String file, int partition) {
+        int extension = file.lastIndexOf('.');
+        return extension > file.lastIndexOf(File.separatorChar)
+                ? Path.of(file.substring(0, extension) + "-" + partition + file.substring(extension))
+                : Path.of(file + "-" + partition);
+    }
+
+    private static BookFormat format(String file, String format) {
+        return nonNull(format) ? BookFormat.valueOf(format.toUpperCase(Locale.ROOT)) : BookFormat.of(file);
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long committed) {
+        try {
+            Files.writeString(checkpoint, Long.toString(committed));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.spring18.shell;
+
+import com.example.spring18.dao.aspect.DaoMetricsAspect;
+import com.example.spring18.shell.aspect.CatchAndWrite;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.nonNull;
+
+@RequiredArgsConstructor
+@ShellComponent
+public class MetricsCommands {
+
+    private final PrometheusMeterRegistry meterRegistry;
+
+    @ShellMethod(value = "Show DAO metrics", key = {"m", "metrics"})
+    @CatchAndWrite
+    public void showMetrics(@ShellOption(defaultValue = "__NULL__") String prometheusFile) throws IOException {
+        System.out.println("DAO calls by total time :");
+        meterRegistry.find(DaoMetricsAspect.CALLS).timers().stream()
+                .sorted(Comparator.comparingDouble((Timer timer) -> timer.totalTime(TimeUnit.MILLISECONDS)).reversed())
+                .forEach(this::printTimer);
+        System.out.println("Caches :");
+        meterRegistry.find("library.cache.size").gauges().stream()
+                .map(gauge -> gauge.getId().getTag("cache"))
+                .sorted()
+                .forEach(this::printCache);
+        if (nonNull(prometheusFile)) {
+            Files.writeString(Path.of(prometheusFile), meterRegistry.scrape());
+            System.out.println("Prometheus metrics are written to " + prometheusFile);
+        }
+    }
+
+    private void printTimer(Timer timer) {
+        String dao = timer.getId().getTag("dao");
+        String method = timer.getId().getTag("method");
+        ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+        DistributionSummary rows = meterRegistry.find(DaoMetricsAspect.ROWS)
+                .tags("dao", dao, "method", method)
+                .summary();
+        double errors = meterRegistry.find(DaoMetricsAspect.ERRORS)
+                .tags("dao", dao, "method", method)
+                .counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        System.out.println(MessageFormat.format(
+                "{0}.{1} [{2}]: count={3}, total={4,number,#.###} ms, mean={5,number,#.###} ms, {6}, rows={7,number,#}, errors={8,number,#}",
+                dao, method, timer.getId().getTag("outcome"), timer.count(),
+                timer.totalTime(TimeUnit.MILLISECONDS), timer.mean(TimeUnit.MILLISECONDS),
+                formatPercentiles(percentiles), nonNull(rows) ? rows.totalAmount() : 0, errors));
+    }
+
+    private void printCache(String cache) {
+        double hits = cacheGets(cache, "hit");
+        double misses = cacheGets(cache, "miss");
+        System.out.println(MessageFormat.format(
+                "{0}: size={1,number,#}, hits={2,number,#}, misses={3,number,#}, hit ratio={4,number,#.##%}, evictions={5,number,#}",
+                cache, meterRegistry.get("library.cache.size").tag("cache", cache).gauge().value(), hits, misses,
+                hits + misses > 0 ? hits / (hits + misses) : 0,
+                meterRegistry.get("library.cache.evictions").tag("cache", cache).functionCounter().count()));
+    }
+
+    private double cacheGets(String cache, String result) {
+        return meterRegistry.get("library.cache.gets").tags("cache", cache, "result", result).functionCounter().count();
+    }
+
+    private static String formatPercentiles(ValueAtPercentile[] percentiles) {
+        StringBuilder result = new StringBuilder();
+        for (ValueAtPercentile percentile : percentiles) {
+            if (!result.isEmpty()) {
+                result.append(", ");
+            }
+            result.append(MessageFormat.format("p{0,number,#.#}={1,number,#.###} ms", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.spring18.shell;
+
+import com.example.spring18.services.book.ReactiveBookService;
+import com.example.spring18.shell.aspect.CatchAndWrite;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+
+import java.text.MessageFormat;
+
+@RequiredArgsConstructor
+@ShellComponent
+@Profile("r2dbc")
+public class ReactiveShellCommands {
+
+    private final ReactiveBookService reactiveBookService;
+
+    @ShellMethod(value = "Get book by id through R2DBC", key = {"rg", "reactive-get"})
+    @CatchAndWrite
+    public void getBookById(@ShellOption long id) {
+        System.out.println(MessageFormat.format("Book by id {0}: {1}", id,
+                reactiveBookService.getBookById(id).block()));
+    }
+
+    @ShellMethod(value = "Stream all books through R2DBC", key = {"ra", "reactive-all"})
+    @CatchAndWrite
+    public void streamAllBooks(@ShellOption(defaultValue = "256") int prefetch) {
+        System.out.println("Found books are :");
+        Long count = reactiveBookService.streamAllBooks()
+                .limitRate(prefetch)
+                .doOnNext(System.out::println)
+                .count()
+                .block();
+        System.out.println("Streamed books : " + count);
+    }
+}
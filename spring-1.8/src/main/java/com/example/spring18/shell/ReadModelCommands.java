@@ -0,0 +1,40 @@
+package com.example.spring18.shell;
+
+import com.example.spring18.services.book.BookReadModel;
+import com.example.spring18.shell.aspect.CatchAndWrite;
+import lombok.RequiredArgsConstructor;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+
+@RequiredArgsConstructor
+@ShellComponent
+public class ReadModelCommands {
+
+    private final BookReadModel bookReadModel;
+
+    @ShellMethod(value = "Write the read model to its snapshot file", key = {"snap", "snapshot"})
+    @CatchAndWrite
+    public void writeSnapshot() throws IOException {
+        long started = System.nanoTime();
+        Path file = bookReadModel.writeSnapshot();
+        System.out.println(MessageFormat.format("Snapshot {0} written : {1} bytes in {2} ms", file,
+                Files.size(file), (System.nanoTime() - started) / 1_000_000));
+    }
+
+    @ShellMethod(value = "Reload the read model from its snapshot file", key = {"restore"})
+    @CatchAndWrite
+    public void restoreSnapshot() {
+        long started = System.nanoTime();
+        if (bookReadModel.restoreSnapshot()) {
+            System.out.println(MessageFormat.format("Read model restored in {0} ms",
+                    (System.nanoTime() - started) / 1_000_000));
+        } else {
+            System.out.println("Snapshot was not restored, the read model is unchanged");
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.example.spring18.shell;
 
 import com.example.spring18.domain.Author;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookPage;
 import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
 import com.example.spring18.services.book.BookService;
 import com.example.spring18.shell.aspect.CatchAndWrite;
+import com.example.spring18.shell.aspect.ProfileSql;
 import lombok.RequiredArgsConstructor;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
@@ -14,8 +17,8 @@ import org.springframework.shell.standard.ShellOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 @RequiredArgsConstructor
@@ -26,6 +29,7 @@ public class ShellCommands {
 
     @ShellMethod(value = "Add book", key = {"a", "add"})
     @CatchAndWrite
+    @ProfileSql
     public void addBook(@ShellOption String bookName, @ShellOption(defaultValue = "__NULL__") String authorInitials,
                         @ShellOption(defaultValue = "__NULL__") String authorLastname,
                         @ShellOption(defaultValue = "__NULL__") String... genreNames) {
@@ -50,6 +54,7 @@ public class ShellCommands {
 
     @ShellMethod(value = "Get book by id", key = {"g", "get"})
     @CatchAndWrite
+    @ProfileSql
     public void getBookById(@ShellOption long id) {
         Book foundBook = bookService.getBookById(id);
         System.out.println(MessageFormat.format("Book by id {0}: {1}", id, foundBook));
@@ -57,15 +62,82 @@ public class ShellCommands {
 
     @ShellMethod(value = "Get all books", key = {"all"})
     @CatchAndWrite
+    @ProfileSql
     public void getAllBooks() {
-        List<Book> foundBooks = bookService.getAllBooks();
-        System.out.println("Found books by are :\n" + foundBooks.stream()
-                .map(Book::toString)
-                .collect(Collectors.joining("\n")));
+        System.out.println("Found books by are :");
+        bookService.streamAllBooks(System.out::println);
+    }
+
+    @ShellMethod(value = "Get books by author id or lastname", key = {"ba", "by-author"})
+    @CatchAndWrite
+    @ProfileSql
+    public void getBooksByAuthor(@ShellOption(defaultValue = "__NULL__") Long id,
+                                 @ShellOption(defaultValue = "__NULL__") String lastname) {
+        if (isNull(id) == isNull(lastname)) {
+            System.out.println("Specify either author id or author lastname");
+            return;
+        }
+        List<Book> books = nonNull(id) ? bookService.getBooksByAuthorId(id)
+                : bookService.getBooksByAuthorLastname(lastname);
+        System.out.println("Found books are :");
+        books.forEach(System.out::println);
+    }
+
+    @ShellMethod(value = "Get books by genres", key = {"bg", "by-genre"})
+    @CatchAndWrite
+    @ProfileSql
+    public void getBooksByGenres(@ShellOption(defaultValue = "false") boolean all, @ShellOption String... genreNames) {
+        List<Book> books = bookService.getBooksByGenres(List.of(genreNames), all);
+        System.out.println("Found books are :");
+        books.forEach(System.out::println);
+    }
+
+    @ShellMethod(value = "Get or count books by genre query, e.g. Adventure AND Romance OR Drama NOT Horror",
+            key = {"gq", "genre-query"})
+    @CatchAndWrite
+    @ProfileSql
+    public void getBooksByGenreQuery(@ShellOption(defaultValue = "false") boolean count,
+                                     @ShellOption String... query) {
+        GenreQuery genreQuery = GenreQuery.parse(String.join(" ", query));
+        if (count) {
+            System.out.println("Found books : " + bookService.countBooksByGenreQuery(genreQuery));
+            return;
+        }
+        List<Book> books = bookService.getBooksByGenreQuery(genreQuery);
+        System.out.println("Found books are :");
+        books.forEach(System.out::println);
+    }
+
+    @ShellMethod(value = "Search books by name and author lastname", key = {"s", "search"})
+    @CatchAndWrite
+    @ProfileSql
+    public void searchBooks(@ShellOption String query, @ShellOption(defaultValue = "20") int limit) {
+        List<Book> books = bookService.search(query, limit);
+        System.out.println("Found books are :");
+        books.forEach(System.out::println);
+    }
+
+    @ShellMethod(value = "Get page of books", key = {"p", "page"})
+    @CatchAndWrite
+    @ProfileSql
+    public void getBooksPage(@ShellOption(defaultValue = "0") long after,
+                             @ShellOption(defaultValue = "__NULL__") Long before,
+                             @ShellOption(defaultValue = "20") int size) {
+        BookPage page = nonNull(before) ? bookService.getBooksPageBefore(before, size)
+                : bookService.getBooksPageAfter(after, size);
+        System.out.println("Found books are :");
+        page.getBooks().forEach(System.out::println);
+        if (nonNull(page.getPreviousCursor())) {
+            System.out.println("Previous page : page --before " + page.getPreviousCursor());
+        }
+        if (nonNull(page.getNextCursor())) {
+            System.out.println("Next page : page --after " + page.getNextCursor());
+        }
     }
 
     @ShellMethod(value = "Update book by id", key = {"u", "update"})
     @CatchAndWrite
+    @ProfileSql
     public void updateBook(@ShellOption long bookId, @ShellOption String bookName,
                            @ShellOption(defaultValue = "__NULL__") String authorInitials,
                            @ShellOption(defaultValue = "__NULL__") String authorLastname,
@@ -92,6 +164,7 @@ public class ShellCommands {
 
     @ShellMethod(value = "Delete book by id", key = {"d", "delete"})
     @CatchAndWrite
+    @ProfileSql
     public void deleteBookById(@ShellOption long id) {
         bookService.deleteBookById(id);
         System.out.println(MessageFormat.format("Book by id {0} is deleted", id));
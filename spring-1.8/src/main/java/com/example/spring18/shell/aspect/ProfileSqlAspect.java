@@ -0,0 +1,43 @@
+package com.example.spring18.shell.aspect;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.profiling.SqlProfile;
+import com.example.spring18.dao.profiling.SqlProfiler;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "library.profiling", name = "enabled", havingValue = "true")
+public class ProfileSqlAspect {
+
+    private final LibraryProperties properties;
+
+    @Around("@annotation(ProfileSql)")
+    public Object writeSqlProfile(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (SqlProfiler.Scope scope = SqlProfiler.start()) {
+            try {
+                return joinPoint.proceed();
+            } finally {
+                write(scope.profile());
+            }
+        }
+    }
+
+    private void write(SqlProfile profile) {
+        System.out.println(MessageFormat.format("SQL : {0} statements, {1} rows, {2} ms",
+                profile.getStatements(), profile.getRows(),
+                TimeUnit.NANOSECONDS.toMillis(profile.getDatabaseNanos())));
+        profile.getRepeatedShapes(properties.getProfiling().getRepeatedStatementThreshold())
+                .forEach((sql, count) -> System.out.println(
+                        MessageFormat.format("Possible N+1 : {0} times {1}", count, sql)));
+    }
+}
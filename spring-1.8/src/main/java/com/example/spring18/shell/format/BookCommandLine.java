@@ -0,0 +1,194 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.domain.Genre;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Reads {@code add}, {@code update} and {@code delete} in the syntax of the shell commands: named
+ * {@code --bookName} (or {@code --book-name}) options and positional arguments in parameter order,
+ * with single or double quotes around values containing spaces.
+ */
+public final class BookCommandLine {
+
+    private static final List<String> ADD_PARAMETERS = List.of("bookName", "authorInitials", "authorLastname",
+            "genreNames");
+
+    private static final List<String> UPDATE_PARAMETERS = List.of("bookId", "bookName", "authorInitials",
+            "authorLastname", "genreNames");
+
+    private static final List<String> DELETE_PARAMETERS = List.of("id");
+
+    private BookCommandLine() {
+    }
+
+    public static BookChange parse(long line, String command) {
+        List<String> tokens = split(command);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Empty command");
+        }
+        return switch (tokens.get(0)) {
+            case "a", "add" -> {
+                Map<String, List<String>> args = bind(tokens, ADD_PARAMETERS);
+                yield change(BookChange.Type.ADD, line, book(args).build());
+            }
+            case "u", "update" -> {
+                Map<String, List<String>> args = bind(tokens, UPDATE_PARAMETERS);
+                yield change(BookChange.Type.UPDATE, line, book(args)
+                        .id(longArg(args, "bookId"))
+                        .build());
+            }
+            case "d", "delete" -> {
+                Map<String, List<String>> args = bind(tokens, DELETE_PARAMETERS);
+                yield change(BookChange.Type.DELETE, line, Book.builder()
+                        .id(longArg(args, "id"))
+                        .build());
+            }
+            default -> throw new IllegalArgumentException("Only add, update and delete can be batched : "
+                    + tokens.get(0));
+        };
+    }
+
+    static List<String> split(String command) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean inToken = false;
+        char quote = 0;
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && i + 1 < command.length()) {
+                    token.append(command.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unclosed quote : " + command);
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * The last parameter takes all the remaining values, like the shell varargs do.
+     */
+    private static Map<String, List<String>> bind(List<String> tokens, List<String> parameters) {
+        Map<String, List<String>> args = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        List<String> values = positional;
+        for (String token : tokens.subList(1, tokens.size())) {
+            if (token.startsWith("--")) {
+                String parameter = parameter(token.substring(2), parameters);
+                if (args.containsKey(parameter)) {
+                    throw new IllegalArgumentException("Duplicate option : " + token);
+                }
+                values = new ArrayList<>();
+                args.put(parameter, values);
+            } else {
+                values.add(token);
+            }
+        }
+        for (String parameter : parameters) {
+            if (args.containsKey(parameter)) {
+                continue;
+            }
+            boolean last = parameter.equals(parameters.get(parameters.size() - 1));
+            if (!positional.isEmpty()) {
+                List<String> taken = last ? positional : positional.subList(0, 1);
+                args.put(parameter, new ArrayList<>(taken));
+                taken.clear();
+            }
+        }
+        if (!positional.isEmpty()) {
+            throw new IllegalArgumentException("Unexpected arguments : " + positional);
+        }
+        return args;
+    }
+
+    private static String parameter(String option, List<String> parameters) {
+        String normalized = option.replace("-", "").toLowerCase(Locale.ROOT);
+        return parameters.stream()
+                .filter(parameter -> parameter.toLowerCase(Locale.ROOT).equals(normalized))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown option : --" + option));
+    }
+
+    private static Book.BookBuilder book(Map<String, List<String>> args) {
+        List<Genre> genres = new ArrayList<>();
+        for (String genreName : args.getOrDefault("genreNames", List.of())) {
+            genres.add(Genre.builder()
+                    .name(genreName)
+                    .build());
+        }
+        return Book.builder()
+                .name(requiredArg(args, "bookName"))
+                .author(Author.builder()
+                        .initials(arg(args, "authorInitials"))
+                        .lastName(arg(args, "authorLastname"))
+                        .build())
+                .genres(genres);
+    }
+
+    private static BookChange change(BookChange.Type type, long line, Book book) {
+        return BookChange.builder()
+                .type(type)
+                .line(line)
+                .book(book)
+                .build();
+    }
+
+    private static String arg(Map<String, List<String>> args, String parameter) {
+        List<String> values = args.get(parameter);
+        if (isNull(values) || values.isEmpty()) {
+            return null;
+        }
+        if (values.size() > 1) {
+            throw new IllegalArgumentException("Expected one value for --" + parameter + " but was " + values);
+        }
+        return values.get(0);
+    }
+
+    private static String requiredArg(Map<String, List<String>> args, String parameter) {
+        String value = arg(args, parameter);
+        if (isNull(value)) {
+            throw new IllegalArgumentException("Missing mandatory option --" + parameter);
+        }
+        return value;
+    }
+
+    private static long longArg(Map<String, List<String>> args, String parameter) {
+        String value = requiredArg(args, parameter);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number for --" + parameter + " but was " + value);
+        }
+    }
+}
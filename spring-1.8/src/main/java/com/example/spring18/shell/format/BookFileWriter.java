@@ -0,0 +1,91 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.nonNull;
+
+public class BookFileWriter implements Consumer<Book>, Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final CharBuffer LINE_SEPARATOR = CharBuffer.wrap("\n");
+
+    private final FileChannel channel;
+
+    private final BookFormat format;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long written;
+
+    public BookFileWriter(Path path, BookFormat format) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, WRITE);
+        this.format = format;
+        if (nonNull(format.header())) {
+            writeLine(format.header());
+        }
+    }
+
+    @Override
+    public void accept(Book book) {
+        try {
+            writeLine(format.write(book));
+            written++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            flush();
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        encode(CharBuffer.wrap(line));
+        encode(LINE_SEPARATOR.duplicate());
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, buffer, true);
+        while (result.isOverflow()) {
+            flush();
+            result = encoder.encode(chars, buffer, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
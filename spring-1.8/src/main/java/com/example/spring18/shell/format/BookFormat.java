@@ -0,0 +1,144 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+public enum BookFormat {
+
+    CSV {
+        @Override
+        public String header() {
+            return "name,author_initials,author_lastname,genres";
+        }
+
+        @Override
+        public Book read(String line) {
+            List<String> fields = CsvLine.split(line);
+            if (fields.size() != 4) {
+                throw new IllegalArgumentException("Expected 4 csv fields but was " + fields.size() + " : " + line);
+            }
+            List<Genre> genres = new ArrayList<>();
+            if (!fields.get(3).isEmpty()) {
+                for (String genreName : CsvLine.splitList(fields.get(3))) {
+                    genres.add(Genre.builder().name(genreName).build());
+                }
+            }
+            return book(fields.get(0), emptyToNull(fields.get(1)), emptyToNull(fields.get(2)), genres);
+        }
+
+        @Override
+        public String write(Book book) {
+            Author author = book.getAuthor();
+            return String.join(",",
+                    CsvLine.quote(book.getName()),
+                    CsvLine.quote(nonNull(author) ? author.getInitials() : null),
+                    CsvLine.quote(nonNull(author) ? author.getLastName() : null),
+                    CsvLine.quote(isNull(book.getGenres()) ? null : CsvLine.joinList(book.getGenres().stream()
+                            .map(Genre::getName)
+                            .toList())));
+        }
+
+        @Override
+        public Stream<String> records(BufferedReader reader) {
+            return CsvLine.records(reader);
+        }
+    },
+
+    NDJSON {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public Book read(String line) {
+            try {
+                JsonNode node = MAPPER.readTree(line);
+                List<Genre> genres = new ArrayList<>();
+                node.path("genres").forEach(genre -> genres.add(Genre.builder().name(genre.asText()).build()));
+                return book(node.path("name").asText(), text(node, "authorInitials"), text(node, "authorLastname"),
+                        genres);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String write(Book book) {
+            ObjectNode node = MAPPER.createObjectNode();
+            node.put("id", book.getId());
+            node.put("name", book.getName());
+            if (nonNull(book.getAuthor())) {
+                node.put("authorInitials", book.getAuthor().getInitials());
+                node.put("authorLastname", book.getAuthor().getLastName());
+            }
+            ArrayNode genres = node.putArray("genres");
+            if (nonNull(book.getGenres())) {
+                book.getGenres().forEach(genre -> genres.add(genre.getName()));
+            }
+            return node.toString();
+        }
+    };
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public abstract String header();
+
+    public abstract Book read(String line);
+
+    /**
+     * Splits the file into the records passed to {@link #read(String)}, one per line by default.
+     */
+    public Stream<String> records(BufferedReader reader) {
+        return reader.lines();
+    }
+
+    public abstract String write(Book book);
+
+    public static BookFormat of(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unknown book file format : " + fileName);
+    }
+
+    private static Book book(String name, String initials, String lastName, List<Genre> genres) {
+        return Book.builder()
+                .name(name)
+                .author(Author.builder()
+                        .initials(initials)
+                        .lastName(lastName)
+                        .build())
+                .genres(genres)
+                .build();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return isNull(value) || value.isNull() ? null : value.asText();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
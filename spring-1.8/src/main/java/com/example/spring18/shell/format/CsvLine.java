@@ -0,0 +1,145 @@
+package com.example.spring18.shell.format;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.isNull;
+
+final class CsvLine {
+
+    private static final char LIST_SEPARATOR = '|';
+
+    private static final char ESCAPE = '\\';
+
+    private CsvLine() {
+    }
+
+    /**
+     * Splits the text into records on line breaks outside of quotes, so a quoted field may hold
+     * line breaks of its own.
+     */
+    static Stream<String> records(Reader reader) {
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<String>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+
+            private final StringBuilder record = new StringBuilder();
+
+            private int next = -2;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                try {
+                    int c = next == -2 ? reader.read() : next;
+                    next = -2;
+                    if (c < 0) {
+                        return false;
+                    }
+                    boolean quoted = false;
+                    record.setLength(0);
+                    while (c >= 0 && (quoted || (c != '\n' && c != '\r'))) {
+                        if (c == '"') {
+                            quoted = !quoted;
+                        }
+                        record.append((char) c);
+                        c = reader.read();
+                    }
+                    if (c == '\r') {
+                        next = reader.read();
+                        if (next == '\n') {
+                            next = -2;
+                        }
+                    }
+                    action.accept(record.toString());
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }, false);
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static String quote(String value) {
+        if (isNull(value)) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Joins the values with {@code |}, escaping {@code |} and {@code \} inside them with {@code \}.
+     */
+    static String joinList(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (!joined.isEmpty()) {
+                joined.append(LIST_SEPARATOR);
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == LIST_SEPARATOR || c == ESCAPE) {
+                    joined.append(ESCAPE);
+                }
+                joined.append(c);
+            }
+        }
+        return joined.toString();
+    }
+
+    static List<String> splitList(String joined) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < joined.length(); i++) {
+            char c = joined.charAt(i);
+            if (c == ESCAPE && i + 1 < joined.length()) {
+                value.append(joined.charAt(++i));
+            } else if (c == LIST_SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.spring18.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Whether {@link #run(Runnable)} would wait for the current transaction to commit.
+     */
+    public static boolean isDeferred() {
+        return TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    public static void run(Runnable action) {
+        if (isDeferred()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
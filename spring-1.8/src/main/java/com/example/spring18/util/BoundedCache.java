@@ -0,0 +1,169 @@
+package com.example.spring18.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import static java.util.Objects.isNull;
+
+public class BoundedCache<K, V> implements MeteredCache {
+
+    private final String name;
+
+    private final long maximumWeight;
+
+    private final ToIntFunction<? super V> weigher;
+
+    private final long ttlNanos;
+
+    private final LongSupplier ticker;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public BoundedCache(String name, int maximumSize, Duration ttl) {
+        this(name, maximumSize, ttl, System::nanoTime);
+    }
+
+    public BoundedCache(String name, int maximumSize, Duration ttl, LongSupplier ticker) {
+        this(name, maximumSize, value -> 1, ttl, ticker);
+    }
+
+    public BoundedCache(String name, long maximumWeight, ToIntFunction<? super V> weigher, Duration ttl,
+                        LongSupplier ticker) {
+        this.name = name;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (isNull(entry)) {
+            misses++;
+            return null;
+        }
+        if (ticker.getAsLong() - entry.expiresAt > 0) {
+            remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            V value = get(key);
+            if (!isNull(value)) {
+                return value;
+            }
+            loadGeneration = generation;
+        }
+        V value = loader.apply(key);
+        if (!isNull(value)) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    put(key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        int valueWeight = weigher.applyAsInt(value);
+        if (valueWeight > maximumWeight) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry<>(value, valueWeight, ticker.getAsLong() + ttlNanos));
+        weight += valueWeight;
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weight > maximumWeight) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        remove(key);
+    }
+
+    public synchronized void invalidateIf(Predicate<? super V> predicate) {
+        generation++;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (predicate.test(entry.value)) {
+                weight -= entry.weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    private void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (!isNull(entry)) {
+            weight -= entry.weight;
+        }
+    }
+
+    private record Entry<V>(V value, int weight, long expiresAt) {
+    }
+}
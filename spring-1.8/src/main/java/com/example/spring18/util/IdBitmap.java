@@ -0,0 +1,393 @@
+package com.example.spring18.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Compressed set of {@code long} ids in the Roaring layout: ids are split by their high bits into
+ * chunks of 65536, and each chunk is a sorted {@code char[]} while it holds up to 4096 ids or a plain
+ * 8 KB bitmap above that. Set operations work chunk by chunk and return new bitmaps.
+ */
+public class IdBitmap {
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final int ARRAY_MAX = 4096;
+
+    private static final int WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    private long[] keys;
+
+    private Chunk[] chunks;
+
+    private int size;
+
+    public IdBitmap() {
+        this(4);
+    }
+
+    private IdBitmap(int capacity) {
+        keys = new long[capacity];
+        chunks = new Chunk[capacity];
+    }
+
+    public boolean add(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> CHUNK_BITS);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, id >>> CHUNK_BITS, new Chunk());
+        }
+        return chunks[index].add((char) id);
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> CHUNK_BITS);
+        if (index < 0 || !chunks[index].remove((char) id)) {
+            return false;
+        }
+        if (chunks[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+            chunks[--size] = null;
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        int index = Arrays.binarySearch(keys, 0, size, id >>> CHUNK_BITS);
+        return index >= 0 && chunks[index].contains((char) id);
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Ids in ascending order.
+     */
+    public void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << CHUNK_BITS, consumer);
+        }
+    }
+
+    public long[] toArray() {
+        long[] ids = new long[Math.toIntExact(cardinality())];
+        int[] next = {0};
+        forEach(id -> ids[next[0]++] = id);
+        return ids;
+    }
+
+    public IdBitmap and(IdBitmap other) {
+        var result = new IdBitmap(Math.max(1, Math.min(size, other.size)));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], Chunk.and(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    public IdBitmap or(IdBitmap other) {
+        var result = new IdBitmap(Math.max(1, size + other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || i < size && keys[i] < other.keys[j]) {
+                result.append(keys[i], chunks[i++].copy());
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.chunks[j++].copy());
+            } else {
+                result.append(keys[i], Chunk.or(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    public IdBitmap andNot(IdBitmap other) {
+        var result = new IdBitmap(Math.max(1, size));
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            boolean overlaps = j < other.size && other.keys[j] == keys[i];
+            result.append(keys[i], overlaps ? Chunk.andNot(chunks[i], other.chunks[j]) : chunks[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Approximate heap taken by the chunks, for metrics.
+     */
+    public long sizeInBytes() {
+        long bytes = (long) keys.length * (Long.BYTES + 4);
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i].isBitmap() ? WORDS * Long.BYTES : chunks[i].values.length * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    private void append(long key, Chunk chunk) {
+        if (chunk.cardinality > 0) {
+            insert(size, key, chunk);
+        }
+    }
+
+    private void insert(int index, long key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    /**
+     * Low 16 bits of the ids of one chunk, either as sorted {@code values} or as {@code words}.
+     */
+    private static final class Chunk {
+
+        private char[] values = new char[4];
+
+        private long[] words;
+
+        private int cardinality;
+
+        boolean isBitmap() {
+            return words != null;
+        }
+
+        boolean add(char value) {
+            if (isBitmap()) {
+                long before = words[value >>> 6];
+                words[value >>> 6] |= 1L << value;
+                if (before == words[value >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (isBitmap()) {
+                long before = words[value >>> 6];
+                words[value >>> 6] &= ~(1L << value);
+                if (before == words[value >>> 6]) {
+                    return false;
+                }
+                cardinality--;
+                if (cardinality <= ARRAY_MAX / 2) {
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        boolean contains(char value) {
+            if (isBitmap()) {
+                return (words[value >>> 6] & 1L << value) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        void forEach(long base, LongConsumer consumer) {
+            if (!isBitmap()) {
+                for (int i = 0; i < cardinality; i++) {
+                    consumer.accept(base | values[i]);
+                }
+                return;
+            }
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(base | (long) i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        Chunk copy() {
+            var copy = new Chunk();
+            copy.cardinality = cardinality;
+            if (isBitmap()) {
+                copy.words = words.clone();
+                copy.values = null;
+            } else {
+                copy.values = Arrays.copyOf(values, Math.max(1, cardinality));
+            }
+            return copy;
+        }
+
+        static Chunk and(Chunk first, Chunk second) {
+            if (!first.isBitmap() && !second.isBitmap()) {
+                var result = new Chunk();
+                result.values = new char[Math.max(1, Math.min(first.cardinality, second.cardinality))];
+                int i = 0;
+                int j = 0;
+                while (i < first.cardinality && j < second.cardinality) {
+                    if (first.values[i] < second.values[j]) {
+                        i++;
+                    } else if (first.values[i] > second.values[j]) {
+                        j++;
+                    } else {
+                        result.values[result.cardinality++] = first.values[i++];
+                        j++;
+                    }
+                }
+                return result;
+            }
+            if (!first.isBitmap() || !second.isBitmap()) {
+                Chunk array = first.isBitmap() ? second : first;
+                Chunk bitmap = first.isBitmap() ? first : second;
+                var result = new Chunk();
+                result.values = new char[Math.max(1, array.cardinality)];
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (bitmap.contains(array.values[i])) {
+                        result.values[result.cardinality++] = array.values[i];
+                    }
+                }
+                return result;
+            }
+            long[] words = new long[WORDS];
+            for (int i = 0; i < WORDS; i++) {
+                words[i] = first.words[i] & second.words[i];
+            }
+            return ofWords(words);
+        }
+
+        static Chunk or(Chunk first, Chunk second) {
+            if (!first.isBitmap() && !second.isBitmap()
+                    && first.cardinality + second.cardinality <= ARRAY_MAX) {
+                var result = new Chunk();
+                result.values = new char[Math.max(1, first.cardinality + second.cardinality)];
+                int i = 0;
+                int j = 0;
+                while (i < first.cardinality || j < second.cardinality) {
+                    char next;
+                    if (j == second.cardinality || i < first.cardinality && first.values[i] < second.values[j]) {
+                        next = first.values[i++];
+                    } else if (i == first.cardinality || first.values[i] > second.values[j]) {
+                        next = second.values[j++];
+                    } else {
+                        next = first.values[i++];
+                        j++;
+                    }
+                    result.values[result.cardinality++] = next;
+                }
+                return result;
+            }
+            long[] words = first.bitmapWords();
+            long[] secondWords = second.bitmapWords();
+            for (int i = 0; i < WORDS; i++) {
+                words[i] |= secondWords[i];
+            }
+            return ofWords(words);
+        }
+
+        static Chunk andNot(Chunk first, Chunk second) {
+            if (!first.isBitmap()) {
+                var result = new Chunk();
+                result.values = new char[Math.max(1, first.cardinality)];
+                for (int i = 0; i < first.cardinality; i++) {
+                    if (!second.contains(first.values[i])) {
+                        result.values[result.cardinality++] = first.values[i];
+                    }
+                }
+                return result;
+            }
+            long[] words = first.words.clone();
+            if (second.isBitmap()) {
+                for (int i = 0; i < WORDS; i++) {
+                    words[i] &= ~second.words[i];
+                }
+            } else {
+                for (int i = 0; i < second.cardinality; i++) {
+                    words[second.values[i] >>> 6] &= ~(1L << second.values[i]);
+                }
+            }
+            return ofWords(words);
+        }
+
+        private static Chunk ofWords(long[] words) {
+            var result = new Chunk();
+            result.words = words;
+            result.values = null;
+            for (long word : words) {
+                result.cardinality += Long.bitCount(word);
+            }
+            if (result.cardinality <= ARRAY_MAX) {
+                result.toArray();
+            }
+            return result;
+        }
+
+        /**
+         * Returns a fresh copy of the ids as bitmap words.
+         */
+        private long[] bitmapWords() {
+            if (isBitmap()) {
+                return words.clone();
+            }
+            long[] bitmap = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bitmap[values[i] >>> 6] |= 1L << values[i];
+            }
+            return bitmap;
+        }
+
+        private void toBitmap() {
+            words = bitmapWords();
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[Math.max(1, cardinality)];
+            int[] next = {0};
+            forEach(0, value -> array[next[0]++] = (char) value);
+            values = array;
+            words = null;
+        }
+    }
+}
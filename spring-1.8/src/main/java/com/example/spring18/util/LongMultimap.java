@@ -0,0 +1,100 @@
+package com.example.spring18.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Open-addressing multimap from {@code long} keys to {@code long} values without boxing.
+ * Values of a key are kept in insertion order as a linked list over plain arrays.
+ */
+public class LongMultimap {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+
+    private int[] heads;
+
+    private int[] tails;
+
+    private long[] values;
+
+    private int[] next;
+
+    private int keyCount;
+
+    private int valueCount;
+
+    public LongMultimap(int expectedKeys, int expectedValues) {
+        int capacity = Integer.highestOneBit(Math.max(1, expectedKeys) * 4 - 1);
+        keys = new long[capacity];
+        heads = new int[capacity];
+        tails = new int[capacity];
+        Arrays.fill(heads, EMPTY);
+        values = new long[Math.max(1, expectedValues)];
+        next = new int[values.length];
+    }
+
+    public void put(long key, long value) {
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            next = Arrays.copyOf(next, next.length * 2);
+        }
+        values[valueCount] = value;
+        next[valueCount] = EMPTY;
+        int slot = slot(key);
+        if (heads[slot] == EMPTY) {
+            keys[slot] = key;
+            heads[slot] = valueCount;
+            keyCount++;
+        } else {
+            next[tails[slot]] = valueCount;
+        }
+        tails[slot] = valueCount++;
+        if (keyCount * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public void forEach(long key, LongConsumer consumer) {
+        for (int i = heads[slot(key)]; i != EMPTY; i = next[i]) {
+            consumer.accept(values[i]);
+        }
+    }
+
+    public int size() {
+        return valueCount;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (heads[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        int[] oldTails = tails;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[keys.length];
+        tails = new int[keys.length];
+        Arrays.fill(heads, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+                tails[slot] = oldTails[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
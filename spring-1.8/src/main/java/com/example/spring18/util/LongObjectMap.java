@@ -0,0 +1,112 @@
+package com.example.spring18.util;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from {@code long} keys to objects without boxing the keys. Linear probing,
+ * removal shifts the following entries back so lookups never need tombstones.
+ */
+public class LongObjectMap<V> {
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(1, expectedSize) * 4 - 1);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = slot(key);
+        return (V) values[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = slot(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size * 2 > keys.length) {
+            rehash();
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slot(key);
+        V previous = (V) values[slot];
+        if (previous == null) {
+            return null;
+        }
+        values[slot] = null;
+        size--;
+        int mask = keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = mix(keys[next]) & mask;
+            // moves the entry into the freed slot unless its home lies cyclically between them
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.spring18.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Sorted set of {@code long} ids over a plain array, the postings list of one key of an
+ * inverted index. Lookups are binary searches; adding and removing shift the tail.
+ */
+public class LongPostings {
+
+    private long[] ids = new long[4];
+
+    private int size;
+
+    public boolean add(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertion = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+        ids[insertion] = id;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(ids[i]);
+        }
+    }
+
+    /**
+     * Ids present in every list, in ascending order. Walks the shortest list and probes the others.
+     */
+    public static long[] intersect(LongPostings... lists) {
+        if (lists.length == 0) {
+            return new long[0];
+        }
+        LongPostings shortest = lists[0];
+        for (LongPostings list : lists) {
+            if (list.size < shortest.size) {
+                shortest = list;
+            }
+        }
+        long[] result = new long[shortest.size];
+        int count = 0;
+        for (int i = 0; i < shortest.size; i++) {
+            long id = shortest.ids[i];
+            boolean everywhere = true;
+            for (LongPostings list : lists) {
+                if (list != shortest && !list.contains(id)) {
+                    everywhere = false;
+                    break;
+                }
+            }
+            if (everywhere) {
+                result[count++] = id;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Ids present in any of the lists, in ascending order without duplicates.
+     */
+    public static long[] union(LongPostings... lists) {
+        int total = 0;
+        for (LongPostings list : lists) {
+            total += list.size;
+        }
+        long[] result = new long[total];
+        int count = 0;
+        for (LongPostings list : lists) {
+            System.arraycopy(list.ids, 0, result, count, list.size);
+            count += list.size;
+        }
+        if (lists.length > 1) {
+            Arrays.sort(result);
+        }
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) {
+                result[unique++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.spring18.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+public interface MeteredCache extends MeterBinder {
+
+    String getName();
+
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    int size();
+
+    long getWeight();
+
+    @Override
+    default void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("library.cache.gets", this, MeteredCache::getHits)
+                .tags("cache", getName(), "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("library.cache.gets", this, MeteredCache::getMisses)
+                .tags("cache", getName(), "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("library.cache.evictions", this, MeteredCache::getEvictions)
+                .tag("cache", getName())
+                .register(registry);
+        Gauge.builder("library.cache.size", this, MeteredCache::size)
+                .tag("cache", getName())
+                .register(registry);
+        Gauge.builder("library.cache.weight", this, MeteredCache::getWeight)
+                .tag("cache", getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spring18.util;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+public class StripedCache<K, V> implements MeteredCache {
+
+    private final String name;
+
+    private final BoundedCache<K, V>[] segments;
+
+    public StripedCache(String name, int concurrencyLevel, long maximumWeight, ToIntFunction<? super V> weigher,
+                        Duration ttl) {
+        this(name, concurrencyLevel, maximumWeight, weigher, ttl, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedCache(String name, int concurrencyLevel, long maximumWeight, ToIntFunction<? super V> weigher,
+                        Duration ttl, LongSupplier ticker) {
+        this.name = name;
+        int segmentCount = concurrencyLevel <= 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        this.segments = new BoundedCache[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new BoundedCache<>(name, maximumWeight / segmentCount, weigher, ttl, ticker);
+        }
+    }
+
+    public V get(K key) {
+        return segment(key).get(key);
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return segment(key).get(key, loader);
+    }
+
+    public void put(K key, V value) {
+        segment(key).put(key, value);
+    }
+
+    public void invalidate(K key) {
+        segment(key).invalidate(key);
+    }
+
+    public void invalidateIf(Predicate<? super V> predicate) {
+        for (BoundedCache<K, V> segment : segments) {
+            segment.invalidateIf(predicate);
+        }
+    }
+
+    public void invalidateAll() {
+        for (BoundedCache<K, V> segment : segments) {
+            segment.invalidateAll();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getHits() {
+        return sum(BoundedCache::getHits);
+    }
+
+    @Override
+    public long getMisses() {
+        return sum(BoundedCache::getMisses);
+    }
+
+    @Override
+    public long getEvictions() {
+        return sum(BoundedCache::getEvictions);
+    }
+
+    @Override
+    public int size() {
+        return (int) sum(BoundedCache::size);
+    }
+
+    @Override
+    public long getWeight() {
+        return sum(BoundedCache::getWeight);
+    }
+
+    private BoundedCache<K, V> segment(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private long sum(ToLongFunction<BoundedCache<K, V>> statistic) {
+        long sum = 0;
+        for (BoundedCache<K, V> segment : segments) {
+            sum += statistic.applyAsLong(segment);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,8 @@
+CREATE ALIAS IF NOT EXISTS FT_INIT FOR "org.h2.fulltext.FullText.init";
+CALL FT_INIT();
+CALL FT_DROP_INDEX('PUBLIC', 'BOOKS');
+CALL FT_CREATE_INDEX('PUBLIC', 'BOOKS', 'NAME');
+CALL FT_DROP_INDEX('PUBLIC', 'AUTHORS');
+CALL FT_CREATE_INDEX('PUBLIC', 'AUTHORS', 'LASTNAME');
+ALTER TABLE AUTHORS ADD CONSTRAINT IF NOT EXISTS AUTHORS_INITIALS_LASTNAME_NULLS_UQ UNIQUE NULLS NOT DISTINCT (INITIALS, LASTNAME);
+ALTER TABLE BOOKS ADD CONSTRAINT IF NOT EXISTS BOOKS_NAME_AUTHOR_ID_NULLS_UQ UNIQUE NULLS NOT DISTINCT (NAME, AUTHOR_ID);
@@ -0,0 +1,7 @@
+CREATE EXTENSION IF NOT EXISTS PG_TRGM;
+ALTER TABLE BOOKS ADD COLUMN IF NOT EXISTS SEARCH_VECTOR TSVECTOR GENERATED ALWAYS AS (TO_TSVECTOR('simple', COALESCE(NAME, ''))) STORED;
+CREATE INDEX IF NOT EXISTS BOOKS_SEARCH_VECTOR_IDX ON BOOKS USING GIN (SEARCH_VECTOR);
+CREATE INDEX IF NOT EXISTS BOOKS_NAME_TRGM_IDX ON BOOKS USING GIN (NAME GIN_TRGM_OPS);
+CREATE INDEX IF NOT EXISTS AUTHORS_LASTNAME_TRGM_IDX ON AUTHORS USING GIN (LASTNAME GIN_TRGM_OPS);
+CREATE UNIQUE INDEX IF NOT EXISTS AUTHORS_LASTNAME_WITHOUT_INITIALS_IDX ON AUTHORS(LASTNAME) WHERE INITIALS IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS BOOKS_NAME_WITHOUT_AUTHOR_IDX ON BOOKS(NAME) WHERE AUTHOR_ID IS NULL;
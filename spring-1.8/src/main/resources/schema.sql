@@ -2,3 +2,8 @@ CREATE TABLE IF NOT EXISTS AUTHORS(ID SERIAL PRIMARY KEY, INITIALS VARCHAR(50),
 CREATE TABLE IF NOT EXISTS BOOKS(ID SERIAL PRIMARY KEY, NAME VARCHAR(255), AUTHOR_ID INT REFERENCES AUTHORS(ID), UNIQUE(NAME, AUTHOR_ID));
 CREATE TABLE IF NOT EXISTS GENRES(ID SERIAL PRIMARY KEY, NAME VARCHAR(255) UNIQUE);
 CREATE TABLE IF NOT EXISTS BOOKS_GENRES(BOOK_ID INT REFERENCES BOOKS(ID), GENRE_ID INT REFERENCES GENRES(ID), PRIMARY KEY(BOOK_ID, GENRE_ID));
+CREATE INDEX IF NOT EXISTS AUTHORS_LASTNAME_IDX ON AUTHORS(LASTNAME);
+CREATE INDEX IF NOT EXISTS BOOKS_AUTHOR_ID_IDX ON BOOKS(AUTHOR_ID);
+CREATE INDEX IF NOT EXISTS BOOKS_GENRES_GENRE_ID_IDX ON BOOKS_GENRES(GENRE_ID);
+ALTER TABLE BOOKS ADD COLUMN IF NOT EXISTS CHANGED_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
+CREATE INDEX IF NOT EXISTS BOOKS_CHANGED_AT_IDX ON BOOKS(CHANGED_AT);
@@ -0,0 +1,72 @@
+package com.example.spring18.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Менеджер транзакций библиотеки должен:")
+@ExtendWith(MockitoExtension.class)
+class LibraryTransactionManagerTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Применять настроенный уровень изоляции, если он не задан в транзакции")
+    void shouldApplyConfiguredIsolation_whenDefinitionUsesDefault() throws Exception {
+        //given
+        var properties = new LibraryProperties.Transactions();
+        properties.setIsolation(Isolation.REPEATABLE_READ);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        var sut = new LibraryTransactionManager(dataSource, properties);
+
+        //when
+        sut.commit(sut.getTransaction(new DefaultTransactionDefinition()));
+
+        //then
+        verify(connection, times(1)).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    @DisplayName("Не передавать признак read-only драйверу, если подсказки отключены")
+    void shouldSkipReadOnlyHint_whenHintsDisabled() throws Exception {
+        //given
+        var properties = new LibraryProperties.Transactions();
+        properties.setReadOnlyHints(false);
+        var definition = new DefaultTransactionDefinition();
+        definition.setReadOnly(true);
+        var sut = new LibraryTransactionManager(dataSource, properties);
+
+        //when
+        sut.commit(sut.getTransaction(definition));
+
+        //then
+        verify(connection, never()).setReadOnly(anyBoolean());
+        verify(connection, never()).setTransactionIsolation(anyInt());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.spring18.dao;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.config.R2dbcConfig;
+import com.example.spring18.dao.author.AuthorDaoJdbc;
+import com.example.spring18.dao.author.ReactiveAuthorDaoR2dbc;
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.book.ReactiveBookDaoR2dbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.dao.genre.ReactiveGenreDaoR2dbc;
+import com.example.spring18.services.book.BookCache;
+import com.example.spring18.services.book.BookReadModel;
+import com.example.spring18.services.book.GenreBitmapIndex;
+import com.example.spring18.services.book.ReactiveBookServiceImpl;
+import com.example.spring18.services.genre.GenreCache;
+import org.h2.Driver;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Reactive DAOs and service over an in-memory H2 database with the same schema and data as the JDBC tests.
+ * Tests that write run inside a transaction marked rollback-only. The read model and the genre index see
+ * the same database through JDBC; they stay empty unless a test loads them.
+ */
+@TestConfiguration
+@Import({R2dbcConfig.class, ReactiveBookDaoR2dbc.class, ReactiveAuthorDaoR2dbc.class, ReactiveGenreDaoR2dbc.class,
+        ReactiveBookServiceImpl.class, BookCache.class, GenreCache.class,
+        BookDaoJdbc.class, AuthorDaoJdbc.class, GenreDaoJdbc.class, BookReadModel.class, GenreBitmapIndex.class})
+@EnableConfigurationProperties(LibraryProperties.class)
+public class R2dbcTestConfig {
+
+    public static final String URL = "spring.r2dbc.url=r2dbc:h2:mem:///reactive-library;DB_CLOSE_DELAY=-1";
+
+    @Bean
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
+        return new NamedParameterJdbcTemplate(new SimpleDriverDataSource(new Driver(),
+                "jdbc:h2:mem:reactive-library"));
+    }
+
+    @Bean
+    public ConnectionFactoryInitializer connectionFactoryInitializer(DatabaseClient databaseClient) {
+        var initializer = new ConnectionFactoryInitializer();
+        initializer.setConnectionFactory(databaseClient.getConnectionFactory());
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("schema-h2.sql"), new ClassPathResource("data.sql")));
+        return initializer;
+    }
+}
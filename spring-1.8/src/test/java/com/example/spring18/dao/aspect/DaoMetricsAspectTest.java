@@ -0,0 +1,126 @@
+package com.example.spring18.dao.aspect;
+
+import com.example.spring18.dao.genre.GenreDao;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.domain.Genre;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Аспект метрик DAO должен:")
+@ExtendWith(MockitoExtension.class)
+class DaoMetricsAspectTest {
+
+    @Mock
+    private NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private GenreDao sut;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var proxyFactory = new AspectJProxyFactory(new GenreDaoJdbc(namedParameterJdbcOperations));
+        proxyFactory.addAspect(new DaoMetricsAspect(meterRegistry));
+        sut = proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Записывать время вызова и число строк")
+    @SuppressWarnings("unchecked")
+    void shouldRecordTimerAndRows() {
+        //given
+        when(namedParameterJdbcOperations.query(anyString(), any(RowMapper.class))).thenReturn(List.of(
+                Genre.builder().id(1L).name("Adventure").build(),
+                Genre.builder().id(2L).name("Romance").build()));
+
+        //when
+        sut.getAll();
+
+        //then
+        var timer = meterRegistry.get(DaoMetricsAspect.CALLS)
+                .tags("dao", "GenreDaoJdbc", "method", "getAll", "outcome", "success")
+                .timer();
+        assertEquals(1, timer.count());
+        assertThat(meterRegistry.get(DaoMetricsAspect.ROWS)
+                .tags("dao", "GenreDaoJdbc", "method", "getAll")
+                .summary()
+                .totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Считать ошибки вызова")
+    @SuppressWarnings("unchecked")
+    void shouldCountErrors() {
+        //given
+        when(namedParameterJdbcOperations.queryForObject(anyString(), anyMap(), any(RowMapper.class)))
+                .thenThrow(new EmptyResultDataAccessException(1));
+
+        //when
+        assertThrows(EmptyResultDataAccessException.class, () -> sut.getById(1L));
+
+        //then
+        assertEquals(1, meterRegistry.get(DaoMetricsAspect.ERRORS)
+                .tags("dao", "GenreDaoJdbc", "method", "getById", "exception", "EmptyResultDataAccessException")
+                .counter()
+                .count());
+        assertEquals(1, meterRegistry.get(DaoMetricsAspect.CALLS)
+                .tags("outcome", "error")
+                .timer()
+                .count());
+    }
+
+    @Test
+    @DisplayName("Записывать реактивный вызов при подписке, а не при сборке")
+    void shouldRecordReactiveCallOnSubscription() {
+        //given
+        var proxyFactory = new AspectJProxyFactory(new ReactiveStubDao());
+        proxyFactory.addAspect(new DaoMetricsAspect(meterRegistry));
+        ReactiveStubDao reactiveDao = proxyFactory.getProxy();
+        Flux<Integer> rows = reactiveDao.getAll();
+        assertThat(meterRegistry.find(DaoMetricsAspect.CALLS).timers()).isEmpty();
+
+        //when
+        rows.blockLast();
+
+        //then
+        assertEquals(1, meterRegistry.get(DaoMetricsAspect.CALLS)
+                .tags("dao", "ReactiveStubDao", "method", "getAll", "outcome", "success")
+                .timer()
+                .count());
+        assertThat(meterRegistry.get(DaoMetricsAspect.ROWS)
+                .tags("dao", "ReactiveStubDao", "method", "getAll")
+                .summary()
+                .totalAmount()).isEqualTo(3);
+    }
+
+    @Repository
+    static class ReactiveStubDao {
+
+        public Flux<Integer> getAll() {
+            return Flux.range(1, 3);
+        }
+    }
+}
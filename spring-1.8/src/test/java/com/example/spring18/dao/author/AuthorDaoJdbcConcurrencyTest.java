@@ -0,0 +1,94 @@
+package com.example.spring18.dao.author;
+
+import com.example.spring18.domain.Author;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Dao для работы с авторами при конкурентном доступе должно:")
+@JdbcTest
+@Import(AuthorDaoJdbc.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthorDaoJdbcConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private AuthorDaoJdbc authorDao;
+
+    @Autowired
+    private NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    @AfterEach
+    void cleanUp() {
+        namedParameterJdbcOperations.update("delete from authors where lastname like 'Concurrent%'", Map.of());
+    }
+
+    @Test
+    @DisplayName("Возвращать один и тот же id при одновременном upsert нового автора")
+    void upsert_whenCalledConcurrently() throws Exception {
+        assertSingleAuthorOnConcurrentUpsert("C.C.");
+    }
+
+    @Test
+    @DisplayName("Возвращать один и тот же id при одновременном upsert нового автора без инициалов")
+    void upsert_whenCalledConcurrentlyWithoutInitials() throws Exception {
+        assertSingleAuthorOnConcurrentUpsert(null);
+    }
+
+    private void assertSingleAuthorOnConcurrentUpsert(String initials) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                //given
+                Author author = Author.builder()
+                        .initials(initials)
+                        .lastName("Concurrent" + round)
+                        .build();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Long>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return authorDao.upsert(author);
+                    }));
+                }
+
+                //when
+                start.countDown();
+                Set<Long> ids = new HashSet<>();
+                for (Future<Long> future : futures) {
+                    ids.add(future.get());
+                }
+
+                //then
+                assertThat(ids).hasSize(1);
+                assertThat(namedParameterJdbcOperations.queryForObject(
+                        "select count(*) from authors where lastname = :lastname",
+                        Map.of("lastname", author.getLastName()), Integer.class)).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -40,6 +40,59 @@ class AuthorDaoJdbcTest {
                 .isEqualTo(authorToBeSaved);
     }
 
+    @Test
+    @DisplayName("Возвращать id существующего автора при upsert")
+    void upsert_whenAuthorExists() {
+        //given
+        Author author = Author.builder()
+                .initials("A.S.")
+                .lastName("Pushkin")
+                .build();
+
+        //when
+        long actualId = authorDao.upsert(author);
+
+        //then
+        assertThat(actualId).isEqualTo(1L);
+        assertThat(authorDao.getAll()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Сохранять нового автора при upsert")
+    void upsert_whenAuthorNotExists() {
+        //given
+        Author author = Author.builder()
+                .initials("T.T.")
+                .lastName("Test")
+                .build();
+
+        //when
+        long savedId = authorDao.upsert(author);
+
+        //then
+        assertThat(authorDao.getById(savedId))
+                .usingRecursiveComparison()
+                .ignoringFields("id")
+                .isEqualTo(author);
+        assertThat(authorDao.upsert(author)).isEqualTo(savedId);
+    }
+
+    @Test
+    @DisplayName("Не дублировать автора без инициалов при upsert")
+    void upsert_whenNoInitials() {
+        //given
+        Author author = Author.builder()
+                .lastName("Test")
+                .build();
+
+        //when
+        long savedId = authorDao.upsert(author);
+
+        //then
+        assertThat(authorDao.upsert(author)).isEqualTo(savedId);
+        assertThat(authorDao.getAll()).hasSize(3);
+    }
+
     @Test
     @DisplayName("Получать автора по id")
     void getById() {
@@ -0,0 +1,89 @@
+package com.example.spring18.dao.author;
+
+import com.example.spring18.dao.R2dbcTestConfig;
+import com.example.spring18.domain.Author;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Реактивный DAO для работы с авторами должен:")
+@SpringJUnitConfig(R2dbcTestConfig.class)
+@ActiveProfiles("r2dbc")
+@TestPropertySource(properties = R2dbcTestConfig.URL)
+class ReactiveAuthorDaoR2dbcTest {
+
+    @Autowired
+    private ReactiveAuthorDaoR2dbc sut;
+
+    @Autowired
+    private R2dbcTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Возвращать идентификатор существующего автора при upsert")
+    void shouldUpsertExistingAuthor() {
+        //given
+        var author = Author.builder()
+                .initials("D.A.")
+                .lastName("Rubina")
+                .build();
+
+        //when
+        var id = rollback(sut.upsert(author));
+
+        //then
+        StepVerifier.create(id)
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Сохранять нового автора без инициалов ровно один раз")
+    void shouldUpsertAuthorWithoutInitials() {
+        //given
+        var author = Author.builder()
+                .lastName("Homer")
+                .build();
+
+        //when
+        var ids = rollback(sut.upsert(author).zipWith(sut.upsert(author)));
+
+        //then
+        StepVerifier.create(ids)
+                .assertNext(pair -> {
+                    assertThat(pair.getT1()).isGreaterThan(2L);
+                    assertThat(pair.getT2()).isEqualTo(pair.getT1());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Получать автора по идентификатору")
+    void shouldGetById() {
+        //when
+        var author = sut.getById(1);
+
+        //then
+        StepVerifier.create(author)
+                .assertNext(found -> {
+                    assertThat(found.getInitials()).isEqualTo("A.S.");
+                    assertThat(found.getLastName()).isEqualTo("Pushkin");
+                })
+                .verifyComplete();
+    }
+
+    private <T> Mono<T> rollback(Mono<T> mono) {
+        return TransactionalOperator.create(transactionManager).execute(transaction -> {
+            transaction.setRollbackOnly();
+            return mono;
+        }).singleOrEmpty();
+    }
+}
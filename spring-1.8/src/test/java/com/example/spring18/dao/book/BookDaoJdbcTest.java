@@ -1,20 +1,27 @@
 package com.example.spring18.dao.book;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.author.AuthorDaoJdbc;
 import com.example.spring18.dao.genre.GenreDaoJdbc;
 import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.dao.util.IdRange;
 import com.example.spring18.domain.Author;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @DisplayName("Dao для работы с книгами должно:")
@@ -25,6 +32,9 @@ class BookDaoJdbcTest {
     @Autowired
     private BookDaoJdbc bookDao;
 
+    @Autowired
+    private LibraryProperties libraryProperties;
+
     @DisplayName("Сохранять книгу")
     @Test
     void saveBook() {
@@ -93,6 +103,88 @@ class BookDaoJdbcTest {
                 .contains(expectedBookGenreRelation);
     }
 
+    @DisplayName("Создать пачкой связи между книгой и жанрами")
+    @Test
+    void createBookGenreLinks() {
+        //given
+        long bookId = bookDao.save(Book.builder()
+                .name("testBook")
+                .author(Author.builder().id(1L).build())
+                .build());
+
+        //when
+        bookDao.createBookGenreLinks(bookId, List.of(1L, 2L));
+
+        //then
+        assertThat(bookDao.getBookGenreRelations(bookId))
+                .extracting(BookGenreRelation::getGenreId)
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @DisplayName("Сохранять пачку книг без дубликатов")
+    @Test
+    void saveAllIfAbsent() {
+        //given
+        List<Book> books = List.of(
+                Book.builder()
+                        .name("Regular adventure novel")
+                        .author(Author.builder().id(1L).build())
+                        .build(),
+                Book.builder()
+                        .name("testBook")
+                        .author(Author.builder().id(2L).build())
+                        .build());
+
+        //when
+        List<Long> ids = bookDao.saveAllIfAbsent(books);
+        List<Long> repeatedIds = bookDao.saveAllIfAbsent(books);
+
+        //then
+        assertThat(ids).hasSize(2).startsWith(1L);
+        assertThat(repeatedIds).isEqualTo(ids);
+        assertThat(bookDao.getById(ids.get(1)).getName()).isEqualTo("testBook");
+    }
+
+    @DisplayName("Сохранять книги пачкой и падать на уже существующей книге")
+    @Test
+    void saveAll() {
+        //given
+        List<Book> books = List.of(
+                Book.builder()
+                        .name("testBook")
+                        .author(Author.builder().id(2L).build())
+                        .build(),
+                Book.builder()
+                        .name("Anonymous book")
+                        .build());
+
+        //when
+        List<Long> ids = bookDao.saveAll(books);
+
+        //then
+        assertThat(ids).hasSize(2);
+        assertThat(bookDao.getById(ids.get(0)).getName()).isEqualTo("testBook");
+        assertThrows(DuplicateKeyException.class, () -> bookDao.saveAll(List.of(books.get(1))));
+    }
+
+    @DisplayName("Создавать связи книг с жанрами без дубликатов")
+    @Test
+    void createBookGenreLinksIfAbsent() {
+        //given
+        List<BookGenreRelation> relations = List.of(
+                BookGenreRelation.builder().bookId(1L).genreId(1L).build(),
+                BookGenreRelation.builder().bookId(1L).genreId(2L).build());
+
+        //when
+        bookDao.createBookGenreLinksIfAbsent(relations);
+        bookDao.createBookGenreLinksIfAbsent(relations);
+
+        //then
+        assertThat(bookDao.getBookGenreRelations(1L))
+                .extracting(BookGenreRelation::getGenreId)
+                .containsExactlyInAnyOrder(1L, 2L);
+    }
+
     @DisplayName("Получать книгу по Id")
     @Test
     void getById() {
@@ -116,6 +208,60 @@ class BookDaoJdbcTest {
                 .isEqualTo(expectedBook);
     }
 
+    @DisplayName("Получать книгу по Id вместе с жанрами")
+    @Test
+    void getByIdWithGenres() {
+        //given
+        Book expectedBook = Book.builder()
+                .id(3L)
+                .name("Romance-adventure novel")
+                .author(Author.builder()
+                        .id(2L)
+                        .initials("D.A.")
+                        .lastName("Rubina")
+                        .build())
+                .genres(List.of(Genre.builder()
+                                .id(1L)
+                                .name("Adventure")
+                                .build(),
+                        Genre.builder()
+                                .id(2L)
+                                .name("Romance")
+                                .build()))
+                .build();
+
+        //when
+        Book actualBook = bookDao.getByIdWithGenres(expectedBook.getId());
+
+        //then
+        assertThat(actualBook)
+                .usingRecursiveComparison()
+                .ignoringCollectionOrder()
+                .isEqualTo(expectedBook);
+    }
+
+    @DisplayName("Получать книгу без жанров по Id с пустым списком жанров")
+    @Test
+    void getByIdWithGenres_whenNoGenres() {
+        //given
+        long bookId = bookDao.save(Book.builder()
+                .name("testBook")
+                .author(Author.builder().id(1L).build())
+                .build());
+
+        //when
+        Book actualBook = bookDao.getByIdWithGenres(bookId);
+
+        //then
+        assertThat(actualBook.getGenres()).isEmpty();
+    }
+
+    @DisplayName("Бросать исключение при получении несуществующей книги вместе с жанрами")
+    @Test
+    void getByIdWithGenres_whenNotExists() {
+        assertThrows(DataAccessException.class, () -> bookDao.getByIdWithGenres(100L));
+    }
+
     @DisplayName("Получать связи между определенной книгой и ее жанрами")
     @Test
     void getBookGenreRelationsById() {
@@ -136,6 +282,31 @@ class BookDaoJdbcTest {
                 .isEqualTo(expectedBookGenreRelations);
     }
 
+    @DisplayName("Получать связи между книгами из списка и их жанрами")
+    @Test
+    void getBookGenreRelationsByIds() {
+        //given
+        var expectedBookGenreRelations = List.of(BookGenreRelation.builder()
+                        .bookId(2L)
+                        .genreId(2L)
+                        .build(),
+                BookGenreRelation.builder()
+                        .bookId(3L)
+                        .genreId(1L)
+                        .build(),
+                BookGenreRelation.builder()
+                        .bookId(3L)
+                        .genreId(2L)
+                        .build());
+
+        //when
+        var actualBookGenreRelations = bookDao.getBookGenreRelations(List.of(2L, 3L));
+
+        //then
+        assertThat(actualBookGenreRelations)
+                .containsExactlyInAnyOrderElementsOf(expectedBookGenreRelations);
+    }
+
     @DisplayName("Получать связи между книгами и жанрами")
     @Test
     void getBookGenreRelations() {
@@ -207,6 +378,262 @@ class BookDaoJdbcTest {
                 .hasSize(3);
     }
 
+    @DisplayName("Разделять один экземпляр автора и жанра между книгами одного запроса")
+    @Test
+    void shareAuthorsAndGenresWithinQuery() {
+        //when
+        List<Author> rubinaAuthors = bookDao.getAll().stream()
+                .map(Book::getAuthor)
+                .filter(author -> author.getId() == 2L)
+                .toList();
+        List<Book> booksWithGenres = bookDao.getByIdsWithGenres(List.of(1L, 2L, 3L));
+
+        //then
+        assertThat(rubinaAuthors).hasSize(2);
+        assertThat(rubinaAuthors.get(0)).isSameAs(rubinaAuthors.get(1));
+        assertThat(booksWithGenres.get(1).getAuthor()).isSameAs(booksWithGenres.get(2).getAuthor());
+        assertThat(booksWithGenres.get(0).getGenres().get(0)).isSameAs(booksWithGenres.get(2).getGenres().stream()
+                .filter(genre -> genre.getId() == 1L)
+                .findFirst()
+                .orElseThrow());
+    }
+
+    @DisplayName("Не держать экземпляры авторов и жанров дольше окна fetch-size при потоковом чтении")
+    @Test
+    void streamAll_whenFetchSizeIsSmallerThanCatalog() {
+        //given
+        int fetchSize = libraryProperties.getBooks().getFetchSize();
+        libraryProperties.getBooks().setFetchSize(1);
+
+        //when
+        List<Book> actualBooks = new ArrayList<>();
+        try {
+            bookDao.streamAll(actualBooks::add);
+        } finally {
+            libraryProperties.getBooks().setFetchSize(fetchSize);
+        }
+
+        //then
+        assertThat(actualBooks)
+                .usingRecursiveComparison()
+                .isEqualTo(bookDao.getByIdsWithGenres(List.of(1L, 2L, 3L)));
+        assertThat(actualBooks.get(1).getAuthor()).isNotSameAs(actualBooks.get(2).getAuthor());
+    }
+
+    @DisplayName("Потоково получать все книги вместе с жанрами")
+    @Test
+    void streamAll() {
+        //given
+        var adventure = Genre.builder()
+                .id(1)
+                .name("Adventure")
+                .build();
+        var romance = Genre.builder()
+                .id(2)
+                .name("Romance")
+                .build();
+        var pushkin = Author.builder()
+                .id(1)
+                .initials("A.S.")
+                .lastName("Pushkin")
+                .build();
+        var rubina = Author.builder()
+                .id(2)
+                .initials("D.A.")
+                .lastName("Rubina")
+                .build();
+        List<Book> expectedBooks = List.of(Book.builder()
+                        .id(1)
+                        .name("Regular adventure novel")
+                        .author(pushkin)
+                        .genres(List.of(adventure))
+                        .build(),
+                Book.builder()
+                        .id(2)
+                        .name("Regular romance novel")
+                        .author(rubina)
+                        .genres(List.of(romance))
+                        .build(),
+                Book.builder()
+                        .id(3)
+                        .name("Romance-adventure novel")
+                        .author(rubina)
+                        .genres(List.of(adventure, romance))
+                        .build());
+
+        //when
+        List<Book> actualBooks = new ArrayList<>();
+        bookDao.streamAll(actualBooks::add);
+
+        //then
+        assertThat(actualBooks)
+                .hasSize(3)
+                .usingRecursiveComparison()
+                .ignoringCollectionOrder()
+                .isEqualTo(expectedBooks);
+    }
+
+    @DisplayName("Потоково получать книги из диапазона id")
+    @Test
+    void streamRange() {
+        //when
+        List<Book> actualBooks = new ArrayList<>();
+        bookDao.streamRange(2L, 3L, actualBooks::add);
+
+        //then
+        assertThat(actualBooks)
+                .extracting(Book::getId)
+                .containsExactly(2L, 3L);
+        assertThat(actualBooks.get(1).getGenres()).hasSize(2);
+    }
+
+    @DisplayName("Потоково получать книги без автора")
+    @Test
+    void streamAllWithoutAuthor() {
+        //given
+        long bookId = bookDao.save(Book.builder()
+                .name("Anonymous book")
+                .build());
+
+        //when
+        List<Book> actualBooks = new ArrayList<>();
+        bookDao.streamRange(bookId, bookId, actualBooks::add);
+
+        //then
+        assertThat(actualBooks).singleElement()
+                .satisfies(book -> assertThat(book.getAuthor()).isNull());
+    }
+
+    @DisplayName("Получать диапазон id книг")
+    @Test
+    void getIdRange() {
+        //when
+        IdRange range = bookDao.getIdRange();
+
+        //then
+        assertThat(range.getMinId()).isEqualTo(1L);
+        assertThat(range.getMaxId()).isEqualTo(3L);
+    }
+
+    @DisplayName("Получать книги автора по id")
+    @Test
+    void getByAuthorId() {
+        //when
+        List<Book> books = bookDao.getByAuthorId(2L);
+
+        //then
+        assertThat(books)
+                .extracting(Book::getId)
+                .containsExactly(2L, 3L);
+        assertThat(books.get(1).getGenres()).hasSize(2);
+    }
+
+    @DisplayName("Получать книги автора по фамилии")
+    @Test
+    void getByAuthorLastname() {
+        //when
+        List<Book> books = bookDao.getByAuthorLastname("Pushkin");
+
+        //then
+        assertThat(books)
+                .extracting(Book::getName)
+                .containsExactly("Regular adventure novel");
+    }
+
+    @DisplayName("Получать книги с любым из жанров")
+    @Test
+    void getByAnyOfGenres() {
+        //when
+        List<Book> books = bookDao.getByGenres(List.of("Adventure", "Romance"), false);
+
+        //then
+        assertThat(books)
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @DisplayName("Получать книги со всеми жанрами")
+    @Test
+    void getByAllOfGenres() {
+        //when
+        List<Book> books = bookDao.getByGenres(List.of("Adventure", "Romance", "Adventure"), true);
+
+        //then
+        assertThat(books)
+                .singleElement()
+                .satisfies(book -> assertThat(book.getGenres())
+                        .extracting(Genre::getName)
+                        .containsExactlyInAnyOrder("Adventure", "Romance"));
+    }
+
+    @DisplayName("Считать книги и их связи с жанрами")
+    @Test
+    void countBooksAndLinks() {
+        //then
+        assertThat(bookDao.count()).isEqualTo(3L);
+        assertThat(bookDao.countBookGenreLinks()).isEqualTo(4L);
+    }
+
+    @DisplayName("Получать и считать книги по запросу жанров")
+    @Test
+    void getAndCountByGenreQuery() {
+        //given
+        var query = GenreQuery.parse("Adventure OR Horror NOT Romance");
+
+        //when
+        List<Book> books = bookDao.getByGenreQuery(query);
+        long count = bookDao.countByGenreQuery(query);
+
+        //then
+        assertThat(books)
+                .extracting(Book::getId)
+                .containsExactly(1L);
+        assertThat(count).isEqualTo(1L);
+    }
+
+    @DisplayName("Получать страницу книг после указанного id")
+    @Test
+    void getPageAfter() {
+        //when
+        List<Book> actualBooks = bookDao.getPageAfter(1L, 1);
+
+        //then
+        assertThat(actualBooks)
+                .extracting(Book::getId)
+                .containsExactly(2L);
+    }
+
+    @DisplayName("Получать страницу книг перед указанным id")
+    @Test
+    void getPageBefore() {
+        //when
+        List<Book> actualBooks = bookDao.getPageBefore(3L, 2);
+
+        //then
+        assertThat(actualBooks)
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L);
+    }
+
+    @DisplayName("Получать на странице книги без автора")
+    @Test
+    void getPageAfter_whenBookHasNoAuthor() {
+        //given
+        long bookId = bookDao.save(Book.builder().name("Anonymous").build());
+
+        //when
+        List<Book> actualAfter = bookDao.getPageAfter(3L, 10);
+        List<Book> actualBefore = bookDao.getPageBefore(bookId + 1, 1);
+
+        //then
+        assertThat(actualAfter)
+                .extracting(Book::getId, Book::getAuthor)
+                .containsExactly(tuple(bookId, null));
+        assertThat(actualBefore)
+                .extracting(Book::getId, Book::getAuthor)
+                .containsExactly(tuple(bookId, null));
+    }
+
     @DisplayName("Обновлять данные книги по id")
     @Test
     void updateById() {
@@ -230,6 +657,41 @@ class BookDaoJdbcTest {
                 .isEqualTo(newBook);
     }
 
+    @DisplayName("Обновлять пачкой название и автора книг")
+    @Test
+    void updateAll() {
+        //given
+        Book first = Book.builder()
+                .id(1L)
+                .name("first")
+                .author(Author.builder()
+                        .id(2L)
+                        .initials("D.A.")
+                        .lastName("Rubina")
+                        .build())
+                .build();
+        Book second = Book.builder()
+                .id(2L)
+                .name("second")
+                .author(Author.builder()
+                        .id(1L)
+                        .initials("A.S.")
+                        .lastName("Pushkin")
+                        .build())
+                .build();
+
+        //when
+        bookDao.updateAll(List.of(first, second));
+
+        //then
+        assertThat(bookDao.getById(1L))
+                .usingRecursiveComparison()
+                .isEqualTo(first);
+        assertThat(bookDao.getById(2L))
+                .usingRecursiveComparison()
+                .isEqualTo(second);
+    }
+
     @DisplayName("Удалять связь между книгой и жанром")
     @Test
     void deleteBookGenreLink() {
@@ -250,6 +712,21 @@ class BookDaoJdbcTest {
                 .contains(expectedBookGenreRelation);
     }
 
+    @DisplayName("Удалять связи между книгой и перечисленными жанрами")
+    @Test
+    void deleteBookGenreLinksByGenreIds() {
+        //given
+        var bookId = 3L;
+
+        //when
+        bookDao.deleteBookGenreLinks(bookId, List.of(1L));
+
+        //then
+        assertThat(bookDao.getBookGenreRelations(bookId))
+                .extracting(BookGenreRelation::getGenreId)
+                .containsExactly(2L);
+    }
+
     @DisplayName("Удалять все связи между книгой и жанрами")
     @Test
     void deleteBookGenreLinks() {
@@ -264,6 +741,20 @@ class BookDaoJdbcTest {
                 .hasSize(0);
     }
 
+    @DisplayName("Удалять пачкой перечисленные связи книг с жанрами")
+    @Test
+    void deleteBookGenreLinksByRelations() {
+        //when
+        bookDao.deleteBookGenreLinks(List.of(
+                BookGenreRelation.builder().bookId(1L).genreId(1L).build(),
+                BookGenreRelation.builder().bookId(3L).genreId(2L).build()));
+
+        //then
+        assertThat(bookDao.getBookGenreRelations(List.of(1L, 3L)))
+                .extracting(BookGenreRelation::getBookId, BookGenreRelation::getGenreId)
+                .containsExactly(tuple(3L, 1L));
+    }
+
     @DisplayName("Удалять книгу по id")
     @Test
     void delete() {
@@ -276,4 +767,20 @@ class BookDaoJdbcTest {
         //then
         assertThrows(DataAccessException.class, () -> bookDao.getById(bookToBeDeletedId));
     }
-}
\ No newline at end of file
+
+    @DisplayName("Удалять пачку книг вместе со связями с жанрами")
+    @Test
+    void deleteAll() {
+        //given
+        long bookToBeDeletedId = bookDao.save(Book.builder().build());
+
+        //when
+        bookDao.deleteAll(List.of(3L, bookToBeDeletedId));
+
+        //then
+        assertThat(bookDao.getAll())
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L);
+        assertThat(bookDao.getBookGenreRelations(3L)).isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.spring18.dao.book;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Dao для полнотекстового поиска книг должно:")
+@JdbcTest
+@Import(BookSearchDaoJdbc.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookSearchDaoJdbcTest {
+
+    @Autowired
+    private BookSearchDaoJdbc bookSearchDao;
+
+    @DisplayName("Находить книги по слову из названия")
+    @Test
+    void searchByName() {
+        //when
+        List<Long> ids = bookSearchDao.search("adventure", 10);
+
+        //then
+        assertThat(ids).containsExactly(1L, 3L);
+    }
+
+    @DisplayName("Находить книги по фамилии автора")
+    @Test
+    void searchByAuthorLastname() {
+        //when
+        List<Long> ids = bookSearchDao.search("Rubina", 10);
+
+        //then
+        assertThat(ids).containsExactly(2L, 3L);
+    }
+
+    @DisplayName("Ранжировать книги по числу совпадений и ограничивать выдачу")
+    @Test
+    void rankAndLimitResults() {
+        //when
+        List<Long> ids = bookSearchDao.search("adventure, rubina", 2);
+
+        //then
+        assertThat(ids).containsExactly(3L, 1L);
+    }
+}
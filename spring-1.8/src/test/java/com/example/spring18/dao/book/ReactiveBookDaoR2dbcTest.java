@@ -0,0 +1,108 @@
+package com.example.spring18.dao.book;
+
+import com.example.spring18.dao.R2dbcTestConfig;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Реактивный DAO для работы с книгами должен:")
+@SpringJUnitConfig(R2dbcTestConfig.class)
+@ActiveProfiles("r2dbc")
+@TestPropertySource(properties = R2dbcTestConfig.URL)
+class ReactiveBookDaoR2dbcTest {
+
+    @Autowired
+    private ReactiveBookDaoR2dbc sut;
+
+    @Autowired
+    private R2dbcTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Получать книгу с автором и жанрами")
+    void shouldGetByIdWithGenres() {
+        //when
+        Book book = sut.getByIdWithGenres(3).block();
+
+        //then
+        assertThat(book).isNotNull();
+        assertThat(book.getName()).isEqualTo("Romance-adventure novel");
+        assertThat(book.getAuthor().getLastName()).isEqualTo("Rubina");
+        assertThat(book.getGenres()).extracting(Genre::getName).containsExactly("Adventure", "Romance");
+    }
+
+    @Test
+    @DisplayName("Отдавать каталог по запросу подписчика")
+    void shouldStreamAllOnDemand() {
+        //when
+        var books = sut.streamAll();
+
+        //then
+        StepVerifier.create(books, 1)
+                .assertNext(book -> assertThat(book.getId()).isEqualTo(1))
+                .thenRequest(2)
+                .assertNext(book -> assertThat(book.getId()).isEqualTo(2))
+                .assertNext(book -> assertThat(book.getGenres()).hasSize(2))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Получать книги автора и диапазона идентификаторов")
+    void shouldGetByAuthorIdAndRange() {
+        //when
+        List<Long> byAuthor = sut.getByAuthorId(2).map(Book::getId).collectList().block();
+        List<Long> inRange = sut.streamRange(2, 3).map(Book::getId).collectList().block();
+
+        //then
+        assertThat(byAuthor).containsExactly(2L, 3L);
+        assertThat(inRange).containsExactly(2L, 3L);
+    }
+
+    @Test
+    @DisplayName("Сохранять книгу со связями и удалять ее")
+    void shouldSaveAndDelete() {
+        //given
+        var book = Book.builder()
+                .name("New novel")
+                .author(Author.builder().id(1).build())
+                .build();
+
+        //when
+        var saved = rollback(sut.save(book)
+                .flatMapMany(id -> sut.createBookGenreLinks(id, List.of(1L, 2L))
+                        .then(sut.getByIdWithGenres(id))
+                        .concatWith(sut.delete(id).then(sut.getByIdWithGenres(id)))));
+
+        //then
+        StepVerifier.create(saved)
+                .assertNext(found -> {
+                    assertThat(found.getName()).isEqualTo("New novel");
+                    assertThat(found.getAuthor().getLastName()).isEqualTo("Pushkin");
+                    assertThat(found.getGenres()).hasSize(2);
+                })
+                .verifyComplete();
+        StepVerifier.create(sut.streamAll().count())
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    private <T> Flux<T> rollback(Flux<T> flux) {
+        return TransactionalOperator.create(transactionManager).execute(transaction -> {
+            transaction.setRollbackOnly();
+            return flux;
+        });
+    }
+}
@@ -39,6 +39,18 @@ class GenreDaoJdbcTest {
                 .isEqualTo(genreToBeSaved);
     }
 
+    @DisplayName("Сохранять только отсутствующие жанры пачкой")
+    @Test
+    void saveAllIfAbsent() {
+        //when
+        genreDao.saveAllIfAbsent(List.of("Adventure", "testGenre"));
+
+        //then
+        assertThat(genreDao.getAll())
+                .extracting(Genre::getName)
+                .containsExactlyInAnyOrder("Adventure", "Romance", "testGenre");
+    }
+
     @DisplayName("Получать жанр по id")
     @Test
     void getById() {
@@ -75,6 +87,24 @@ class GenreDaoJdbcTest {
                 .isEqualTo(expectedGenre);
     }
 
+    @DisplayName("Получать жанры по списку названий")
+    @Test
+    void getByNames() {
+        //given
+        List<Genre> expectedGenres = List.of(Genre.builder()
+                .id(2)
+                .name("Romance")
+                .build());
+
+        //when
+        List<Genre> actualGenres = genreDao.getByNames(List.of("Romance", "Horror"));
+
+        //then
+        assertThat(actualGenres)
+                .usingRecursiveComparison()
+                .isEqualTo(expectedGenres);
+    }
+
     @DisplayName("Получать все жанры книги по ее id")
     @Test
     void getGenresByBookId() {
@@ -98,6 +128,24 @@ class GenreDaoJdbcTest {
                 .hasSize(2);
     }
 
+    @DisplayName("Получать жанры по списку id")
+    @Test
+    void getByIds() {
+        //given
+        List<Genre> expectedGenres = List.of(Genre.builder()
+                .id(2)
+                .name("Romance")
+                .build());
+
+        //when
+        List<Genre> actualGenres = genreDao.getByIds(List.of(2L));
+
+        //then
+        assertThat(actualGenres)
+                .usingRecursiveComparison()
+                .isEqualTo(expectedGenres);
+    }
+
     @DisplayName("Получать все жанры")
     @Test
     void getAll() {
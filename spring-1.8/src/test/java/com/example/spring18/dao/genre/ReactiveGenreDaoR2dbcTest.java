@@ -0,0 +1,69 @@
+package com.example.spring18.dao.genre;
+
+import com.example.spring18.dao.R2dbcTestConfig;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Реактивный DAO для работы с жанрами должен:")
+@SpringJUnitConfig(R2dbcTestConfig.class)
+@ActiveProfiles("r2dbc")
+@TestPropertySource(properties = R2dbcTestConfig.URL)
+class ReactiveGenreDaoR2dbcTest {
+
+    @Autowired
+    private ReactiveGenreDaoR2dbc sut;
+
+    @Autowired
+    private R2dbcTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Сохранять только отсутствующие жанры")
+    void shouldSaveOnlyAbsentGenres() {
+        //given
+        var names = List.of("Romance", "Poetry");
+
+        //when
+        var result = rollback(sut.saveAllIfAbsent(names)
+                .zipWith(sut.getByNames(names).map(Genre::getName).collectList()));
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(saved -> {
+                    assertThat(saved.getT1()).isEqualTo(1L);
+                    assertThat(saved.getT2()).containsExactlyInAnyOrder("Romance", "Poetry");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Получать жанры книги")
+    void shouldGetGenresByBookId() {
+        //when
+        var genres = sut.getGenresByBookId(3).map(Genre::getName);
+
+        //then
+        StepVerifier.create(genres.collectList())
+                .assertNext(names -> assertThat(names).containsExactlyInAnyOrder("Adventure", "Romance"))
+                .verifyComplete();
+    }
+
+    private <T> Mono<T> rollback(Mono<T> mono) {
+        return TransactionalOperator.create(transactionManager).execute(transaction -> {
+            transaction.setRollbackOnly();
+            return mono;
+        }).singleOrEmpty();
+    }
+}
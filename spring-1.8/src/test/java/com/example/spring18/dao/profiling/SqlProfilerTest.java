@@ -0,0 +1,133 @@
+package com.example.spring18.dao.profiling;
+
+import com.example.spring18.dao.author.AuthorDaoJdbc;
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.book.BookSearchDaoJdbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.author.AuthorCache;
+import com.example.spring18.services.author.AuthorServiceImpl;
+import com.example.spring18.services.book.BookCache;
+import com.example.spring18.services.book.BookReadModel;
+import com.example.spring18.services.book.BookService;
+import com.example.spring18.services.book.BookServiceImpl;
+import com.example.spring18.services.book.GenreBitmapIndex;
+import com.example.spring18.services.genre.GenreCache;
+import com.example.spring18.services.genre.GenreServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Профилировщик SQL должен:")
+@JdbcTest(properties = "library.profiling.enabled=true")
+@Import({AuthorDaoJdbc.class, BookDaoJdbc.class, BookSearchDaoJdbc.class, GenreDaoJdbc.class, AuthorCache.class, AuthorServiceImpl.class,
+        BookCache.class, BookReadModel.class, BookServiceImpl.class, GenreBitmapIndex.class, GenreCache.class, GenreServiceImpl.class, ProfilingDataSourcePostProcessor.class})
+class SqlProfilerTest {
+
+    private static final int REPEATED_STATEMENT_THRESHOLD = 3;
+
+    @Autowired
+    private BookService bookService;
+
+    @DisplayName("Получать все книги фиксированным числом запросов")
+    @Test
+    void getAllBooksWithoutRepeatedStatements() {
+        //when
+        SqlProfile profile = SqlProfiler.profile(bookService::getAllBooks);
+
+        //then
+        assertThat(profile.getStatements()).isEqualTo(3);
+        assertThat(profile.getRows()).isGreaterThanOrEqualTo(3);
+        assertThat(profile.getRepeatedShapes(REPEATED_STATEMENT_THRESHOLD)).isEmpty();
+    }
+
+    @DisplayName("Получать книгу по id одним запросом")
+    @Test
+    void getBookByIdInSingleStatement() {
+        //when
+        SqlProfile profile = SqlProfiler.profile(() -> bookService.getBookById(3L));
+
+        //then
+        assertThat(profile.getStatements()).isEqualTo(1);
+        assertThat(profile.getRows()).isEqualTo(2);
+    }
+
+    @DisplayName("Сохранять книгу без запросов на каждый жанр")
+    @Test
+    void saveBookWithoutRepeatedStatements() {
+        //given
+        Book book = Book.builder()
+                .name("testBook")
+                .author(Author.builder()
+                        .initials("A.S.")
+                        .lastName("Pushkin")
+                        .build())
+                .genres(List.of(Genre.builder().name("Adventure").build(),
+                        Genre.builder().name("Horror").build(),
+                        Genre.builder().name("Comedy").build()))
+                .build();
+
+        //when
+        SqlProfile profile = SqlProfiler.profile(() -> bookService.saveBook(book));
+
+        //then
+        assertThat(profile.getStatements()).isLessThanOrEqualTo(6);
+        assertThat(profile.getRepeatedShapes(REPEATED_STATEMENT_THRESHOLD)).isEmpty();
+    }
+
+    @DisplayName("Обновлять книгу без запросов на каждый жанр")
+    @Test
+    void updateBookWithoutRepeatedStatements() {
+        //given
+        Book book = Book.builder()
+                .id(3L)
+                .name("updatedBook")
+                .author(Author.builder()
+                        .initials("D.")
+                        .lastName("Rubina")
+                        .build())
+                .genres(List.of(Genre.builder().name("Romance").build(),
+                        Genre.builder().name("Horror").build(),
+                        Genre.builder().name("Comedy").build()))
+                .build();
+
+        //when
+        SqlProfile profile = SqlProfiler.profile(() -> bookService.updateBookById(book));
+
+        //then
+        assertThat(profile.getStatements()).isLessThanOrEqualTo(9);
+        assertThat(profile.getRepeatedShapes(REPEATED_STATEMENT_THRESHOLD)).isEmpty();
+    }
+
+    @DisplayName("Не учитывать запросы вне профилирования")
+    @Test
+    void ignoreStatementsOutsideProfile() {
+        //given
+        SqlProfile profile = SqlProfiler.profile(() -> {
+        });
+
+        //when
+        bookService.getAllBooks();
+
+        //then
+        assertThat(profile.getStatements()).isZero();
+    }
+
+    @DisplayName("Сводить списки параметров к одной форме запроса")
+    @Test
+    void collapsePlaceholderLists() {
+        //when
+        String shape = SqlProfile.shape("select id from genres\n where id in (?, ?,?)");
+
+        //then
+        assertThat(shape).isEqualTo("select id from genres where id in (?)");
+    }
+}
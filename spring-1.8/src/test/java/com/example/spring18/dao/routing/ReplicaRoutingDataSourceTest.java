@@ -0,0 +1,236 @@
+package com.example.spring18.dao.routing;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.config.LibraryTransactionManager;
+import com.example.spring18.dao.book.BookDao;
+import com.example.spring18.dao.author.AuthorDaoJdbc;
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.book.BookSearchDaoJdbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.services.author.AuthorCache;
+import com.example.spring18.services.author.AuthorServiceImpl;
+import com.example.spring18.services.book.BookCache;
+import com.example.spring18.services.book.BookReadModel;
+import com.example.spring18.services.book.BookServiceImpl;
+import com.example.spring18.services.book.GenreBitmapIndex;
+import com.example.spring18.services.genre.GenreCache;
+import com.example.spring18.services.genre.GenreServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@DisplayName("Маршрутизирующий источник данных должен:")
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_NAME = "Regular adventure novel";
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    private NamedParameterJdbcTemplate jdbc;
+
+    private BookDao bookDao;
+
+    private LibraryTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    @DisplayName("Читать с реплики вне транзакции")
+    void shouldReadFromReplica_whenNoTransaction() {
+        //given
+        setUp(ReplicaBalancing.ROUND_ROBIN, "replica");
+
+        //when
+        Book book = bookDao.getById(1L);
+
+        //then
+        assertEquals("replica", book.getName());
+    }
+
+    @Test
+    @DisplayName("Читать с реплики в read-only транзакции")
+    void shouldReadFromReplica_whenTransactionIsReadOnly() {
+        //given
+        setUp(ReplicaBalancing.ROUND_ROBIN, "replica");
+
+        //when
+        Book book = readOnly().execute(status -> bookDao.getByIdWithGenres(1L));
+
+        //then
+        assertEquals("replica", book.getName());
+    }
+
+    @Test
+    @DisplayName("Писать в основную базу вне транзакции")
+    void shouldWriteToPrimary_whenNoTransaction() {
+        //given
+        EmbeddedDatabase primary = setUp(ReplicaBalancing.ROUND_ROBIN, "replica");
+
+        //when
+        bookDao.updateById(Book.builder().id(1L).name("updated").build());
+
+        //then
+        assertEquals("updated", bookName(primary));
+        assertEquals("replica", bookDao.getById(1L).getName());
+    }
+
+    @Test
+    @DisplayName("Видеть свои записи внутри транзакции")
+    void shouldReadOwnWrites_whenTransactionIsReadWrite() {
+        //given
+        setUp(ReplicaBalancing.ROUND_ROBIN, "replica");
+
+        //when
+        List<String> names = new TransactionTemplate(transactionManager).execute(status -> {
+            String before = bookDao.getById(1L).getName();
+            bookDao.updateById(Book.builder().id(1L).name("updated").build());
+            return List.of(before, bookDao.getById(1L).getName());
+        });
+
+        //then
+        assertEquals(List.of(PRIMARY_NAME, "updated"), names);
+    }
+
+    @Test
+    @DisplayName("Заполнять кэш книг из основной базы, пока реплика отстаёт")
+    void shouldCacheBookFromPrimary_whenReplicaLags() {
+        //given
+        setUp(ReplicaBalancing.ROUND_ROBIN, "replica");
+        BookServiceImpl bookService = bookService();
+        bookService.getBookById(1L);
+
+        //when
+        bookService.updateBookById(Book.builder()
+                .id(1L)
+                .name("updated")
+                .author(Author.builder().initials("A.S.").lastName("Pushkin").build())
+                .build());
+        Book book = bookService.getBookById(1L);
+
+        //then
+        assertEquals("updated", book.getName());
+        assertEquals("updated", bookService.getBookById(1L).getName());
+        assertEquals("replica", bookDao.getById(1L).getName());
+        bookService.destroy();
+    }
+
+    @Test
+    @DisplayName("Чередовать реплики по кругу")
+    void shouldAlternateReplicas_whenRoundRobin() {
+        //given
+        setUp(ReplicaBalancing.ROUND_ROBIN, "first", "second");
+
+        //when
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            names.add(bookDao.getById(1L).getName());
+        }
+
+        //then
+        assertNotEquals(names.get(0), names.get(1));
+        assertEquals(List.of(names.get(0), names.get(1), names.get(0), names.get(1)), names);
+    }
+
+    @Test
+    @DisplayName("Выбирать реплику с наименьшим числом занятых соединений")
+    void shouldChooseLeastBusyReplica_whenLeastOutstanding() {
+        //given
+        setUp(ReplicaBalancing.LEAST_OUTSTANDING, "first", "second");
+        var nested = readOnly();
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //when
+        List<String> names = readOnly().execute(status -> {
+            List<String> result = new ArrayList<>();
+            result.add(bookDao.getById(1L).getName());
+            for (int i = 0; i < 3; i++) {
+                result.add(nested.execute(nestedStatus -> bookDao.getById(1L).getName()));
+            }
+            return result;
+        });
+
+        //then
+        String other = names.get(0).equals("first") ? "second" : "first";
+        assertEquals(List.of(names.get(0), other, other, other), names);
+        assertEquals(0, routingDataSource.getOutstanding(0) + routingDataSource.getOutstanding(1));
+    }
+
+    private EmbeddedDatabase setUp(ReplicaBalancing balancing, String... replicaBookNames) {
+        EmbeddedDatabase primary = database();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String bookName : replicaBookNames) {
+            EmbeddedDatabase replica = database();
+            new JdbcTemplate(replica).update("update books set name = ? where id = 1", bookName);
+            replicas.add(replica);
+        }
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, balancing);
+        var dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        transactionManager = new LibraryTransactionManager(dataSource, new LibraryProperties.Transactions());
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        bookDao = readingFromReplicas(new BookDaoJdbc(jdbc, new LibraryProperties()));
+        return primary;
+    }
+
+    private BookServiceImpl bookService() {
+        var properties = new LibraryProperties();
+        return new BookServiceImpl(bookDao, new BookSearchDaoJdbc(jdbc),
+                new AuthorServiceImpl(readingFromReplicas(new AuthorDaoJdbc(jdbc)), new AuthorCache(properties),
+                        event -> {
+                        }),
+                new GenreServiceImpl(readingFromReplicas(new GenreDaoJdbc(jdbc)), new GenreCache(properties),
+                        event -> {
+                        }),
+                new TransactionTemplate(transactionManager), properties, new BookCache(properties),
+                new BookReadModel(bookDao, new AuthorDaoJdbc(jdbc), new GenreDaoJdbc(jdbc), properties),
+                new GenreBitmapIndex(bookDao, new GenreDaoJdbc(jdbc), properties));
+    }
+
+    private static <T> T readingFromReplicas(T dao) {
+        var proxyFactory = new AspectJProxyFactory(dao);
+        proxyFactory.addAspect(new ReadOnlyQueryAspect());
+        return proxyFactory.getProxy();
+    }
+
+    private EmbeddedDatabase database() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScripts("schema.sql", "data.sql")
+                .build();
+        databases.add(database);
+        return database;
+    }
+
+    private TransactionTemplate readOnly() {
+        var template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static String bookName(EmbeddedDatabase database) {
+        return new JdbcTemplate(database).queryForObject("select name from books where id = 1", String.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.spring18.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Запрос по жанрам должен:")
+class GenreQueryTest {
+
+    @Test
+    @DisplayName("Разбирать AND, OR и NOT с жанрами из нескольких слов")
+    void shouldParseOperators() {
+        //when
+        var actualQuery = GenreQuery.parse("Adventure and Romance OR Science fiction NOT Horror or Gothic");
+
+        //then
+        assertEquals(GenreQuery.builder()
+                .required(List.of(Set.of("Adventure"), Set.of("Romance", "Science fiction")))
+                .excluded(Set.of("Horror", "Gothic"))
+                .build(), actualQuery);
+    }
+
+    @Test
+    @DisplayName("Разбирать исключение в начале запроса")
+    void shouldParseLeadingNot() {
+        //when
+        var actualQuery = GenreQuery.parse("NOT Horror AND Adventure");
+
+        //then
+        assertEquals(List.of(Set.of("Adventure")), actualQuery.getRequired());
+        assertEquals(Set.of("Horror"), actualQuery.getExcluded());
+    }
+
+    @Test
+    @DisplayName("Отклонять запрос без включаемых жанров или с пропущенным жанром")
+    void shouldRejectInvalidQuery() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> GenreQuery.parse("NOT Horror"));
+        assertThrows(IllegalArgumentException.class, () -> GenreQuery.parse("Adventure AND OR Romance"));
+        assertThrows(IllegalArgumentException.class, () -> GenreQuery.parse(" "));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.spring18.server;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.domain.Book;
+import com.example.spring18.services.book.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Сервер сессий должен:")
+@ExtendWith(MockitoExtension.class)
+class LibraryServerTest {
+
+    @Mock
+    private BookService bookService;
+
+    private LibraryServer sut;
+
+    @AfterEach
+    void tearDown() {
+        if (sut.isRunning()) {
+            sut.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Обслуживать параллельные сессии по TCP")
+    void shouldServeConcurrentTcpSessions() throws Exception {
+        //given
+        when(bookService.getBookById(anyLong())).thenAnswer(invocation -> book(invocation.getArgument(0)));
+        sut = start(new LibraryProperties());
+        int clients = 200;
+        var ready = new CountDownLatch(clients);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+        //when
+        List<Future<List<String>>> responses = new ArrayList<>();
+        try {
+            for (int i = 0; i < clients; i++) {
+                long bookId = i;
+                responses.add(executor.submit(() -> {
+                    try (var session = connect(sut.getLocalAddress())) {
+                        ready.countDown();
+                        ready.await();
+                        return request(session, "get " + bookId);
+                    }
+                }));
+            }
+
+            //then
+            for (int i = 0; i < clients; i++) {
+                assertEquals(List.of(book(i).toString(), SessionCommands.OK), responses.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Обслуживать сессии через Unix-сокет")
+    void shouldServeUnixDomainSessions(@TempDir Path directory) throws Exception {
+        //given
+        when(bookService.getBookById(1L)).thenReturn(book(1));
+        var properties = new LibraryProperties();
+        properties.getServer().setUnixSocket(directory.resolve("library.sock"));
+        sut = start(properties);
+
+        //when
+        List<String> response;
+        try (var session = connect(sut.getLocalAddress())) {
+            response = request(session, "get 1");
+        }
+
+        //then
+        assertEquals(List.of(book(1).toString(), SessionCommands.OK), response);
+    }
+
+    @Test
+    @DisplayName("Отклонять сессии сверх лимита")
+    void shouldRejectSessionsOverLimit() throws Exception {
+        //given
+        var properties = new LibraryProperties();
+        properties.getServer().setMaxSessions(1);
+        sut = start(properties);
+
+        //when
+        String rejected;
+        try (var first = connect(sut.getLocalAddress())) {
+            assertEquals(List.of(SessionCommands.OK), request(first, "ping"));
+            try (var second = connect(sut.getLocalAddress())) {
+                rejected = second.readLine();
+            }
+        }
+
+        //then
+        assertThat(rejected).startsWith(SessionCommands.ERROR);
+    }
+
+    @Test
+    @DisplayName("Отклонять сессии сверх числа платформенных потоков, когда виртуальных потоков нет")
+    void shouldRejectSessionsOverPlatformThreads_whenVirtualThreadsAreUnavailable() throws Exception {
+        //given
+        assumeFalse(SessionExecutors.virtualThreadsAvailable());
+        var properties = new LibraryProperties();
+        properties.getServer().setPlatformThreads(2);
+        sut = start(properties);
+
+        //when
+        String rejected;
+        try (var first = connect(sut.getLocalAddress());
+             var second = connect(sut.getLocalAddress())) {
+            assertEquals(List.of(SessionCommands.OK), request(first, "ping"));
+            assertEquals(List.of(SessionCommands.OK), request(second, "ping"));
+            try (var third = connect(sut.getLocalAddress())) {
+                rejected = third.readLine();
+            }
+        }
+
+        //then
+        assertThat(rejected).startsWith(SessionCommands.ERROR);
+    }
+
+    private LibraryServer start(LibraryProperties properties) {
+        properties.getServer().setPort(0);
+        var server = new LibraryServer(bookService, properties);
+        server.start();
+        return server;
+    }
+
+    private static SessionChannel connect(SocketAddress address) throws IOException {
+        return new SessionChannel(SocketChannel.open(address));
+    }
+
+    private static List<String> request(SessionChannel session, String line) throws IOException {
+        session.writeLine(line);
+        session.flush();
+        List<String> response = new ArrayList<>();
+        String next;
+        do {
+            next = session.readLine();
+            response.add(next);
+        } while (!next.equals(SessionCommands.OK) && !next.startsWith(SessionCommands.ERROR));
+        return response;
+    }
+
+    private static Book book(long id) {
+        return Book.builder()
+                .id(id)
+                .name("Book " + id)
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.spring18.server;
+
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.GenreQuery;
+import com.example.spring18.services.book.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Команды сессии сервера должны:")
+@ExtendWith(MockitoExtension.class)
+class SessionCommandsTest {
+
+    @Mock
+    private BookService bookService;
+
+    @InjectMocks
+    private SessionCommands sut;
+
+    @Test
+    @DisplayName("Искать книги по жанрам с учетом флага --all")
+    void shouldGetBooksByAllGenres() {
+        //given
+        var book = Book.builder()
+                .id(3)
+                .name("Romance-adventure novel")
+                .build();
+        when(bookService.getBooksByGenres(List.of("Adventure", "Romance"), true)).thenReturn(List.of(book));
+        List<String> out = new ArrayList<>();
+
+        //when
+        boolean open = sut.execute("by-genre --all Adventure Romance", out::add);
+
+        //then
+        assertTrue(open);
+        assertEquals(List.of(book.toString(), SessionCommands.OK), out);
+    }
+
+    @Test
+    @DisplayName("Считать книги по запросу жанров с флагом --count")
+    void shouldCountBooksByGenreQuery() {
+        //given
+        when(bookService.countBooksByGenreQuery(GenreQuery.parse("Adventure NOT Romance"))).thenReturn(1L);
+        List<String> out = new ArrayList<>();
+
+        //when
+        sut.execute("genre-query --count Adventure NOT Romance", out::add);
+
+        //then
+        assertEquals(List.of("1", SessionCommands.OK), out);
+    }
+
+    @Test
+    @DisplayName("Передавать в поиск весь остаток строки")
+    void shouldSearchByRestOfLine() {
+        //given
+        when(bookService.search("adventure rubina", 20)).thenReturn(List.of());
+        List<String> out = new ArrayList<>();
+
+        //when
+        sut.execute("search  adventure rubina\r", out::add);
+
+        //then
+        assertEquals(List.of(SessionCommands.OK), out);
+    }
+
+    @Test
+    @DisplayName("Отвечать ошибкой на неизвестную команду и некорректные аргументы")
+    void shouldAnswerErrors() {
+        //given
+        List<String> out = new ArrayList<>();
+
+        //when
+        sut.execute("drop books", out::add);
+        sut.execute("get one", out::add);
+        sut.execute("get", out::add);
+
+        //then
+        assertThat(out).hasSize(3).allMatch(line -> line.startsWith(SessionCommands.ERROR + " "));
+    }
+
+    @Test
+    @DisplayName("Завершать сессию по команде quit")
+    void shouldQuit() {
+        //given
+        List<String> out = new ArrayList<>();
+
+        //when
+        boolean open = sut.execute("quit", out::add);
+
+        //then
+        assertFalse(open);
+        assertEquals(List.of(SessionCommands.OK), out);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.spring18.services.author;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.author.AuthorDao;
 import com.example.spring18.domain.Author;
 import org.junit.jupiter.api.DisplayName;
@@ -7,14 +8,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.DataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("Сервис для работы с авторами должен:")
@@ -24,37 +29,28 @@ class AuthorServiceImplTest {
     @Mock
     private AuthorDao authorDao;
 
-    @InjectMocks
-    private AuthorServiceImpl sut;
-
-    @Test
-    @DisplayName("Возвращать id существующего автора")
-    void shouldReturnExistingAuthorId_whenAuthorExists() {
-        //given
-        var author = author();
-        when(authorDao.getByLastnameAndInitials(author.getLastName(), author.getInitials())).thenReturn(author);
+    @Spy
+    private AuthorCache authorCache = new AuthorCache(new LibraryProperties());
 
-        //when
-        var result = sut.getExistingAuthorIdOrSave(author);
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
-        //then
-        assertEquals(author.getId(), result);
-    }
+    @InjectMocks
+    private AuthorServiceImpl sut;
 
     @Test
-    @DisplayName("Возвращать id сохраненного автора")
-    void shouldSaveNewAuthorAndReturnItsId_whenAuthorNotExists() {
+    @DisplayName("Возвращать id автора, найденного или сохраненного одним запросом")
+    void shouldReturnAuthorIdFromUpsert() {
         //given
         var author = author();
-        var savedAuthorId = 2L;
-        when(authorDao.getByLastnameAndInitials(author.getLastName(), author.getInitials())).thenThrow(mock(DataAccessException.class));
-        when(authorDao.save(author)).thenReturn(savedAuthorId);
+        var authorId = 2L;
+        when(authorDao.upsert(author)).thenReturn(authorId);
 
         //when
         var result = sut.getExistingAuthorIdOrSave(author);
 
         //then
-        assertEquals(savedAuthorId, result);
+        assertEquals(authorId, result);
     }
 
     @Test
@@ -89,6 +85,104 @@ class AuthorServiceImplTest {
                 .isEqualTo(expectedAuthors);
     }
 
+    @Test
+    @DisplayName("Возвращать id автора из кэша без обращения к базе")
+    void shouldReturnCachedAuthorId() {
+        //given
+        var author = author();
+        when(authorDao.upsert(author)).thenReturn(2L);
+        sut.getExistingAuthorIdOrSave(author);
+
+        //when
+        var result = sut.getExistingAuthorIdOrSave(author());
+
+        //then
+        assertEquals(2L, result);
+        verify(authorDao, times(1)).upsert(author);
+    }
+
+    @Test
+    @DisplayName("Возвращать автора по id из кэша")
+    void shouldReturnCachedAuthorById() {
+        //given
+        var expectedAuthor = author();
+        when(authorDao.getById(expectedAuthor.getId())).thenReturn(expectedAuthor);
+        sut.getAuthorById(expectedAuthor.getId());
+
+        //when
+        var actualAuthor = sut.getAuthorById(expectedAuthor.getId());
+
+        //then
+        assertThat(actualAuthor).isEqualTo(expectedAuthor);
+        verify(authorDao, times(1)).getById(expectedAuthor.getId());
+    }
+
+    @Test
+    @DisplayName("Кэшировать автора, прочитанного в транзакции, только после ее фиксации")
+    void shouldCacheAuthorReadInTransaction_afterCommit() {
+        //given
+        var expectedAuthor = author();
+        when(authorDao.getById(expectedAuthor.getId())).thenReturn(expectedAuthor);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            var actualAuthor = sut.getAuthorById(expectedAuthor.getId());
+
+            //then
+            assertEquals(expectedAuthor, actualAuthor);
+            assertThat(authorCache.getByKey(expectedAuthor.getInitials(), expectedAuthor.getLastName())).isNull();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(expectedAuthor, sut.getAuthorById(expectedAuthor.getId()));
+        verify(authorDao, times(1)).getById(expectedAuthor.getId());
+    }
+
+    @Test
+    @DisplayName("Сбрасывать кэш при обновлении автора")
+    void shouldInvalidateCache_whenAuthorIsUpdated() {
+        //given
+        var oldAuthor = author();
+        var newAuthor = Author.builder()
+                .id(oldAuthor.getId())
+                .lastName("newLastName")
+                .initials("initials")
+                .build();
+        when(authorDao.upsert(oldAuthor)).thenReturn(oldAuthor.getId(), 3L);
+        when(authorDao.getById(oldAuthor.getId())).thenReturn(oldAuthor, newAuthor);
+        sut.getExistingAuthorIdOrSave(oldAuthor);
+        sut.getAuthorById(oldAuthor.getId());
+
+        //when
+        sut.updateAuthor(newAuthor);
+
+        //then
+        assertEquals(3L, sut.getExistingAuthorIdOrSave(author()));
+        assertThat(sut.getAuthorById(oldAuthor.getId())).isEqualTo(newAuthor);
+        verify(authorDao).updateById(newAuthor);
+        verify(eventPublisher).publishEvent(new AuthorChangedEvent(oldAuthor.getId()));
+    }
+
+    @Test
+    @DisplayName("Сбрасывать кэш при удалении автора")
+    void shouldInvalidateCache_whenAuthorIsDeleted() {
+        //given
+        var author = author();
+        when(authorDao.upsert(author)).thenReturn(author.getId());
+        when(authorDao.getById(author.getId())).thenReturn(author);
+        sut.getExistingAuthorIdOrSave(author);
+
+        //when
+        sut.deleteAuthorById(author.getId());
+
+        //then
+        verify(authorDao).delete(author.getId());
+        verify(eventPublisher).publishEvent(new AuthorChangedEvent(author.getId()));
+        verify(authorCache).invalidate(author);
+        assertThat(authorCache.getByKey(author.getInitials(), author.getLastName())).isNull();
+    }
+
     private static Author author() {
         return Author.builder()
                 .id(1L)
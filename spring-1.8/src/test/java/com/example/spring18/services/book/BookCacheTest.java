@@ -0,0 +1,78 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.services.author.AuthorChangedEvent;
+import com.example.spring18.services.genre.GenreChangedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Кэш книг должен:")
+class BookCacheTest {
+
+    private final BookCache sut = new BookCache(new LibraryProperties());
+
+    @Test
+    @DisplayName("Сбрасывать книги измененного автора")
+    void shouldInvalidateBooks_whenAuthorIsChanged() {
+        //given
+        sut.get(1L, id -> book(id, 1L, 1L));
+        sut.get(2L, id -> book(id, 2L, 1L));
+
+        //when
+        sut.onAuthorChanged(new AuthorChangedEvent(1L));
+
+        //then
+        assertThat(sut.get(1L, id -> null)).isNull();
+        assertThat(sut.get(2L, id -> null)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Сбрасывать книги измененного жанра")
+    void shouldInvalidateBooks_whenGenreIsChanged() {
+        //given
+        sut.get(1L, id -> book(id, 1L, 1L));
+        sut.get(2L, id -> book(id, 1L, 2L));
+
+        //when
+        sut.onGenreChanged(new GenreChangedEvent(2L));
+
+        //then
+        assertThat(sut.get(1L, id -> null)).isNotNull();
+        assertThat(sut.get(2L, id -> null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Оценивать размер книги с учетом автора и жанров")
+    void shouldEstimateBookSize() {
+        //given
+        var book = book(1L, 1L, 1L);
+        var bookWithoutGenres = book(1L, 1L, 1L);
+        bookWithoutGenres.setGenres(List.of());
+
+        //then
+        assertThat(BookCache.estimateBytes(book)).isGreaterThan(BookCache.estimateBytes(bookWithoutGenres));
+    }
+
+    private static Book book(long id, long authorId, long genreId) {
+        return Book.builder()
+                .id(id)
+                .name("name")
+                .author(Author.builder()
+                        .id(authorId)
+                        .initials("initials")
+                        .lastName("lastName")
+                        .build())
+                .genres(List.of(Genre.builder()
+                        .id(genreId)
+                        .name("genre")
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.author.AuthorDaoJdbc;
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.dao.util.BookGenreRelation;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Модель чтения книг должна:")
+@JdbcTest(properties = "library.read-model.enabled=true")
+@Import({AuthorDaoJdbc.class, BookDaoJdbc.class, GenreDaoJdbc.class, BookReadModel.class})
+class BookReadModelTest {
+
+    @Autowired
+    private BookReadModel sut;
+
+    @Autowired
+    private BookDaoJdbc bookDao;
+
+    @Autowired
+    private AuthorDaoJdbc authorDao;
+
+    @Autowired
+    private GenreDaoJdbc genreDao;
+
+    @DisplayName("Загружаться при старте и отдавать те же книги, что и база")
+    @Test
+    void shouldServeSameBooksAsDatabase() {
+        //then
+        assertTrue(sut.isLoaded());
+        assertThat(sut.getAllBooks())
+                .usingRecursiveComparison()
+                .ignoringCollectionOrder()
+                .isEqualTo(bookDao.getByIdsWithGenres(List.of(1L, 2L, 3L)));
+        assertThat(sut.getBookById(3L))
+                .usingRecursiveComparison()
+                .ignoringCollectionOrder()
+                .isEqualTo(bookDao.getByIdWithGenres(3L));
+        assertThrows(EmptyResultDataAccessException.class, () -> sut.getBookById(100L));
+    }
+
+    @DisplayName("Искать книги по автору")
+    @Test
+    void shouldGetBooksByAuthor() {
+        //then
+        assertThat(sut.getBooksByAuthorId(2L)).extracting(Book::getId).containsExactly(2L, 3L);
+        assertThat(sut.getBooksByAuthorLastname("Pushkin")).extracting(Book::getId).containsExactly(1L);
+        assertThat(sut.getBooksByAuthorLastname("Tolstoy")).isEmpty();
+    }
+
+    @DisplayName("Искать книги по жанрам")
+    @Test
+    void shouldGetBooksByGenres() {
+        //then
+        assertThat(sut.getBooksByGenres(List.of("Adventure", "Romance"), false))
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L, 3L);
+        assertThat(sut.getBooksByGenres(List.of("Adventure", "Romance"), true))
+                .extracting(Book::getId)
+                .containsExactly(3L);
+        assertThat(sut.getBooksByGenres(List.of("Adventure", "Horror"), true)).isEmpty();
+    }
+
+    @DisplayName("Применять изменения книг")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext
+    void shouldApplyBookChanges() {
+        //given
+        long bookId = bookDao.save(Book.builder()
+                .name("New novel")
+                .author(Author.builder().id(1L).build())
+                .build());
+        bookDao.deleteBookGenreLinks(List.of(BookGenreRelation.builder()
+                .bookId(1L)
+                .genreId(1L)
+                .build()));
+        bookDao.delete(2L);
+
+        //when
+        sut.refreshAfterCommit(List.of(bookId, 1L));
+        sut.removeAfterCommit(List.of(2L));
+
+        //then
+        assertThat(sut.getBookById(bookId))
+                .usingRecursiveComparison()
+                .isEqualTo(Book.builder()
+                        .id(bookId)
+                        .name("New novel")
+                        .author(Author.builder()
+                                .id(1L)
+                                .initials("A.S.")
+                                .lastName("Pushkin")
+                                .build())
+                        .genres(List.of())
+                        .build());
+        assertThat(sut.getBookById(1L).getGenres()).isEmpty();
+        assertThat(sut.getBooksByGenres(List.of("Adventure"), false)).extracting(Book::getId).containsExactly(3L);
+        assertThat(sut.getBooksByAuthorId(2L)).extracting(Book::getId).containsExactly(3L);
+        assertThat(sut.getAllBooks()).extracting(Book::getId).containsExactly(1L, 3L, bookId);
+        assertThat(sut.getBooksByGenres(List.of("Romance"), false))
+                .flatExtracting(Book::getGenres)
+                .extracting(Genre::getName)
+                .contains("Romance");
+    }
+
+    @DisplayName("Восстанавливаться из снимка, дочитывая новые книги")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext
+    void shouldRestoreFromSnapshot(@TempDir Path directory) throws IOException {
+        //given
+        var properties = snapshotProperties(directory);
+        var written = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        written.load();
+        written.writeSnapshot();
+        long addedBookId = bookDao.save(Book.builder()
+                .name("New novel")
+                .author(Author.builder().id(2L).build())
+                .build());
+        bookDao.createBookGenreLink(addedBookId, 2L);
+
+        //when
+        var restored = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        boolean actualRestored = restored.restoreSnapshot();
+
+        //then
+        assertTrue(actualRestored);
+        assertThat(restored.getAllBooks())
+                .usingRecursiveComparison()
+                .isEqualTo(bookDao.getByIdsWithGenres(List.of(1L, 2L, 3L, addedBookId)));
+        assertThat(restored.getBooksByGenres(List.of("Romance"), false))
+                .extracting(Book::getId)
+                .containsExactly(2L, 3L, addedBookId);
+    }
+
+    @DisplayName("Восстанавливаться из снимка, перечитывая измененные книги")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext
+    void shouldRestoreFromSnapshot_whenBooksWereChanged(@TempDir Path directory) throws IOException {
+        //given
+        var properties = snapshotProperties(directory);
+        var written = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        written.load();
+        written.writeSnapshot();
+        bookDao.updateById(Book.builder().id(1L).name("Renamed novel").build());
+        bookDao.updateAuthorId(2L, 1L);
+        bookDao.deleteBookGenreLink(3L, 1L);
+        bookDao.createBookGenreLink(2L, 1L);
+        bookDao.markChanged(List.of(3L));
+
+        //when
+        var restored = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        boolean actualRestored = restored.restoreSnapshot();
+
+        //then
+        assertTrue(actualRestored);
+        assertThat(restored.getAllBooks())
+                .usingRecursiveComparison()
+                .ignoringCollectionOrder()
+                .isEqualTo(bookDao.getByIdsWithGenres(List.of(1L, 2L, 3L)));
+        assertThat(restored.getBooksByAuthorId(1L)).extracting(Book::getId).containsExactly(1L, 2L);
+        assertThat(restored.getBooksByGenres(List.of("Adventure"), false))
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L);
+    }
+
+    @DisplayName("Восстанавливаться из снимка без удаленных после него книг")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext
+    void shouldRestoreFromSnapshot_whenBooksWereDeleted(@TempDir Path directory) throws IOException {
+        //given
+        var properties = snapshotProperties(directory);
+        var written = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        written.load();
+        written.writeSnapshot();
+        bookDao.delete(1L);
+
+        //when
+        var restored = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        boolean actualRestored = restored.restoreSnapshot();
+
+        //then
+        assertTrue(actualRestored);
+        assertThat(restored.getAllBooks()).extracting(Book::getId).containsExactly(2L, 3L);
+        assertThrows(EmptyResultDataAccessException.class, () -> restored.getBookById(1L));
+        assertThat(restored.getBooksByGenres(List.of("Adventure"), false))
+                .extracting(Book::getId)
+                .containsExactly(3L);
+    }
+
+    @DisplayName("Не восстанавливаться из устаревшего снимка")
+    @Test
+    void shouldNotRestoreFromSnapshot_whenSnapshotIsTooOld(@TempDir Path directory) throws IOException {
+        //given
+        var properties = snapshotProperties(directory);
+        properties.getReadModel().getSnapshot().setMaxAge(Duration.ZERO);
+        var written = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        written.load();
+        written.writeSnapshot();
+
+        //when
+        var restored = new BookReadModel(bookDao, authorDao, genreDao, properties);
+        boolean actualRestored = restored.restoreSnapshot();
+
+        //then
+        assertFalse(actualRestored);
+        assertFalse(restored.isLoaded());
+    }
+
+    /**
+     * No overlap, so only the books changed by the test itself are read again.
+     */
+    private static LibraryProperties snapshotProperties(Path directory) {
+        var properties = new LibraryProperties();
+        properties.getReadModel().getSnapshot().setFile(directory.resolve("catalog.snapshot"));
+        properties.getReadModel().getSnapshot().setOverlap(Duration.ZERO);
+        return properties;
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.spring18.services.book;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.book.BookDao;
+import com.example.spring18.dao.book.BookSearchDao;
 import com.example.spring18.dao.util.BookGenreRelation;
 import com.example.spring18.domain.Author;
 import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookChange;
 import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
 import com.example.spring18.services.author.AuthorService;
 import com.example.spring18.services.genre.GenreService;
 import org.junit.jupiter.api.DisplayName;
@@ -12,12 +16,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @DisplayName("Сервис для работы с книгами должен:")
@@ -27,12 +43,30 @@ class BookServiceImplTest {
     @Mock
     private BookDao bookDao;
 
+    @Mock
+    private BookSearchDao bookSearchDao;
+
     @Mock
     private AuthorService authorService;
 
     @Mock
     private GenreService genreService;
 
+    @Mock
+    private TransactionOperations transactionOperations;
+
+    @Spy
+    private LibraryProperties libraryProperties = new LibraryProperties();
+
+    @Mock
+    private BookReadModel bookReadModel;
+
+    @Mock
+    private GenreBitmapIndex genreBitmapIndex;
+
+    @Spy
+    private BookCache bookCache = new BookCache(new LibraryProperties());
+
     @InjectMocks
     private BookServiceImpl sut;
 
@@ -57,14 +91,14 @@ class BookServiceImplTest {
         var genreId = 3L;
         when(bookDao.save(book)).thenReturn(savedBookId);
         when(authorService.getExistingAuthorIdOrSave(author)).thenReturn(authorId);
-        when(genreService.getExistingGenreIdOrSave(genre)).thenReturn(genreId);
+        when(genreService.getExistingGenreIdsOrSave(List.of(genre))).thenReturn(List.of(genreId));
 
         //when
         var result = sut.saveBook(book);
 
         //then
         assertEquals(savedBookId, result);
-        verify(bookDao, times(1)).createBookGenreLink(savedBookId, genreId);
+        verify(bookDao, times(1)).createBookGenreLinks(savedBookId, List.of(genreId));
     }
 
     @Test
@@ -80,26 +114,16 @@ class BookServiceImplTest {
                 .id(3L)
                 .name("genreName")
                 .build();
-        var book = Book.builder()
-                .id(1L)
-                .name("name")
-                .author(author)
-                .build();
         var expectedBook = Book.builder()
                 .id(1L)
                 .name("name")
                 .author(author)
                 .genres(List.of(genre))
                 .build();
-        when(bookDao.getById(book.getId())).thenReturn(book);
-        when(bookDao.getBookGenreRelations(book.getId())).thenReturn(List.of(BookGenreRelation.builder()
-                .bookId(book.getId())
-                .genreId(genre.getId())
-                .build()));
-        when(genreService.getAllGenres()).thenReturn(List.of(genre));
+        when(bookDao.getByIdWithGenres(expectedBook.getId())).thenReturn(expectedBook);
 
         //when
-        var actualBook = sut.getBookById(book.getId());
+        var actualBook = sut.getBookById(expectedBook.getId());
 
         //then
         assertThat(actualBook)
@@ -107,6 +131,66 @@ class BookServiceImplTest {
                 .isEqualTo(expectedBook);
     }
 
+    @Test
+    @DisplayName("Должен получать книгу по id из кэша до ее обновления")
+    void shouldGetCachedBookById_untilBookIsUpdated() {
+        //given
+        var book = Book.builder()
+                .id(1L)
+                .name("name")
+                .build();
+        when(bookDao.getByIdWithGenres(book.getId())).thenReturn(book);
+        sut.getBookById(book.getId());
+        sut.getBookById(book.getId());
+
+        //when
+        sut.updateBookById(book);
+        sut.getBookById(book.getId());
+
+        //then
+        verify(bookDao, times(2)).getByIdWithGenres(book.getId());
+    }
+
+    @Test
+    @DisplayName("Должен получать книги по жанрам")
+    void shouldGetBooksByGenres() {
+        //given
+        var genreNames = List.of("Adventure", "Romance");
+        var expectedBooks = List.of(Book.builder()
+                .id(1L)
+                .name("name")
+                .build());
+        when(bookDao.getByGenres(genreNames, true)).thenReturn(expectedBooks);
+
+        //when
+        var actualBooks = sut.getBooksByGenres(genreNames, true);
+
+        //then
+        assertThat(actualBooks).isEqualTo(expectedBooks);
+    }
+
+    @Test
+    @DisplayName("Должен возвращать найденные книги в порядке ранжирования")
+    void shouldSearchBooksInRankOrder() {
+        //given
+        var first = Book.builder()
+                .id(3L)
+                .name("first")
+                .build();
+        var second = Book.builder()
+                .id(1L)
+                .name("second")
+                .build();
+        when(bookSearchDao.search("query", 2)).thenReturn(List.of(3L, 1L));
+        when(bookDao.getByIdsWithGenres(List.of(3L, 1L))).thenReturn(List.of(second, first));
+
+        //when
+        var actualBooks = sut.search("query", 2);
+
+        //then
+        assertThat(actualBooks).containsExactly(first, second);
+    }
+
     @Test
     @DisplayName("Должен получать все книги")
     void shouldGetAllBooks() {
@@ -147,6 +231,176 @@ class BookServiceImplTest {
                 .isEqualTo(expectedBooks);
     }
 
+    @Test
+    @DisplayName("Должен получать все книги параллельными запросами, когда это включено")
+    void shouldGetAllBooksInParallel_whenEnabled() {
+        //given
+        libraryProperties.getBooks().setParallelFetch(true);
+        var genre = Genre.builder()
+                .id(3L)
+                .name("genreName")
+                .build();
+        var books = List.of(Book.builder()
+                .id(1L)
+                .name("name")
+                .build());
+        List<String> threads = new CopyOnWriteArrayList<>();
+        when(bookDao.getAll()).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return books;
+        });
+        when(bookDao.getBookGenreRelations()).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of(BookGenreRelation.builder()
+                    .bookId(1L)
+                    .genreId(genre.getId())
+                    .build());
+        });
+        when(genreService.getAllGenres()).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return List.of(genre, Genre.builder().id(4L).name("other").build());
+        });
+
+        //when
+        var actualBooks = sut.getAllBooks();
+
+        //then
+        assertThat(actualBooks)
+                .singleElement()
+                .satisfies(book -> assertEquals(List.of(genre), book.getGenres()));
+        assertThat(threads)
+                .hasSize(3)
+                .filteredOn(thread -> thread.startsWith("library-fetch-"))
+                .hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Должен отдавать книги из модели чтения, когда она загружена")
+    void shouldGetBooksFromReadModel_whenLoaded() {
+        //given
+        var expectedBooks = List.of(Book.builder().id(1L).name("book").build());
+        when(bookReadModel.isLoaded()).thenReturn(true);
+        when(bookReadModel.getAllBooks()).thenReturn(expectedBooks);
+
+        //when
+        var actualBooks = sut.getAllBooks();
+
+        //then
+        assertEquals(expectedBooks, actualBooks);
+        verifyNoInteractions(bookDao);
+    }
+
+    @Test
+    @DisplayName("Должен считать книги по запросу жанров через индекс, когда он загружен")
+    void shouldCountBooksByGenreQueryWithIndex_whenLoaded() {
+        //given
+        var query = GenreQuery.parse("Adventure NOT Romance");
+        when(genreBitmapIndex.isLoaded()).thenReturn(true);
+        when(genreBitmapIndex.count(query)).thenReturn(1L);
+
+        //when
+        long actualCount = sut.countBooksByGenreQuery(query);
+
+        //then
+        assertEquals(1L, actualCount);
+        verifyNoInteractions(bookDao);
+    }
+
+    @Test
+    @DisplayName("Должен читать найденные индексом книги порциями по fetch-size")
+    void shouldGetBooksByGenreQueryInChunks_whenIndexIsLoaded() {
+        //given
+        libraryProperties.getBooks().setFetchSize(2);
+        var query = GenreQuery.parse("Adventure");
+        when(genreBitmapIndex.isLoaded()).thenReturn(true);
+        when(genreBitmapIndex.getBookIds(query)).thenReturn(new long[]{1L, 2L, 3L, 4L, 5L});
+        when(bookDao.getByIdsWithGenres(anyCollection())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> Book.builder().id(id).build()).toList();
+        });
+
+        //when
+        var actualBooks = sut.getBooksByGenreQuery(query);
+
+        //then
+        assertThat(actualBooks).extracting(Book::getId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        verify(bookDao).getByIdsWithGenres(List.of(1L, 2L));
+        verify(bookDao).getByIdsWithGenres(List.of(3L, 4L));
+        verify(bookDao).getByIdsWithGenres(List.of(5L));
+        verify(bookDao, never()).getByGenreQuery(any());
+    }
+
+    @Test
+    @DisplayName("Должен потоково передавать все книги")
+    void shouldStreamAllBooks() {
+        //given
+        Consumer<Book> consumer = book -> {
+        };
+
+        //when
+        sut.streamAllBooks(consumer);
+
+        //then
+        verify(bookDao, times(1)).streamAll(consumer);
+    }
+
+    @Test
+    @DisplayName("Должен получать страницу книг после курсора")
+    void shouldGetBooksPageAfter() {
+        //given
+        var genre = Genre.builder()
+                .id(3L)
+                .name("genreName")
+                .build();
+        var books = new ArrayList<>(List.of(Book.builder().id(5L).build(), Book.builder().id(6L).build(),
+                Book.builder().id(7L).build()));
+        when(bookDao.getPageAfter(4L, 3)).thenReturn(books);
+        when(bookDao.getBookGenreRelations(List.of(5L, 6L))).thenReturn(List.of(BookGenreRelation.builder()
+                .bookId(5L)
+                .genreId(genre.getId())
+                .build()));
+        when(genreService.getGenresByIds(Set.of(genre.getId()))).thenReturn(List.of(genre));
+
+        //when
+        var page = sut.getBooksPageAfter(4L, 2);
+
+        //then
+        assertThat(page.getBooks())
+                .extracting(Book::getId)
+                .containsExactly(5L, 6L);
+        assertThat(page.getBooks().get(0).getGenres()).containsExactly(genre);
+        assertThat(page.getBooks().get(1).getGenres()).isEmpty();
+        assertEquals(5L, page.getPreviousCursor());
+        assertEquals(6L, page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Должен получать первую страницу книг перед курсором")
+    void shouldGetBooksPageBefore() {
+        //given
+        var books = new ArrayList<>(List.of(Book.builder().id(1L).build(), Book.builder().id(2L).build()));
+        when(bookDao.getPageBefore(3L, 3)).thenReturn(books);
+
+        //when
+        var page = sut.getBooksPageBefore(3L, 2);
+
+        //then
+        assertThat(page.getBooks())
+                .extracting(Book::getId)
+                .containsExactly(1L, 2L);
+        assertNull(page.getPreviousCursor());
+        assertEquals(2L, page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Должен отклонять страницу неположительного размера")
+    void shouldRejectBooksPage_whenSizeIsNotPositive() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> sut.getBooksPageAfter(0L, 0));
+        assertThrows(IllegalArgumentException.class, () -> sut.getBooksPageBefore(3L, -1));
+        verifyNoInteractions(bookDao);
+    }
+
     @Test
     @DisplayName("Должен обновлять книгу, у которой нет жанров")
     void shouldUpdateBook_whenNoGenres() {
@@ -156,17 +410,12 @@ class BookServiceImplTest {
                 .lastName("lastname")
                 .initials("initials")
                 .build();
-        var genre = Genre.builder()
-                .id(3L)
-                .name("genreName")
-                .build();
         var expectedBook = Book.builder()
                 .id(1L)
                 .name("newName")
                 .author(author)
                 .genres(List.of())
                 .build();
-        when(genreService.getGenresByBookId(expectedBook.getId())).thenReturn(List.of(genre));
         when(authorService.getExistingAuthorIdOrSave(author)).thenReturn(author.getId());
 
         //when
@@ -187,9 +436,9 @@ class BookServiceImplTest {
                 .name("genreName")
                 .build();
         var newGenre = Genre.builder()
-                .id(4L)
                 .name("newGenreName")
                 .build();
+        var newGenreId = 4L;
         var expectedBook = Book.builder()
                 .id(1L)
                 .name("newName")
@@ -197,6 +446,7 @@ class BookServiceImplTest {
                 .genres(List.of(newGenre))
                 .build();
         when(genreService.getGenresByBookId(expectedBook.getId())).thenReturn(List.of(oldGenre));
+        when(genreService.getExistingGenreIdsOrSave(List.of(newGenre))).thenReturn(List.of(newGenreId));
 
         //when
         sut.updateBookById(expectedBook);
@@ -204,8 +454,8 @@ class BookServiceImplTest {
         //then
         verify(bookDao, times(1)).updateById(expectedBook);
         verify(bookDao, times(1)).updateAuthorId(expectedBook.getId(), null);
-        verify(bookDao, times(1)).createBookGenreLink(expectedBook.getId(), newGenre.getId());
-        verify(bookDao, times(1)).deleteBookGenreLink(expectedBook.getId(), oldGenre.getId());
+        verify(bookDao, times(1)).createBookGenreLinks(expectedBook.getId(), List.of(newGenreId));
+        verify(bookDao, times(1)).deleteBookGenreLinks(expectedBook.getId(), List.of(oldGenre.getId()));
     }
 
     @Test
@@ -220,4 +470,177 @@ class BookServiceImplTest {
         //then
         verify(bookDao, times(1)).delete(book.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Должен импортировать книги пачками через словари авторов и жанров")
+    void shouldImportBooksInChunks() {
+        //given
+        libraryProperties.getBooks().setImportChunkSize(2);
+        var knownAuthor = Author.builder()
+                .id(1L)
+                .initials("A.S.")
+                .lastName("Pushkin")
+                .build();
+        var knownGenre = Genre.builder()
+                .id(1L)
+                .name("Adventure")
+                .build();
+        var newGenre = Genre.builder()
+                .id(2L)
+                .name("Horror")
+                .build();
+        var newAuthor = Author.builder()
+                .initials("D.")
+                .lastName("Rubina")
+                .build();
+        var books = Stream.of(
+                importedBook("first", Author.builder().initials("A.S.").lastName("Pushkin").build(), knownGenre),
+                importedBook("second", newAuthor, Genre.builder().name("Horror").build()),
+                importedBook("third", Author.builder().initials("D.").lastName("Rubina").build(), Genre.builder().name("Horror").build()));
+        when(authorService.getAllAuthors()).thenReturn(List.of(knownAuthor));
+        when(genreService.getAllGenres()).thenReturn(List.of(knownGenre));
+        when(authorService.getExistingAuthorIdOrSave(newAuthor)).thenReturn(2L);
+        when(genreService.getExistingGenresOrSave(any())).thenReturn(List.of(newGenre));
+        when(bookDao.saveAllIfAbsent(any())).thenReturn(List.of(10L, 11L)).thenReturn(List.of(12L));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionOperations).executeWithoutResult(any());
+        List<Long> committed = new ArrayList<>();
+
+        //when
+        var imported = sut.importBooks(books, committed::add);
+
+        //then
+        assertEquals(3L, imported);
+        assertThat(committed).containsExactly(2L, 3L);
+        verify(transactionOperations, times(2)).executeWithoutResult(any());
+        verify(authorService, times(1)).getExistingAuthorIdOrSave(newAuthor);
+        verify(genreService, times(1)).getExistingGenresOrSave(any());
+        verify(bookDao).createBookGenreLinksIfAbsent(List.of(
+                BookGenreRelation.builder().bookId(10L).genreId(1L).build(),
+                BookGenreRelation.builder().bookId(11L).genreId(2L).build()));
+        verify(bookDao).createBookGenreLinksIfAbsent(List.of(
+                BookGenreRelation.builder().bookId(12L).genreId(2L).build()));
+    }
+
+    @Test
+    @DisplayName("Должен применять изменения одного вида одной пачкой в транзакции группы")
+    void shouldApplyChangesOfSameTypeAsBatches() {
+        //given
+        var genre = Genre.builder()
+                .id(1L)
+                .name("Adventure")
+                .build();
+        var changes = Stream.of(
+                change(BookChange.Type.ADD, 1, Book.builder().name("first").genres(List.of(genre)).build()),
+                change(BookChange.Type.ADD, 2, Book.builder().name("second").build()),
+                change(BookChange.Type.UPDATE, 3, Book.builder().id(1L).name("updated").genres(List.of(genre)).build()),
+                change(BookChange.Type.DELETE, 4, Book.builder().id(2L).build()),
+                change(BookChange.Type.DELETE, 5, Book.builder().id(3L).build()));
+        when(genreService.getAllGenres()).thenReturn(List.of(genre));
+        when(bookDao.saveAll(any())).thenReturn(List.of(10L, 11L));
+        when(bookDao.getBookGenreRelations(List.of(1L))).thenReturn(List.of(
+                BookGenreRelation.builder().bookId(1L).genreId(2L).build()));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionOperations).executeWithoutResult(any());
+        List<BookChange> failed = new ArrayList<>();
+
+        //when
+        var applied = sut.applyChanges(changes, 5, (change, e) -> failed.add(change));
+
+        //then
+        assertEquals(5L, applied);
+        assertThat(failed).isEmpty();
+        verify(transactionOperations, times(1)).executeWithoutResult(any());
+        verify(bookDao, times(1)).saveAll(any());
+        verify(bookDao, never()).saveAllIfAbsent(any());
+        verify(bookDao).createBookGenreLinksIfAbsent(List.of(
+                BookGenreRelation.builder().bookId(10L).genreId(1L).build()));
+        verify(bookDao, times(1)).updateAll(any());
+        verify(bookDao).deleteBookGenreLinks(List.of(BookGenreRelation.builder().bookId(1L).genreId(2L).build()));
+        verify(bookDao).createBookGenreLinksIfAbsent(List.of(
+                BookGenreRelation.builder().bookId(1L).genreId(1L).build()));
+        verify(bookDao, times(1)).deleteAll(List.of(2L, 3L));
+    }
+
+    @Test
+    @DisplayName("Должен повторять упавшую группу по одному изменению и пропускать только ошибочные")
+    void shouldRetryFailedGroupOneByOne() {
+        //given
+        var broken = change(BookChange.Type.DELETE, 2, Book.builder().id(2L).build());
+        var changes = Stream.of(change(BookChange.Type.DELETE, 1, Book.builder().id(1L).build()), broken,
+                change(BookChange.Type.DELETE, 3, Book.builder().id(3L).build()));
+        doThrow(new DataIntegrityViolationException("broken")).when(bookDao).deleteAll(argThat(ids -> ids.contains(2L)));
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionOperations).executeWithoutResult(any());
+        List<BookChange> failed = new ArrayList<>();
+
+        //when
+        var applied = sut.applyChanges(changes, 2, (change, e) -> failed.add(change));
+
+        //then
+        assertEquals(2L, applied);
+        assertThat(failed).containsExactly(broken);
+        verify(bookDao).deleteAll(List.of(1L));
+        verify(bookDao).deleteAll(List.of(3L));
+        verify(transactionOperations, times(4)).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Должен отклонять добавление уже существующей книги и не перечитывать словари после ошибок")
+    void shouldFailAddOfExistingBook_whenApplyingChanges() {
+        //given
+        var author = Author.builder()
+                .initials("A.S.")
+                .lastName("Pushkin")
+                .build();
+        var existing = change(BookChange.Type.ADD, 1, Book.builder().name("existing").author(author).build());
+        var added = change(BookChange.Type.ADD, 2, Book.builder().name("added").author(author).build());
+        when(authorService.getExistingAuthorIdOrSave(any())).thenReturn(5L);
+        when(bookDao.saveAll(any())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> book.getName().equals("existing"))) {
+                throw new DuplicateKeyException("existing");
+            }
+            return List.of(10L);
+        });
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionOperations).executeWithoutResult(any());
+        List<BookChange> failed = new ArrayList<>();
+
+        //when
+        var applied = sut.applyChanges(Stream.of(existing, added), 2, (change, e) -> failed.add(change));
+
+        //then
+        assertEquals(1L, applied);
+        assertThat(failed).containsExactly(existing);
+        verify(authorService, times(1)).getAllAuthors();
+        verify(genreService, times(1)).getAllGenres();
+        // the author resolved in each rolled back transaction is resolved again
+        verify(authorService, times(3)).getExistingAuthorIdOrSave(author);
+        verify(bookDao, never()).saveAllIfAbsent(any());
+    }
+
+    private static BookChange change(BookChange.Type type, long line, Book book) {
+        return BookChange.builder()
+                .type(type)
+                .line(line)
+                .book(book)
+                .build();
+    }
+
+    private static Book importedBook(String name, Author author, Genre genre) {
+        return Book.builder()
+                .name(name)
+                .author(author)
+                .genres(List.of(genre))
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.spring18.services.book;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Снимок каталога должен:")
+class CatalogSnapshotTest {
+
+    @Test
+    @DisplayName("Читать записанные колонки без изменений")
+    void shouldReadWrittenColumns(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("catalog.snapshot");
+        var createdAt = Instant.ofEpochMilli(1_700_000_000_000L);
+        snapshot(createdAt).write(file);
+
+        //when
+        var actual = CatalogSnapshot.read(file);
+
+        //then
+        assertEquals(createdAt, actual.getCreatedAt());
+        assertEquals(createdAt.minusSeconds(60), actual.getSyncedAt());
+        assertThat(actual.getBookIds()).containsExactly(1L, 3L);
+        assertThat(actual.getBookAuthorIds()).containsExactly(1L, 0L);
+        assertThat(actual.getBookNames()).containsExactly("Капитанская дочка", null);
+        assertThat(actual.getLinkBookIds()).containsExactly(1L, 1L, 3L);
+        assertThat(actual.getLinkGenreIds()).containsExactly(1L, 2L, 2L);
+    }
+
+    @Test
+    @DisplayName("Отклонять снимок с неверной контрольной суммой")
+    void shouldRejectCorruptedSnapshot(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("catalog.snapshot");
+        snapshot(Instant.now()).write(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() - 1);
+        }
+
+        //then
+        var exception = assertThrows(IOException.class, () -> CatalogSnapshot.read(file));
+        assertThat(exception.getMessage()).contains("checksum");
+    }
+
+    @Test
+    @DisplayName("Отклонять снимок с испорченным заголовком")
+    void shouldRejectSnapshot_whenHeaderIsCorrupted(@TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("catalog.snapshot");
+        snapshot(Instant.now()).write(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // last byte of the sync time
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 23);
+        }
+
+        //then
+        var exception = assertThrows(IOException.class, () -> CatalogSnapshot.read(file));
+        assertThat(exception.getMessage()).contains("checksum");
+    }
+
+    private static CatalogSnapshot snapshot(Instant createdAt) {
+        return CatalogSnapshot.builder()
+                .createdAt(createdAt)
+                .syncedAt(createdAt.minusSeconds(60))
+                .bookIds(new long[]{1L, 3L})
+                .bookAuthorIds(new long[]{1L, 0L})
+                .bookNames(new String[]{"Капитанская дочка", null})
+                .linkBookIds(new long[]{1L, 1L, 3L})
+                .linkGenreIds(new long[]{1L, 2L, 2L})
+                .build();
+    }
+}
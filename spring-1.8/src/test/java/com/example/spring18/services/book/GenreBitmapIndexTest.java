@@ -0,0 +1,70 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.dao.book.BookDaoJdbc;
+import com.example.spring18.dao.genre.GenreDaoJdbc;
+import com.example.spring18.domain.GenreQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Индекс жанров должен:")
+@JdbcTest(properties = "library.genre-index.enabled=true")
+@Import({BookDaoJdbc.class, GenreDaoJdbc.class, GenreBitmapIndex.class})
+class GenreBitmapIndexTest {
+
+    @Autowired
+    private GenreBitmapIndex sut;
+
+    @Autowired
+    private BookDaoJdbc bookDao;
+
+    @DisplayName("Находить и считать те же книги, что и база")
+    @Test
+    void shouldMatchDatabase() {
+        //given
+        List<GenreQuery> queries = List.of(
+                GenreQuery.parse("Adventure"),
+                GenreQuery.parse("Adventure AND Romance"),
+                GenreQuery.parse("Adventure OR Romance NOT Adventure"),
+                GenreQuery.parse("Romance NOT Horror"),
+                GenreQuery.parse("Horror OR Adventure"));
+
+        //then
+        assertTrue(sut.isLoaded());
+        for (GenreQuery query : queries) {
+            assertThat(sut.getBookIds(query))
+                    .containsExactly(bookDao.getByGenreQuery(query).stream().mapToLong(book -> book.getId()).toArray());
+            assertEquals(bookDao.countByGenreQuery(query), sut.count(query));
+        }
+    }
+
+    @DisplayName("Применять изменения связей книг после фиксации")
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext
+    void shouldApplyLinkChanges() {
+        //given
+        bookDao.createBookGenreLink(2L, 1L);
+        bookDao.delete(3L);
+
+        //when
+        sut.refreshAfterCommit(List.of(2L));
+        sut.removeAfterCommit(List.of(3L));
+
+        //then
+        assertThat(sut.getBookIds(GenreQuery.parse("Adventure"))).containsExactly(1L, 2L);
+        assertThat(sut.getBookIds(GenreQuery.parse("Adventure AND Romance"))).containsExactly(2L);
+        assertEquals(0, sut.count(GenreQuery.parse("Adventure NOT Romance OR Adventure")));
+    }
+}
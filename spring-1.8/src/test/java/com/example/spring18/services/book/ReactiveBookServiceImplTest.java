@@ -0,0 +1,150 @@
+package com.example.spring18.services.book;
+
+import com.example.spring18.dao.R2dbcTestConfig;
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import com.example.spring18.domain.GenreQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Реактивный сервис для работы с книгами должен:")
+@SpringJUnitConfig(R2dbcTestConfig.class)
+@ActiveProfiles("r2dbc")
+@TestPropertySource(properties = R2dbcTestConfig.URL)
+class ReactiveBookServiceImplTest {
+
+    @Autowired
+    private ReactiveBookServiceImpl sut;
+
+    @Autowired
+    private R2dbcTransactionManager transactionManager;
+
+    @Autowired
+    private BookReadModel bookReadModel;
+
+    @Autowired
+    private GenreBitmapIndex genreBitmapIndex;
+
+    @Test
+    @DisplayName("Сохранять книгу с новым автором и жанрами в одной транзакции")
+    void shouldSaveBook() {
+        //given
+        var book = Book.builder()
+                .name("Eugene Onegin")
+                .author(Author.builder().initials("A.S.").lastName("Pushkin").build())
+                .genres(List.of(Genre.builder().name("Romance").build(), Genre.builder().name("Poetry").build()))
+                .build();
+
+        //when
+        var saved = rollback(sut.saveBook(book).flatMap(sut::getBookById));
+
+        //then
+        StepVerifier.create(saved)
+                .assertNext(found -> {
+                    assertThat(found.getName()).isEqualTo("Eugene Onegin");
+                    assertThat(found.getAuthor().getId()).isEqualTo(1);
+                    assertThat(found.getGenres()).extracting(Genre::getName)
+                            .containsExactlyInAnyOrder("Romance", "Poetry");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Обновлять книгу, ее автора и жанры")
+    void shouldUpdateBook() {
+        //given
+        var book = Book.builder()
+                .id(1)
+                .name("Renamed novel")
+                .author(Author.builder().initials("D.A.").lastName("Rubina").build())
+                .genres(List.of(Genre.builder().name("Romance").build()))
+                .build();
+
+        //when
+        var updated = rollback(sut.updateBookById(book).then(sut.getBookById(1)));
+
+        //then
+        StepVerifier.create(updated)
+                .assertNext(found -> {
+                    assertThat(found.getName()).isEqualTo("Renamed novel");
+                    assertThat(found.getAuthor().getId()).isEqualTo(2);
+                    assertThat(found.getGenres()).extracting(Genre::getName).containsExactly("Romance");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Стримить каталог в порядке идентификаторов")
+    void shouldStreamAllBooks() {
+        //when
+        var ids = sut.streamAllBooks().map(Book::getId);
+
+        //then
+        StepVerifier.create(ids)
+                .expectNext(1L, 2L, 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Обновлять модель чтения и индекс жанров после фиксации записи")
+    void shouldRefreshReadModelAfterCommit() {
+        //given
+        bookReadModel.load();
+        genreBitmapIndex.load();
+        var author = Author.builder().initials("A.S.").lastName("Pushkin").build();
+
+        //when
+        long id = sut.saveBook(Book.builder()
+                .name("Eugene Onegin")
+                .author(author)
+                .genres(List.of(Genre.builder().name("Romance").build()))
+                .build()).block();
+
+        //then
+        assertThat(bookReadModel.getBookById(id).getName()).isEqualTo("Eugene Onegin");
+        assertThat(genreBitmapIndex.getBookIds(GenreQuery.parse("Romance"))).contains(id);
+
+        //when
+        sut.updateBookById(Book.builder()
+                .id(id)
+                .name("Onegin")
+                .author(author)
+                .genres(List.of(Genre.builder().name("Adventure").build()))
+                .build()).block();
+
+        //then
+        assertThat(bookReadModel.getBookById(id).getName()).isEqualTo("Onegin");
+        assertThat(bookReadModel.getBookById(id).getGenres()).extracting(Genre::getName).containsExactly("Adventure");
+        assertThat(genreBitmapIndex.getBookIds(GenreQuery.parse("Romance"))).doesNotContain(id);
+        assertThat(genreBitmapIndex.getBookIds(GenreQuery.parse("Adventure"))).contains(id);
+
+        //when
+        sut.deleteBookById(id).block();
+
+        //then
+        assertThrows(EmptyResultDataAccessException.class, () -> bookReadModel.getBookById(id));
+        assertThat(genreBitmapIndex.getBookIds(GenreQuery.parse("Adventure"))).containsExactly(1L, 3L);
+    }
+
+    private <T> Mono<T> rollback(Mono<T> mono) {
+        return TransactionalOperator.create(transactionManager).execute(transaction -> {
+            transaction.setRollbackOnly();
+            return mono;
+        }).singleOrEmpty();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.spring18.services.genre;
 
+import com.example.spring18.config.LibraryProperties;
 import com.example.spring18.dao.genre.GenreDao;
 import com.example.spring18.domain.Genre;
 import org.junit.jupiter.api.DisplayName;
@@ -7,14 +8,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @DisplayName("Сервис для работы с жанрами должен:")
@@ -24,6 +34,12 @@ class GenreServiceImplTest {
     @Mock
     private GenreDao genreDao;
 
+    @Spy
+    private GenreCache genreCache = new GenreCache(new LibraryProperties());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private GenreServiceImpl sut;
 
@@ -57,6 +73,44 @@ class GenreServiceImplTest {
         assertEquals(savedGenreId, result);
     }
 
+    @Test
+    @DisplayName("Возвращать id существующих жанров одним запросом")
+    void shouldReturnExistingGenreIds_whenAllGenresExist() {
+        //given
+        var genre = genre();
+        when(genreDao.getByNames(Set.of(genre.getName()))).thenReturn(List.of(genre));
+
+        //when
+        var result = sut.getExistingGenreIdsOrSave(List.of(genre, genre));
+
+        //then
+        assertThat(result).containsExactly(genre.getId());
+        verify(genreDao, never()).saveAllIfAbsent(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Сохранять недостающие жанры пачкой и возвращать все id")
+    void shouldSaveMissingGenresAndReturnAllIds() {
+        //given
+        var existingGenre = genre();
+        var newGenre = Genre.builder()
+                .id(2L)
+                .name("newName")
+                .build();
+        when(genreDao.getByNames(Set.of(existingGenre.getName(), newGenre.getName())))
+                .thenReturn(List.of(existingGenre));
+        when(genreDao.getByNames(Set.of(newGenre.getName()))).thenReturn(List.of(newGenre));
+
+        //when
+        var result = sut.getExistingGenreIdsOrSave(List.of(existingGenre, Genre.builder()
+                .name(newGenre.getName())
+                .build()));
+
+        //then
+        assertThat(result).containsExactlyInAnyOrder(existingGenre.getId(), newGenre.getId());
+        verify(genreDao, times(1)).saveAllIfAbsent(Set.of(newGenre.getName()));
+    }
+
     @Test
     @DisplayName("Должен возвращать все жанры")
     void shouldReturnAllGenres() {
@@ -90,6 +144,123 @@ class GenreServiceImplTest {
                 .isEqualTo(expectedGenres);
     }
 
+    @Test
+    @DisplayName("Должен возвращать жанры по списку id")
+    void shouldReturnGenresByIds() {
+        //given
+        var ids = List.of(1L);
+        var expectedGenres = List.of(genre());
+        when(genreDao.getByIds(ids)).thenReturn(expectedGenres);
+
+        //when
+        var actualGenres = sut.getGenresByIds(ids);
+
+        //then
+        assertThat(actualGenres)
+                .usingRecursiveComparison()
+                .isEqualTo(expectedGenres);
+    }
+
+    @Test
+    @DisplayName("Возвращать жанры по именам из кэша без обращения к базе")
+    void shouldReturnCachedGenresByNames() {
+        //given
+        var genre = genre();
+        when(genreDao.getByNames(Set.of(genre.getName()))).thenReturn(List.of(genre));
+        sut.getExistingGenreIdsOrSave(List.of(genre));
+
+        //when
+        var result = sut.getExistingGenreIdsOrSave(List.of(genre));
+
+        //then
+        assertThat(result).containsExactly(genre.getId());
+        verify(genreDao, times(1)).getByNames(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Возвращать все жанры из кэша и заполнять кэш по id")
+    void shouldReturnCachedAllGenres() {
+        //given
+        var genre = genre();
+        when(genreDao.getAll()).thenReturn(List.of(genre));
+        sut.getAllGenres();
+
+        //when
+        var allGenres = sut.getAllGenres();
+        var genresByIds = sut.getGenresByIds(List.of(genre.getId()));
+
+        //then
+        assertThat(allGenres).containsExactly(genre);
+        assertThat(genresByIds).containsExactly(genre);
+        verify(genreDao, times(1)).getAll();
+        verify(genreDao, never()).getByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Кэшировать жанры, прочитанные в транзакции, только после ее фиксации")
+    void shouldCacheGenresReadInTransaction_afterCommit() {
+        //given
+        var genre = genre();
+        when(genreDao.getAll()).thenReturn(List.of(genre));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            //when
+            var allGenres = sut.getAllGenres();
+
+            //then
+            assertThat(allGenres).containsExactly(genre);
+            assertThat(genreCache.getById(genre.getId())).isNull();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(genreCache.getById(genre.getId())).isEqualTo(genre);
+        assertThat(sut.getAllGenres()).containsExactly(genre);
+        verify(genreDao, times(1)).getAll();
+    }
+
+    @Test
+    @DisplayName("Сбрасывать кэш при обновлении жанра")
+    void shouldInvalidateCache_whenGenreIsUpdated() {
+        //given
+        var oldGenre = genre();
+        var newGenre = Genre.builder()
+                .id(oldGenre.getId())
+                .name("newName")
+                .build();
+        when(genreDao.getAll()).thenReturn(List.of(oldGenre)).thenReturn(List.of(newGenre));
+        when(genreDao.getById(oldGenre.getId())).thenReturn(oldGenre);
+        sut.getAllGenres();
+
+        //when
+        sut.updateGenre(newGenre);
+
+        //then
+        verify(genreDao).updateById(newGenre);
+        verify(eventPublisher).publishEvent(new GenreChangedEvent(oldGenre.getId()));
+        assertThat(genreCache.getByName(oldGenre.getName())).isNull();
+        assertThat(genreCache.getById(oldGenre.getId())).isNull();
+        assertThat(sut.getAllGenres()).containsExactly(newGenre);
+    }
+
+    @Test
+    @DisplayName("Сбрасывать кэш при удалении жанра")
+    void shouldInvalidateCache_whenGenreIsDeleted() {
+        //given
+        var genre = genre();
+        when(genreDao.getByNames(Set.of(genre.getName()))).thenReturn(List.of(genre));
+        when(genreDao.getById(genre.getId())).thenReturn(genre);
+        sut.getExistingGenresOrSave(List.of(genre));
+
+        //when
+        sut.deleteGenreById(genre.getId());
+
+        //then
+        verify(genreDao).delete(genre.getId());
+        verify(eventPublisher).publishEvent(new GenreChangedEvent(genre.getId()));
+        assertThat(genreCache.getByName(genre.getName())).isNull();
+    }
+
     private static Genre genre() {
         return Genre.builder()
                 .id(1L)
@@ -0,0 +1,112 @@
+package com.example.spring18.shell;
+
+import com.example.spring18.config.LibraryProperties;
+import com.example.spring18.dao.util.IdRange;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.services.book.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Команды работы с файлами книг должны:")
+@ExtendWith(MockitoExtension.class)
+class BookFileCommandsTest {
+
+    @Mock
+    private BookService bookService;
+
+    @Test
+    @DisplayName("Называть ошибку без текста по её классу")
+    void shouldReportFailureWithoutMessage_whenRunningBatch(@TempDir Path directory) throws IOException {
+        //given
+        Path file = Files.writeString(directory.resolve("commands.txt"), "delete 1\ndelete 2\n");
+        when(bookService.applyChanges(any(), anyInt(), any())).thenAnswer(invocation -> {
+            Stream<BookChange> changes = invocation.getArgument(0);
+            BiConsumer<BookChange, RuntimeException> failed = invocation.getArgument(2);
+            changes.forEach(change -> failed.accept(change,
+                    new DataIntegrityViolationException("broken", new SQLException())));
+            return 0L;
+        });
+        var sut = new BookFileCommands(bookService, new LibraryProperties());
+        var out = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+
+        //when
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            sut.runBatch(file.toString(), 10);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        //then
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .contains("Line 1 failed : delete : SQLException")
+                .contains("Line 2 failed : delete : SQLException");
+    }
+
+    @Test
+    @DisplayName("Отклонять неположительное число частей выгрузки")
+    void shouldRejectNonPositivePartitions(@TempDir Path directory) {
+        //given
+        var sut = new BookFileCommands(bookService, new LibraryProperties());
+        var file = directory.resolve("books.csv").toString();
+
+        //then
+        assertThrows(IllegalArgumentException.class, () -> sut.exportBooks(file, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> sut.exportBooks(file, null, -1));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    @DisplayName("Выгружать части не больше чем в заданное число потоков")
+    void shouldBoundExportThreads(@TempDir Path directory) throws Exception {
+        //given
+        var properties = new LibraryProperties();
+        properties.getBooks().setExportThreads(2);
+        when(bookService.getBookIdRange()).thenReturn(IdRange.builder().minId(1L).maxId(60L).build());
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return null;
+        }).when(bookService).streamBooksInRange(anyLong(), anyLong(), any());
+        var sut = new BookFileCommands(bookService, properties);
+
+        //when
+        sut.exportBooks(directory.resolve("books.csv").toString(), null, 6);
+
+        //then
+        verify(bookService, times(6)).streamBooksInRange(anyLong(), anyLong(), any());
+        assertThat(maxRunning.get()).isBetween(1, 2);
+        assertThat(directory.resolve("books-5.csv")).exists();
+    }
+}
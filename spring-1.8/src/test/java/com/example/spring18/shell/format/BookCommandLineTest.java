@@ -0,0 +1,88 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.BookChange;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Разбор команд пакетного режима должен:")
+class BookCommandLineTest {
+
+    @DisplayName("Читать добавление книги с именованными опциями")
+    @Test
+    void parseAddWithNamedOptions() {
+        //when
+        BookChange change = BookCommandLine.parse(7, "add --bookName 'Tales of \"Belkin\"' --authorInitials A.S. "
+                + "--author-lastname Pushkin --genreNames Adventure \"Short story\"");
+
+        //then
+        assertEquals(BookChange.Type.ADD, change.getType());
+        assertEquals(7, change.getLine());
+        assertThat(change.getBook())
+                .usingRecursiveComparison()
+                .isEqualTo(Book.builder()
+                        .name("Tales of \"Belkin\"")
+                        .author(Author.builder()
+                                .initials("A.S.")
+                                .lastName("Pushkin")
+                                .build())
+                        .genres(List.of(Genre.builder().name("Adventure").build(),
+                                Genre.builder().name("Short story").build()))
+                        .build());
+    }
+
+    @DisplayName("Читать обновление книги с позиционными аргументами")
+    @Test
+    void parseUpdateWithPositionalArguments() {
+        //when
+        BookChange change = BookCommandLine.parse(1, "u 3 \"New name\" D.A. Rubina Romance Adventure");
+
+        //then
+        assertEquals(BookChange.Type.UPDATE, change.getType());
+        assertThat(change.getBook())
+                .usingRecursiveComparison()
+                .isEqualTo(Book.builder()
+                        .id(3L)
+                        .name("New name")
+                        .author(Author.builder()
+                                .initials("D.A.")
+                                .lastName("Rubina")
+                                .build())
+                        .genres(List.of(Genre.builder().name("Romance").build(),
+                                Genre.builder().name("Adventure").build()))
+                        .build());
+    }
+
+    @DisplayName("Читать удаление книги")
+    @Test
+    void parseDelete() {
+        //when
+        BookChange change = BookCommandLine.parse(1, "delete --id 42");
+
+        //then
+        assertEquals(BookChange.Type.DELETE, change.getType());
+        assertEquals(42L, change.getBook().getId());
+    }
+
+    @DisplayName("Отклонять команды, которые нельзя выполнить пакетом")
+    @Test
+    void rejectReadCommands() {
+        assertThrows(IllegalArgumentException.class, () -> BookCommandLine.parse(1, "get 1"));
+    }
+
+    @DisplayName("Отклонять команды без обязательных опций")
+    @Test
+    void rejectMissingOptions() {
+        assertThrows(IllegalArgumentException.class, () -> BookCommandLine.parse(1, "update --bookName name"));
+        assertThrows(IllegalArgumentException.class, () -> BookCommandLine.parse(1, "delete --id one"));
+        assertThrows(IllegalArgumentException.class, () -> BookCommandLine.parse(1, "add 'unclosed"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Запись книг в файл должна:")
+class BookFileWriterTest {
+
+    @TempDir
+    private Path directory;
+
+    @DisplayName("Писать заголовок и книги через буфер")
+    @Test
+    void writeBooks() throws IOException {
+        //given
+        Path file = directory.resolve("books.csv");
+        int count = 5000;
+
+        //when
+        try (var writer = new BookFileWriter(file, BookFormat.CSV)) {
+            for (int i = 0; i < count; i++) {
+                writer.accept(book("Книга " + i));
+            }
+        }
+
+        //then
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(count + 1);
+        assertThat(lines.get(0)).isEqualTo(BookFormat.CSV.header());
+        assertThat(BookFormat.CSV.read(lines.get(count)))
+                .usingRecursiveComparison()
+                .isEqualTo(book("Книга " + (count - 1)));
+    }
+
+    @DisplayName("Считать записанные книги")
+    @Test
+    void countWrittenBooks() throws IOException {
+        //given
+        Path file = directory.resolve("books.ndjson");
+
+        //when
+        long written;
+        try (var writer = new BookFileWriter(file, BookFormat.NDJSON)) {
+            writer.accept(book("first"));
+            writer.accept(book("second"));
+            written = writer.getWritten();
+        }
+
+        //then
+        assertThat(written).isEqualTo(2);
+        assertThat(Files.readAllLines(file)).hasSize(2);
+    }
+
+    private static Book book(String name) {
+        return Book.builder()
+                .name(name)
+                .author(Author.builder()
+                        .initials("A.S.")
+                        .lastName("Pushkin")
+                        .build())
+                .genres(List.of(Genre.builder().name("Adventure").build()))
+                .build();
+    }
+}
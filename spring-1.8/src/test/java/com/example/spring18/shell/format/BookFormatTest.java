@@ -0,0 +1,109 @@
+package com.example.spring18.shell.format;
+
+import com.example.spring18.domain.Author;
+import com.example.spring18.domain.Book;
+import com.example.spring18.domain.Genre;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Формат файла с книгами должен:")
+class BookFormatTest {
+
+    @DisplayName("Читать записанную книгу без потерь")
+    @ParameterizedTest
+    @EnumSource(BookFormat.class)
+    void writeAndRead(BookFormat format) {
+        //given
+        Book book = Book.builder()
+                .name("Tales, \"collected\"")
+                .author(Author.builder()
+                        .initials("A.S.")
+                        .lastName("Pushkin")
+                        .build())
+                .genres(List.of(Genre.builder().name("Adventure").build(),
+                        Genre.builder().name("Romance").build()))
+                .build();
+
+        //when
+        Book actualBook = format.read(format.write(book));
+
+        //then
+        assertThat(actualBook)
+                .usingRecursiveComparison()
+                .isEqualTo(book);
+    }
+
+    @DisplayName("Читать из выгруженного файла книги с переводами строк и разделителями в полях")
+    @ParameterizedTest
+    @EnumSource(BookFormat.class)
+    void exportAndImport(BookFormat format, @TempDir Path directory) throws IOException {
+        //given
+        var file = directory.resolve("books");
+        List<Book> books = List.of(Book.builder()
+                        .name("Tales,\n\"collected\"\r\nin two volumes")
+                        .author(Author.builder()
+                                .initials("A.S.")
+                                .lastName("Push\rkin")
+                                .build())
+                        .genres(List.of(Genre.builder().name("Adventure|Romance").build(),
+                                Genre.builder().name("Back\\slash").build(),
+                                Genre.builder().name("Poetry").build()))
+                        .build(),
+                Book.builder()
+                        .name("Poems")
+                        .author(Author.builder()
+                                .lastName("Lermontov")
+                                .build())
+                        .genres(List.of())
+                        .build());
+        try (var writer = new BookFileWriter(file, format)) {
+            books.forEach(writer);
+        }
+
+        //when
+        List<Book> actualBooks;
+        try (BufferedReader reader = Files.newBufferedReader(file);
+             Stream<String> records = format.records(reader)) {
+            actualBooks = records.skip(nonNull(format.header()) ? 1 : 0)
+                    .map(format::read)
+                    .toList();
+        }
+
+        //then
+        assertThat(actualBooks)
+                .usingRecursiveComparison()
+                .isEqualTo(books);
+    }
+
+    @DisplayName("Читать книгу без инициалов и жанров из csv")
+    @Test
+    void readCsvWithEmptyFields() {
+        //when
+        Book book = BookFormat.CSV.read("Poems,,Pushkin,");
+
+        //then
+        assertThat(book.getAuthor().getInitials()).isNull();
+        assertThat(book.getAuthor().getLastName()).isEqualTo("Pushkin");
+        assertThat(book.getGenres()).isEmpty();
+    }
+
+    @DisplayName("Определять формат по расширению файла")
+    @Test
+    void resolveFormatByExtension() {
+        assertThat(BookFormat.of("books.CSV")).isEqualTo(BookFormat.CSV);
+        assertThat(BookFormat.of("books.ndjson")).isEqualTo(BookFormat.NDJSON);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("Ограниченный кэш должен:")
+class BoundedCacheTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    @Test
+    @DisplayName("Вытеснять давно не использованные записи при переполнении")
+    void shouldEvictLeastRecentlyUsed_whenFull() {
+        //given
+        var sut = new BoundedCache<String, Long>("test", 2, Duration.ofMinutes(1), ticker::get);
+        sut.put("a", 1L);
+        sut.put("b", 2L);
+        sut.get("a");
+
+        //when
+        sut.put("c", 3L);
+
+        //then
+        assertEquals(1L, sut.get("a"));
+        assertNull(sut.get("b"));
+        assertEquals(3L, sut.get("c"));
+        assertEquals(1, sut.getEvictions());
+        assertEquals(2, sut.size());
+    }
+
+    @Test
+    @DisplayName("Не возвращать записи с истекшим сроком жизни")
+    void shouldExpireEntries() {
+        //given
+        var sut = new BoundedCache<String, Long>("test", 2, Duration.ofSeconds(1), ticker::get);
+        sut.put("a", 1L);
+
+        //when
+        ticker.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        //then
+        assertNull(sut.get("a"));
+        assertEquals(0, sut.size());
+    }
+
+    @Test
+    @DisplayName("Считать попадания и промахи")
+    void shouldCountHitsAndMisses() {
+        //given
+        var sut = new BoundedCache<String, Long>("test", 2, Duration.ofMinutes(1), ticker::get);
+
+        //when
+        sut.get("a", key -> 1L);
+        sut.get("a", key -> 2L);
+
+        //then
+        assertEquals(1, sut.getHits());
+        assertEquals(1, sut.getMisses());
+        assertEquals(1L, sut.get("a"));
+    }
+
+    @Test
+    @DisplayName("Не сохранять значение, загруженное до сброса ключа")
+    void shouldNotCacheValueLoadedBeforeInvalidation() {
+        //given
+        var sut = new BoundedCache<String, Long>("test", 2, Duration.ofMinutes(1), ticker::get);
+
+        //when
+        var loaded = sut.get("a", key -> {
+            sut.invalidate(key);
+            return 1L;
+        });
+
+        //then
+        assertEquals(1L, loaded);
+        assertThat(sut.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Вытеснять записи по суммарному весу")
+    void shouldEvictByWeight() {
+        //given
+        var sut = new BoundedCache<String, String>("test", 10, String::length, Duration.ofMinutes(1), ticker::get);
+        sut.put("a", "12345");
+        sut.put("b", "1234");
+
+        //when
+        sut.put("c", "123");
+
+        //then
+        assertNull(sut.get("a"));
+        assertEquals(7, sut.getWeight());
+        assertEquals(1, sut.getEvictions());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Сжатый битовый набор должен:")
+class IdBitmapTest {
+
+    @Test
+    @DisplayName("Хранить редкие и плотные идентификаторы")
+    void shouldKeepSparseAndDenseIds() {
+        //given
+        var sut = new IdBitmap();
+
+        //when
+        for (long id = 0; id < 10_000; id++) {
+            sut.add(id);
+        }
+        sut.add(1L << 40);
+        for (long id = 0; id < 10_000; id += 2) {
+            sut.remove(id);
+        }
+
+        //then
+        assertEquals(5_001, sut.cardinality());
+        assertTrue(sut.contains(9_999));
+        assertFalse(sut.contains(9_998));
+        assertTrue(sut.contains(1L << 40));
+        assertFalse(sut.add(1L << 40));
+    }
+
+    @Test
+    @DisplayName("Выполнять AND, OR и AND NOT как множества")
+    void shouldCombineLikeSets() {
+        //given
+        var random = new Random(42);
+        var first = new TreeSet<Long>();
+        var second = new TreeSet<Long>();
+        var firstBitmap = new IdBitmap();
+        var secondBitmap = new IdBitmap();
+        for (int i = 0; i < 20_000; i++) {
+            long dense = random.nextInt(70_000);
+            long sparse = random.nextInt(1_000_000);
+            first.add(dense);
+            firstBitmap.add(dense);
+            second.add(sparse);
+            secondBitmap.add(sparse);
+        }
+
+        //then
+        assertCombined(firstBitmap.and(secondBitmap), first, second, (inFirst, inSecond) -> inFirst && inSecond);
+        assertCombined(firstBitmap.or(secondBitmap), first, second, (inFirst, inSecond) -> inFirst || inSecond);
+        assertCombined(firstBitmap.andNot(secondBitmap), first, second, (inFirst, inSecond) -> inFirst && !inSecond);
+        assertCombined(secondBitmap.andNot(firstBitmap), second, first, (inFirst, inSecond) -> inFirst && !inSecond);
+    }
+
+    private static void assertCombined(IdBitmap actual, TreeSet<Long> first, TreeSet<Long> second,
+                                       BiPredicate<Boolean, Boolean> operation) {
+        var all = new TreeSet<>(first);
+        all.addAll(second);
+        long[] expected = all.stream()
+                .filter(id -> operation.test(first.contains(id), second.contains(id)))
+                .mapToLong(Long::longValue)
+                .toArray();
+        assertThat(actual.toArray()).containsExactly(expected);
+        assertEquals(expected.length, actual.cardinality());
+    }
+}
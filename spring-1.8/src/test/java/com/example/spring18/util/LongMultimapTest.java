@@ -0,0 +1,67 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Мультимапа с ключами long должна:")
+class LongMultimapTest {
+
+    @Test
+    @DisplayName("Возвращать значения ключа в порядке добавления")
+    void shouldReturnValuesInInsertionOrder() {
+        //given
+        var sut = new LongMultimap(2, 4);
+        sut.put(1L, 10L);
+        sut.put(2L, 20L);
+        sut.put(1L, 11L);
+        sut.put(1L, 12L);
+
+        //when
+        List<Long> actualValues = new ArrayList<>();
+        sut.forEach(1L, actualValues::add);
+
+        //then
+        assertThat(actualValues).containsExactly(10L, 11L, 12L);
+        assertEquals(4, sut.size());
+    }
+
+    @Test
+    @DisplayName("Ничего не возвращать для отсутствующего ключа")
+    void shouldReturnNothing_whenKeyIsAbsent() {
+        //given
+        var sut = new LongMultimap(1, 1);
+        sut.put(1L, 10L);
+
+        //when
+        List<Long> actualValues = new ArrayList<>();
+        sut.forEach(2L, actualValues::add);
+
+        //then
+        assertThat(actualValues).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Сохранять значения при росте сверх ожидаемого размера")
+    void shouldKeepValues_whenGrowsBeyondExpectedSize() {
+        //given
+        var sut = new LongMultimap(1, 1);
+        for (long key = 0; key < 1000; key++) {
+            sut.put(key, key * 2);
+            sut.put(key, key * 2 + 1);
+        }
+
+        //when
+        List<Long> actualValues = new ArrayList<>();
+        sut.forEach(777L, actualValues::add);
+
+        //then
+        assertThat(actualValues).containsExactly(1554L, 1555L);
+        assertEquals(2000, sut.size());
+    }
+}
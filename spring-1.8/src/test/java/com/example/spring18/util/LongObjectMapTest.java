@@ -0,0 +1,52 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("Мапа с ключами long должна:")
+class LongObjectMapTest {
+
+    @Test
+    @DisplayName("Заменять значение существующего ключа")
+    void shouldReplaceValue_whenKeyIsPresent() {
+        //given
+        var sut = new LongObjectMap<String>(4);
+        sut.put(1L, "first");
+
+        //when
+        String previous = sut.put(1L, "second");
+
+        //then
+        assertEquals("first", previous);
+        assertEquals("second", sut.get(1L));
+        assertEquals(1, sut.size());
+    }
+
+    @Test
+    @DisplayName("Находить оставшиеся ключи после удаления и роста")
+    void shouldFindRemainingKeys_whenRemovedAndGrown() {
+        //given
+        var sut = new LongObjectMap<Long>(1);
+        for (long key = 1; key <= 1000; key++) {
+            sut.put(key, key * 2);
+        }
+
+        //when
+        for (long key = 1; key <= 1000; key += 2) {
+            sut.remove(key);
+        }
+
+        //then
+        assertEquals(500, sut.size());
+        for (long key = 1; key <= 1000; key++) {
+            if (key % 2 == 0) {
+                assertEquals(key * 2, sut.get(key));
+            } else {
+                assertNull(sut.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Список отсортированных идентификаторов должен:")
+class LongPostingsTest {
+
+    @Test
+    @DisplayName("Пересекать и объединять списки")
+    void shouldIntersectAndUnite() {
+        //given
+        var first = postings(5, 1, 3, 7);
+        var second = postings(3, 4, 7, 9);
+        var third = postings(7, 3, 11);
+
+        //when
+        long[] intersection = LongPostings.intersect(first, second, third);
+        long[] union = LongPostings.union(first, second, third);
+
+        //then
+        assertThat(intersection).containsExactly(3, 7);
+        assertThat(union).containsExactly(1, 3, 4, 5, 7, 9, 11);
+    }
+
+    @Test
+    @DisplayName("Не хранить дубликаты и удалять идентификаторы")
+    void shouldKeepUniqueIds() {
+        //given
+        var sut = postings(2, 1, 2);
+
+        //when
+        sut.remove(1);
+
+        //then
+        assertThat(LongPostings.union(sut)).containsExactly(2);
+    }
+
+    private static LongPostings postings(long... ids) {
+        var postings = new LongPostings();
+        for (long id : ids) {
+            postings.add(id);
+        }
+        return postings;
+    }
+}
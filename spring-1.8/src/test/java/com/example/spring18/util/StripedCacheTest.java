@@ -0,0 +1,89 @@
+package com.example.spring18.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("Кэш с разделенными блокировками должен:")
+class StripedCacheTest {
+
+    @Test
+    @DisplayName("Не превышать заданный вес")
+    void shouldStayWithinMaximumWeight() {
+        //given
+        var sut = new StripedCache<Long, String>("test", 4, 400, String::length, Duration.ofMinutes(1));
+
+        //when
+        for (long i = 0; i < 1000; i++) {
+            sut.put(i, "0123456789");
+        }
+
+        //then
+        assertThat(sut.getWeight()).isLessThanOrEqualTo(400);
+        assertThat(sut.size()).isPositive();
+        assertThat(sut.getEvictions()).isEqualTo(1000 - sut.size());
+    }
+
+    @Test
+    @DisplayName("Сбрасывать записи по условию во всех сегментах")
+    void shouldInvalidateMatchingEntries() {
+        //given
+        var sut = new StripedCache<Long, String>("test", 4, 1000, String::length, Duration.ofMinutes(1));
+        for (long i = 0; i < 10; i++) {
+            sut.put(i, i % 2 == 0 ? "even" : "odd");
+        }
+
+        //when
+        sut.invalidateIf("even"::equals);
+
+        //then
+        assertEquals(5, sut.size());
+        assertNull(sut.get(2L));
+        assertEquals("odd", sut.get(3L));
+        assertEquals(15, sut.getWeight());
+    }
+
+    @Test
+    @DisplayName("Оставаться согласованным при параллельном доступе")
+    void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+        //given
+        var sut = new StripedCache<Long, Long>("test", 8, 512, value -> 1, Duration.ofMinutes(1));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        //when
+        for (int thread = 0; thread < 8; thread++) {
+            tasks.add(executor.submit(() -> {
+                var random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    long key = random.nextLong(2048);
+                    Long value = sut.get(key, id -> id * 2);
+                    assertEquals(key * 2, value);
+                    if (random.nextInt(100) == 0) {
+                        sut.invalidate(key);
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(sut.size()).isLessThanOrEqualTo(512);
+        assertEquals(sut.size(), sut.getWeight());
+        assertEquals(8 * 20_000, sut.getHits() + sut.getMisses());
+    }
+}